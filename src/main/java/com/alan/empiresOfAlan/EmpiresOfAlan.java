@@ -2,45 +2,55 @@ package com.alan.empiresOfAlan;
 
 import com.alan.empiresOfAlan.api.EmpiresOfAlanAPI;
 import com.alan.empiresOfAlan.commands.CommandManager;
+import com.alan.empiresOfAlan.database.DatabaseWriter;
 import com.alan.empiresOfAlan.database.SQLiteManager;
-import com.alan.empiresOfAlan.database.dao.ClaimDAO;
-import com.alan.empiresOfAlan.database.dao.NationDAO;
-import com.alan.empiresOfAlan.database.dao.ResidentDAO;
-import com.alan.empiresOfAlan.database.dao.TownDAO;
+import com.alan.empiresOfAlan.database.SQLiteStorageProvider;
+import com.alan.empiresOfAlan.database.StorageHost;
+import com.alan.empiresOfAlan.database.StorageProvider;
+import com.alan.empiresOfAlan.database.snapshot.SnapshotStorageProvider;
 import com.alan.empiresOfAlan.integrations.VaultIntegration;
+import com.alan.empiresOfAlan.journal.JournalReplayer;
+import com.alan.empiresOfAlan.journal.MutationJournal;
 import com.alan.empiresOfAlan.listeners.ChatListener;
 import com.alan.empiresOfAlan.listeners.ClaimListener;
 import com.alan.empiresOfAlan.listeners.PlayerListener;
+import com.alan.empiresOfAlan.listeners.TownListener;
 import com.alan.empiresOfAlan.managers.*;
 import com.alan.empiresOfAlan.model.Claim;
 import com.alan.empiresOfAlan.model.Nation;
+import com.alan.empiresOfAlan.model.Plot;
 import com.alan.empiresOfAlan.model.Resident;
 import com.alan.empiresOfAlan.model.Town;
 import com.alan.empiresOfAlan.util.AsyncExecutor;
 import com.alan.empiresOfAlan.util.ConfigManager;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scheduler.BukkitTask;
 
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
-public class EmpiresOfAlan extends JavaPlugin {
+public class EmpiresOfAlan extends JavaPlugin implements StorageHost {
     private ConfigManager configManager;
-    private SQLiteManager sqliteManager;
+    private StorageProvider storage;
+    private MutationJournal journal;
     private AsyncExecutor asyncExecutor;
     private CommandManager commandManager;
     private VaultIntegration vaultIntegration;
     private BukkitTask taxTask;
     private BukkitTask saveTask;
     private EmpiresOfAlanAPI api;
-
-    // Database DAOs
-    private ResidentDAO residentDAO;
-    private TownDAO townDAO;
-    private NationDAO nationDAO;
-    private ClaimDAO claimDAO;
+    private volatile boolean dataLoaded;
+    private volatile boolean loadFinished; // Unlike dataLoaded, stays set while shutting down
 
     @Override
     public void onEnable() {
@@ -53,17 +63,17 @@ public class EmpiresOfAlan extends JavaPlugin {
         this.asyncExecutor = new AsyncExecutor(this);
         this.configManager = new ConfigManager(this);
 
-        // Initialize database
-        this.sqliteManager = new SQLiteManager(this);
-        this.residentDAO = new ResidentDAO(this);
-        this.townDAO = new TownDAO(this);
-        this.nationDAO = new NationDAO(this);
-        this.claimDAO = new ClaimDAO(this);
+        // Initialize storage
+        this.storage = createStorage();
+        this.journal = new MutationJournal(this);
 
-        this.sqliteManager.initialize().thenRun(() -> {
-            getLogger().info("Database initialized successfully!");
-            // Load data from database
+        this.storage.initialize().thenRun(() -> {
+            getLogger().info("Storage backend " + storage.getName() + " initialized successfully!");
+            // Load data from storage
             loadData();
+        }).exceptionally(e -> {
+            getLogger().severe("Database is unavailable, the plugin stays locked until it is fixed and the server restarts.");
+            return null;
         });
 
         // Initialize managers
@@ -96,28 +106,47 @@ public class EmpiresOfAlan extends JavaPlugin {
 
     @Override
     public void onDisable() {
-        // Save data to database
-        saveData();
+        long start = System.currentTimeMillis();
+        long deadline = start + 1000L * Math.max(1, configManager.getConfig().getInt("persistence.shutdown-timeout-seconds", 30));
 
-        // Cancel scheduled tasks
+        // Stop everything that changes data before the final save
+        boolean loaded = loadFinished;
+        dataLoaded = false;
         if (taxTask != null) {
             taxTask.cancel();
         }
         if (saveTask != null) {
             saveTask.cancel();
         }
+        VisualizationManager.getInstance().stop();
+
+        // Queue every change; a load that never finished has nothing to save
+        long failures = storage != null ? storage.getFailedFlushes() : 0;
+        if (loaded) {
+            saveData();
+        }
 
-        // Close database connection
-        if (sqliteManager != null) {
-            sqliteManager.close();
+        // Let running lookups and post-save tasks finish while the storage is still open
+        if (asyncExecutor != null && !asyncExecutor.shutdown(Math.max(1, deadline - System.currentTimeMillis()))) {
+            getLogger().warning("Async tasks did not finish before the shutdown timeout and were interrupted.");
         }
 
-        // Shutdown async executor
-        if (asyncExecutor != null) {
-            asyncExecutor.shutdown();
+        // Write everything still queued and close the storage
+        boolean flushed = false;
+        if (storage != null) {
+            flushed = storage.shutdown(Math.max(1000L, deadline - System.currentTimeMillis()))
+                    && storage.getFailedFlushes() == failures;
         }
 
-        getLogger().info("EmpiresOfAlan has been disabled!");
+        // The journal is only needed again if the last save did not make it to storage
+        if (journal != null) {
+            journal.close(flushed);
+            if (!flushed && loaded && journal.isEnabled()) {
+                getLogger().warning("Not every change was saved before shutdown, the journal is kept for the next start.");
+            }
+        }
+
+        getLogger().info("EmpiresOfAlan has been disabled in " + (System.currentTimeMillis() - start) + " ms.");
     }
 
     /**
@@ -126,13 +155,14 @@ public class EmpiresOfAlan extends JavaPlugin {
     private void initializeManagers() {
         try {
             // The order is important due to dependencies between managers
-            ResidentManager.getInstance();
+            ResidentManager.getInstance().setPlugin(this);
             TownManager townManager = TownManager.getInstance();
             townManager.setPlugin(this);
             NationManager nationManager = NationManager.getInstance();
             nationManager.setPlugin(this);
             ClaimManager claimManager = ClaimManager.getInstance();
             claimManager.setPlugin(this);
+            VisualizationManager.getInstance().setPlugin(this);
 
             TaxManager taxManager = TaxManager.getInstance();
             taxManager.loadConfig(configManager);
@@ -144,6 +174,22 @@ public class EmpiresOfAlan extends JavaPlugin {
         }
     }
 
+    /**
+     * Create the storage backend picked with persistence.backend
+     *
+     * @return The storage provider
+     */
+    private StorageProvider createStorage() {
+        String backend = configManager.getConfig().getString("persistence.backend", "sqlite");
+        if ("snapshot".equalsIgnoreCase(backend)) {
+            return new SnapshotStorageProvider(this);
+        }
+        if (!"sqlite".equalsIgnoreCase(backend)) {
+            getLogger().warning("Unknown persistence.backend '" + backend + "', using sqlite.");
+        }
+        return new SQLiteStorageProvider(this);
+    }
+
     /**
      * Register event listeners
      */
@@ -153,83 +199,293 @@ public class EmpiresOfAlan extends JavaPlugin {
         pluginManager.registerEvents(new ChatListener(this), this);
         pluginManager.registerEvents(new PlayerListener(this), this);
         pluginManager.registerEvents(new ClaimListener(this), this);
+        pluginManager.registerEvents(new TownListener(this), this);
 
         getLogger().info("Event listeners registered successfully!");
     }
 
     /**
-     * Load data from database
+     * Load data from database.
+     * Residents, towns, nations and claims are read in parallel stages on the async executor
+     * into private maps; the managers are only filled once every stage has finished, in a
+     * single main thread task that replays the mutation journal and ends by marking the plugin as ready.
      */
     private void loadData() {
-        try {
-            // Load residents first
-            Map<UUID, Resident> residents = residentDAO.loadAllResidents();
-            for (Resident resident : residents.values()) {
-                ResidentManager.getInstance().getResidents().put(resident.getUuid(), resident);
+        long start = System.nanoTime();
+        long[] stageMillis = new long[4];
+
+        CompletableFuture<Map<UUID, Resident>> residents = loadStage(stageMillis, 0, storage::loadTownResidents);
+        CompletableFuture<Map<UUID, Town>> towns = loadStage(stageMillis, 1, storage::loadAllTowns);
+        CompletableFuture<Map<UUID, Nation>> nations = loadStage(stageMillis, 2, storage::loadAllNations);
+        CompletableFuture<Map<UUID, Claim>> claims = loadStage(stageMillis, 3, () -> {
+            Map<UUID, Claim> loaded = storage.loadAllClaims();
+
+            // Attach plots to their claims before anyone else can see them
+            for (Plot plot : storage.loadAllPlots()) {
+                Claim claim = loaded.get(plot.getClaimId());
+                if (claim != null) {
+                    claim.addPlot(plot);
+                }
             }
+            return loaded;
+        });
+        CompletableFuture<List<ByteBuffer>> journalRecords = asyncExecutor.runAsync(journal::readAll);
+
+        CompletableFuture.allOf(residents, towns, nations, claims, journalRecords)
+                .thenCompose(ignored -> asyncExecutor.runSync(() -> {
+                    long publishStart = System.nanoTime();
+                    publishData(residents.join(), towns.join(), nations.join(), claims.join(), journalRecords.join());
+                    long publishMillis = (System.nanoTime() - publishStart) / 1_000_000;
+
+                    getLogger().info("Loaded " + residents.join().size() + " residents, " + towns.join().size() + " towns, "
+                            + nations.join().size() + " nations, and " + claims.join().size() + " claims in "
+                            + (System.nanoTime() - start) / 1_000_000 + " ms (residents " + stageMillis[0]
+                            + " ms, towns " + stageMillis[1] + " ms, nations " + stageMillis[2] + " ms, claims "
+                            + stageMillis[3] + " ms, publish " + publishMillis + " ms).");
+                }))
+                .exceptionally(e -> {
+                    getLogger().log(Level.SEVERE, "Failed to load data from database, the plugin stays locked", e);
+                    return null;
+                });
+    }
 
-            // Load towns
-            Map<UUID, Town> towns = townDAO.loadAllTowns();
-            for (Town town : towns.values()) {
-                TownManager.getInstance().getTowns().put(town.getId(), town);
-                TownManager.getInstance().getTownNameToId().put(town.getName().toLowerCase(), town.getId());
-            }
+    /**
+     * Run one load stage on the async executor and record how long it took
+     *
+     * @param stageMillis Stage timings
+     * @param stage Index of this stage in the timings
+     * @param loader The loader
+     * @param <T> The loaded type
+     * @return CompletableFuture with the loaded data
+     */
+    private <T> CompletableFuture<T> loadStage(long[] stageMillis, int stage, Supplier<T> loader) {
+        return asyncExecutor.runAsync(() -> {
+            long stageStart = System.nanoTime();
+            T result = loader.get();
+            stageMillis[stage] = (System.nanoTime() - stageStart) / 1_000_000;
+            return result;
+        });
+    }
 
-            // Load nations
-            Map<UUID, Nation> nations = nationDAO.loadAllNations();
-            for (Nation nation : nations.values()) {
-                NationManager.getInstance().getNations().put(nation.getId(), nation);
-                NationManager.getInstance().getNationNameToId().put(nation.getName().toLowerCase(), nation.getId());
-            }
+    /**
+     * Hand the loaded data to the managers and open the readiness gate (main thread).
+     * Listeners and commands see either no data and a closed gate, or all of it.
+     */
+    private void publishData(Map<UUID, Resident> residents, Map<UUID, Town> towns,
+                             Map<UUID, Nation> nations, Map<UUID, Claim> claims, List<ByteBuffer> journalRecords) {
+        ResidentManager.getInstance().getResidents().putAll(residents);
+
+        TownManager townManager = TownManager.getInstance();
+        for (Town town : towns.values()) {
+            townManager.getTowns().put(town.getId(), town);
+            townManager.getTownNameToId().put(town.getName().toLowerCase(), town.getId());
+        }
 
-            // Load claims
-            Map<UUID, Claim> claims = claimDAO.loadAllClaims();
-            for (Claim claim : claims.values()) {
-                ClaimManager.getInstance().getClaims().put(claim.getId(), claim);
-                ClaimManager.getInstance().getLocationToClaimId().put(claim.getLocationKey(), claim.getId());
+        NationManager nationManager = NationManager.getInstance();
+        for (Nation nation : nations.values()) {
+            nationManager.getNations().put(nation.getId(), nation);
+            nationManager.getNationNameToId().put(nation.getName().toLowerCase(), nation.getId());
+        }
+
+        ClaimManager claimManager = ClaimManager.getInstance();
+        for (Claim claim : claims.values()) {
+            claimManager.registerClaim(claim);
+        }
+
+        // Town claim sets follow the loaded claims; region blob storage does not keep town_claims
+        for (Town town : towns.values()) {
+            for (UUID claimId : new ArrayList<>(town.getClaims())) {
+                if (!claims.containsKey(claimId)) {
+                    town.removeClaim(claimId);
+                }
             }
+        }
+        for (Claim claim : claims.values()) {
+            Town town = towns.get(claim.getTownId());
+            if (town != null) {
+                town.addClaim(claim.getId());
+            }
+        }
 
-            getLogger().info("Loaded " + residents.size() + " residents, " + towns.size() + " towns, " + nations.size() + " nations, and " + claims.size() + " claims.");
-        } catch (Exception e) {
-            getLogger().log(Level.SEVERE, "Failed to load data from database", e);
+        // Loaded data matches the database
+        clearDirtyFlags();
+
+        // Changes made after the last save that reached the database; replayed entities stay dirty
+        if (!journalRecords.isEmpty()) {
+            int applied = new JournalReplayer(this).replay(journalRecords);
+            getLogger().info("Replayed " + applied + " of " + journalRecords.size() + " journaled changes.");
+        }
+        journal.open();
+
+        // Players who joined while loading were held back by the listeners
+        long now = System.currentTimeMillis();
+        for (Player player : getServer().getOnlinePlayers()) {
+            ResidentManager.getInstance().loadOrCreateResident(player)
+                    .thenAccept(resident -> resident.setLastOnline(now))
+                    .exceptionally(e -> {
+                        getLogger().log(Level.SEVERE, "Failed to load resident " + player.getName(), e);
+                        return null;
+                    });
         }
+
+        // Decisions cached while loading were made against incomplete data
+        PermissionManager.getInstance().invalidate();
+
+        // Publish the loaded claims to async readers right away
+        claimManager.publishSnapshot();
+
+        loadFinished = true;
+        dataLoaded = true;
     }
 
     /**
-     * Save data to database
+     * Save the entities that changed since the last save and delete the removed ones.
+     * The scan only reads dirty flags in memory; statements are issued for changed data only.
      */
     private void saveData() {
+        // Saving the little that was loaded before a failure would overwrite what is on disk
+        if (!loadFinished) {
+            return;
+        }
+
+        // Changes journaled so far are all part of this save
+        List<File> compacted = journal.rotate();
+        long failures = storage.getFailedFlushes();
+
         try {
+            int saved = 0;
+            int deleted = 0;
+
             // Save residents
-            ResidentManager residentManager = ResidentManager.getInstance();
-            for (Resident resident : residentManager.getAllResidents().values()) {
-                residentDAO.saveResident(resident);
+            for (Resident resident : ResidentManager.getInstance().getResidents().values()) {
+                if (resident.isDirty()) {
+                    resident.clearDirty();
+                    storage.saveResident(resident);
+                    saved++;
+                }
             }
 
             // Save towns
             TownManager townManager = TownManager.getInstance();
-            for (Town town : townManager.getAllTowns().values()) {
-                townDAO.saveTown(town);
+            for (UUID townId : townManager.drainDeletedTowns()) {
+                storage.deleteTown(townId);
+                deleted++;
+            }
+            for (Town town : townManager.getTowns().values()) {
+                if (town.isDirty() || town.isResidentsDirty()) {
+                    boolean saveResidents = town.isResidentsDirty();
+                    town.clearDirty();
+                    // Claim links are written together with the claims themselves
+                    storage.saveTown(town, saveResidents, false);
+                    saved++;
+                }
             }
 
             // Save nations
             NationManager nationManager = NationManager.getInstance();
-            for (Nation nation : nationManager.getAllNations().values()) {
-                nationDAO.saveNation(nation);
+            for (UUID nationId : nationManager.drainDeletedNations()) {
+                storage.deleteNation(nationId);
+                deleted++;
+            }
+            for (Nation nation : nationManager.getNations().values()) {
+                if (nation.isDirty() || nation.isTownsDirty()) {
+                    boolean saveTowns = nation.isTownsDirty();
+                    nation.clearDirty();
+                    storage.saveNation(nation, saveTowns);
+                    saved++;
+                }
             }
 
-            // Save claims
+            // Save claims and plots
             ClaimManager claimManager = ClaimManager.getInstance();
-            for (Claim claim : claimManager.getAllClaims().values()) {
-                claimDAO.saveClaim(claim);
+            List<Claim> deletedClaims = claimManager.drainDeletedClaims();
+            storage.deleteClaims(deletedClaims);
+            deleted += deletedClaims.size();
+            for (UUID plotId : claimManager.drainDeletedPlots()) {
+                storage.deletePlot(plotId);
+                deleted++;
             }
 
-            getLogger().info("Data saved successfully!");
+            List<Claim> dirtyClaims = new ArrayList<>();
+            for (Claim claim : claimManager.getClaims().values()) {
+                if (claim.isDirty()) {
+                    claim.clearDirty();
+                    dirtyClaims.add(claim);
+                }
+                if (claim.hasPlots()) {
+                    for (Plot plot : claim.getPlots()) {
+                        if (plot.isDirty()) {
+                            plot.clearDirty();
+                            storage.savePlot(plot);
+                            saved++;
+                        }
+                    }
+                }
+            }
+            storage.saveClaims(dirtyClaims);
+            saved += dirtyClaims.size();
+
+            if (saved > 0 || deleted > 0) {
+                getLogger().info("Saved " + saved + " changed and deleted " + deleted + " removed entries.");
+            }
         } catch (Exception e) {
             getLogger().log(Level.SEVERE, "Failed to save data to database", e);
+            return;
+        }
+        storage.checkpoint();
+
+        // Drop the old journal segments once the save is in the database; a failed flush keeps them for the next startup
+        if (!compacted.isEmpty()) {
+            asyncExecutor.runAsync(() -> {
+                if (storage.awaitFlush(60_000L) && storage.getFailedFlushes() == failures) {
+                    journal.delete(compacted);
+                }
+            });
         }
     }
 
+    /**
+     * Mark every loaded entity as saved, so only later changes are written back
+     */
+    private void clearDirtyFlags() {
+        for (Resident resident : ResidentManager.getInstance().getResidents().values()) {
+            resident.clearDirty();
+        }
+        for (Town town : TownManager.getInstance().getTowns().values()) {
+            town.clearDirty();
+        }
+        for (Nation nation : NationManager.getInstance().getNations().values()) {
+            nation.clearDirty();
+        }
+        for (Claim claim : ClaimManager.getInstance().getClaims().values()) {
+            claim.clearDirty();
+            for (Plot plot : claim.getPlots()) {
+                plot.clearDirty();
+            }
+        }
+    }
+
+    /**
+     * Check if the data has been loaded from the database.
+     * Until then listeners deny protected actions and commands reply that the plugin is loading.
+     *
+     * @return true once every loaded entity is in the managers
+     */
+    public boolean isDataLoaded() {
+        return dataLoaded;
+    }
+
+    /**
+     * Check if every load stage finished and the data was published. Stays true during shutdown,
+     * when the readiness gate is already closed again.
+     *
+     * @return true if the managers hold everything that is stored
+     */
+    @Override
+    public boolean isLoadFinished() {
+        return loadFinished;
+    }
+
     /**
      * Get the config manager
      *
@@ -240,74 +496,78 @@ public class EmpiresOfAlan extends JavaPlugin {
     }
 
     /**
-     * Get the SQLite manager
+     * Get the configuration the storage settings are read from
      *
-     * @return The SQLite manager
+     * @return The main configuration
      */
-    public SQLiteManager getSQLiteManager() {
-        return sqliteManager;
+    @Override
+    public FileConfiguration getStorageConfig() {
+        return configManager.getConfig();
     }
 
     /**
-     * Get the async executor
+     * Get the SQLite manager
      *
-     * @return The async executor
+     * @return The SQLite manager, or null with another backend
      */
-    public AsyncExecutor getAsyncExecutor() {
-        return asyncExecutor;
+    @Override
+    public SQLiteManager getSQLiteManager() {
+        return storage instanceof SQLiteStorageProvider ? ((SQLiteStorageProvider) storage).getSQLiteManager() : null;
     }
 
     /**
-     * Get the Vault integration
+     * Get the database writer
      *
-     * @return The VaultIntegration instance
+     * @return The database writer, or null with another backend
      */
-    public VaultIntegration getVaultIntegration() {
-        return vaultIntegration;
+    @Override
+    public DatabaseWriter getDatabaseWriter() {
+        return storage instanceof SQLiteStorageProvider ? ((SQLiteStorageProvider) storage).getDatabaseWriter() : null;
     }
 
     /**
-     * Get the plugin API
+     * Get the storage backend
      *
-     * @return The API instance
+     * @return The storage provider
      */
-    public EmpiresOfAlanAPI getAPI() {
-        return api;
+    public StorageProvider getStorage() {
+        return storage;
     }
 
     /**
-     * Get the Resident DAO
+     * Get the mutation journal
      *
-     * @return The ResidentDAO instance
+     * @return The mutation journal
      */
-    public ResidentDAO getResidentDAO() {
-        return residentDAO;
+    public MutationJournal getJournal() {
+        return journal;
     }
 
     /**
-     * Get the Town DAO
+     * Get the async executor
      *
-     * @return The TownDAO instance
+     * @return The async executor
      */
-    public TownDAO getTownDAO() {
-        return townDAO;
+    @Override
+    public AsyncExecutor getAsyncExecutor() {
+        return asyncExecutor;
     }
 
     /**
-     * Get the Nation DAO
+     * Get the Vault integration
      *
-     * @return The NationDAO instance
+     * @return The VaultIntegration instance
      */
-    public NationDAO getNationDAO() {
-        return nationDAO;
+    public VaultIntegration getVaultIntegration() {
+        return vaultIntegration;
     }
 
     /**
-     * Get the Claim DAO
+     * Get the plugin API
      *
-     * @return The ClaimDAO instance
+     * @return The API instance
      */
-    public ClaimDAO getClaimDAO() {
-        return claimDAO;
+    public EmpiresOfAlanAPI getAPI() {
+        return api;
     }
-}
\ No newline at end of file
+}
@@ -5,6 +5,8 @@ import com.alan.empiresOfAlan.events.claim.ClaimAddedEvent;
 import com.alan.empiresOfAlan.events.claim.ClaimRemovedEvent;
 import com.alan.empiresOfAlan.events.nation.*;
 import com.alan.empiresOfAlan.events.town.*;
+import com.alan.empiresOfAlan.index.ClaimSnapshot;
+import com.alan.empiresOfAlan.index.TownTerritory;
 import com.alan.empiresOfAlan.managers.*;
 import com.alan.empiresOfAlan.model.*;
 import com.alan.empiresOfAlan.model.bank.BankAccount;
@@ -14,16 +16,24 @@ import com.alan.empiresOfAlan.model.enums.TownRole;
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.PluginManager;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
  * Public API for the EmpiresOfAlan plugin
+ * <p>
+ * Methods read the live plugin state and must be called from the main thread, except the claim
+ * lookups and flag checks that only need claim data: off the main thread those answer from
+ * {@link #getClaimSnapshot()}. Methods that return a {@link Claim} or check a player's
+ * permissions stay main-thread only; other threads should use the snapshot.
  */
 public class EmpiresOfAlanAPI {
     private static EmpiresOfAlanAPI instance;
@@ -67,6 +77,10 @@ public class EmpiresOfAlanAPI {
         return TaxManager.getInstance();
     }
 
+    public PermissionManager getPermissionManager() {
+        return PermissionManager.getInstance();
+    }
+
     // Resident Methods
     public Resident getResident(UUID uuid) {
         return getResidentManager().getResident(uuid);
@@ -80,6 +94,14 @@ public class EmpiresOfAlanAPI {
         return getResidentManager().getResident(playerName);
     }
 
+    public CompletableFuture<Resident> getResidentAsync(UUID uuid) {
+        return getResidentManager().getResidentAsync(uuid);
+    }
+
+    public CompletableFuture<Resident> getResidentAsync(String playerName) {
+        return getResidentManager().getResidentAsync(playerName);
+    }
+
     // Town Methods
     public Town getTown(UUID uuid) {
         return getTownManager().getTown(uuid);
@@ -125,47 +147,217 @@ public class EmpiresOfAlanAPI {
         return getClaimManager().getClaim(uuid);
     }
 
+    /**
+     * Get the claim in a chunk. Main thread only; other threads use
+     * {@link ClaimSnapshot#getClaimAtChunk} on {@link #getClaimSnapshot()}.
+     *
+     * @param chunk The chunk
+     * @return The claim or null if unclaimed
+     */
     public Claim getClaim(Chunk chunk) {
         return getClaimManager().getClaimAt(chunk);
     }
 
     public boolean isClaimed(Chunk chunk) {
+        if (!Bukkit.isPrimaryThread()) {
+            return getClaimSnapshot().getClaimAtChunk(chunk.getWorld().getName(), chunk.getX(), chunk.getZ()) != null;
+        }
         return getClaimManager().isClaimed(chunk);
     }
 
     public UUID getTownAt(Chunk chunk) {
+        if (!Bukkit.isPrimaryThread()) {
+            ClaimSnapshot.Entry entry = getClaimSnapshot().getClaimAtChunk(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
+            return entry != null ? entry.getTownId() : null;
+        }
         return getClaimManager().getTownAt(chunk);
     }
 
+    /**
+     * Get the claim at block coordinates. Main thread only; other threads use
+     * {@link ClaimSnapshot#getClaimAt} on {@link #getClaimSnapshot()}.
+     *
+     * @param world The world
+     * @param blockX Block X
+     * @param blockZ Block Z
+     * @return The claim or null if unclaimed
+     */
+    public Claim getClaimAt(World world, int blockX, int blockZ) {
+        return getClaimManager().getClaimAt(world, blockX, blockZ);
+    }
+
+    /**
+     * Get the claim at block coordinates. Main thread only; other threads use
+     * {@link ClaimSnapshot#getClaimAt} on {@link #getClaimSnapshot()}.
+     *
+     * @param worldName World name
+     * @param blockX Block X
+     * @param blockZ Block Z
+     * @return The claim or null if unclaimed
+     */
+    public Claim getClaimAt(String worldName, int blockX, int blockZ) {
+        return getClaimManager().getClaimAt(worldName, blockX, blockZ);
+    }
+
+    public boolean isClaimed(World world, int blockX, int blockZ) {
+        if (!Bukkit.isPrimaryThread()) {
+            return getClaimSnapshot().isClaimed(world.getName(), blockX, blockZ);
+        }
+        return getClaimManager().isClaimed(world, blockX, blockZ);
+    }
+
+    public UUID getTownAt(World world, int blockX, int blockZ) {
+        if (!Bukkit.isPrimaryThread()) {
+            return getClaimSnapshot().getTownAt(world.getName(), blockX, blockZ);
+        }
+        return getClaimManager().getTownAt(world, blockX, blockZ);
+    }
+
+    /**
+     * Get an immutable view of every claim that can be read from any thread.
+     * It reflects claim changes from the previous server tick at the latest.
+     *
+     * @return The latest claim snapshot
+     */
+    public ClaimSnapshot getClaimSnapshot() {
+        return getClaimManager().getSnapshot();
+    }
+
     public Map<UUID, Claim> getAllClaims() {
         return getClaimManager().getAllClaims();
     }
 
+    // Spatial Query Methods
+    public List<Claim> claimsInBox(World world, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+        return getClaimManager().claimsInBox(world.getName(), minChunkX, minChunkZ, maxChunkX, maxChunkZ);
+    }
+
+    public Set<UUID> townsWithinRadius(World world, int chunkX, int chunkZ, int radius) {
+        return getClaimManager().townsWithinRadius(world.getName(), chunkX, chunkZ, radius);
+    }
+
+    public Town nearestTown(World world, int chunkX, int chunkZ, int maxRadius) {
+        UUID townId = getClaimManager().nearestTown(world.getName(), chunkX, chunkZ, maxRadius);
+        return townId != null ? getTown(townId) : null;
+    }
+
+    // Territory Methods
+    public boolean isAdjacentToTerritory(UUID townId, World world, int chunkX, int chunkZ) {
+        TownTerritory territory = getClaimManager().getTerritory(townId);
+        return territory != null && territory.isAdjacent(world.getName(), chunkX, chunkZ);
+    }
+
+    public int getParcelCount(UUID townId) {
+        TownTerritory territory = getClaimManager().getTerritory(townId);
+        return territory != null ? territory.getParcelCount() : 0;
+    }
+
+    public boolean wouldUnclaimSplitTown(Claim claim) {
+        TownTerritory territory = getClaimManager().getTerritory(claim.getTownId());
+        return territory != null && territory.wouldSplit(claim.getWorldName(), claim.getX(), claim.getZ());
+    }
+
     // Permission Methods
+    public double getPermissionCacheHitRatio() {
+        return getPermissionManager().getHitRatio();
+    }
+
+    /**
+     * Check if a player can build in a chunk. Main thread only, since the answer depends on
+     * the player's town, nation and roles as well as the claim.
+     *
+     * @param chunk The chunk
+     * @param player The player
+     * @return true if the player can build
+     * @deprecated Ignores plots, so a plot owner outside the town is refused and a member is allowed
+     * on someone else's plot; use {@link #canBuild(World, int, int, Player)}
+     */
+    @Deprecated
     public boolean canBuild(Chunk chunk, Player player) {
         return getClaimManager().canBuild(chunk, player.getUniqueId());
     }
 
+    /**
+     * Check if a player can interact with blocks in a chunk. Main thread only.
+     *
+     * @param chunk The chunk
+     * @param player The player
+     * @return true if the player can interact
+     * @deprecated Ignores plots; use {@link #canInteract(World, int, int, Player)}
+     */
+    @Deprecated
     public boolean canInteract(Chunk chunk, Player player) {
         return getClaimManager().canInteract(chunk, player.getUniqueId());
     }
 
     public boolean isPvPAllowed(Chunk chunk) {
+        if (!Bukkit.isPrimaryThread()) {
+            return isFlagAllowed(getClaimSnapshot().getClaimAtChunk(chunk.getWorld().getName(), chunk.getX(), chunk.getZ()), ClaimFlag.PVP);
+        }
         return getClaimManager().isPvPAllowed(chunk);
     }
 
     public boolean areExplosionsAllowed(Chunk chunk) {
+        if (!Bukkit.isPrimaryThread()) {
+            return isFlagAllowed(getClaimSnapshot().getClaimAtChunk(chunk.getWorld().getName(), chunk.getX(), chunk.getZ()), ClaimFlag.EXPLOSIONS);
+        }
         return getClaimManager().areExplosionsAllowed(chunk);
     }
 
     public boolean isMobSpawningAllowed(Chunk chunk) {
+        if (!Bukkit.isPrimaryThread()) {
+            return isFlagAllowed(getClaimSnapshot().getClaimAtChunk(chunk.getWorld().getName(), chunk.getX(), chunk.getZ()), ClaimFlag.MOB_SPAWNING);
+        }
         return getClaimManager().isMobSpawningAllowed(chunk);
     }
 
     public boolean isFireSpreadAllowed(Chunk chunk) {
+        if (!Bukkit.isPrimaryThread()) {
+            return isFlagAllowed(getClaimSnapshot().getClaimAtChunk(chunk.getWorld().getName(), chunk.getX(), chunk.getZ()), ClaimFlag.FIRE_SPREAD);
+        }
         return getClaimManager().isFireSpreadAllowed(chunk);
     }
 
+    public boolean canBuild(World world, int blockX, int blockZ, Player player) {
+        return getClaimManager().canBuild(world, blockX, blockZ, player.getUniqueId());
+    }
+
+    public boolean canInteract(World world, int blockX, int blockZ, Player player) {
+        return getClaimManager().canInteract(world, blockX, blockZ, player.getUniqueId());
+    }
+
+    public boolean isPvPAllowed(World world, int blockX, int blockZ) {
+        if (!Bukkit.isPrimaryThread()) {
+            return isFlagAllowed(getClaimSnapshot().getClaimAt(world.getName(), blockX, blockZ), ClaimFlag.PVP);
+        }
+        return getClaimManager().isPvPAllowed(world, blockX, blockZ);
+    }
+
+    public boolean areExplosionsAllowed(World world, int blockX, int blockZ) {
+        if (!Bukkit.isPrimaryThread()) {
+            return isFlagAllowed(getClaimSnapshot().getClaimAt(world.getName(), blockX, blockZ), ClaimFlag.EXPLOSIONS);
+        }
+        return getClaimManager().areExplosionsAllowed(world, blockX, blockZ);
+    }
+
+    public boolean isMobSpawningAllowed(World world, int blockX, int blockZ) {
+        if (!Bukkit.isPrimaryThread()) {
+            return isFlagAllowed(getClaimSnapshot().getClaimAt(world.getName(), blockX, blockZ), ClaimFlag.MOB_SPAWNING);
+        }
+        return getClaimManager().isMobSpawningAllowed(world, blockX, blockZ);
+    }
+
+    public boolean isFireSpreadAllowed(World world, int blockX, int blockZ) {
+        if (!Bukkit.isPrimaryThread()) {
+            return isFlagAllowed(getClaimSnapshot().getClaimAt(world.getName(), blockX, blockZ), ClaimFlag.FIRE_SPREAD);
+        }
+        return getClaimManager().isFireSpreadAllowed(world, blockX, blockZ);
+    }
+
+    private boolean isFlagAllowed(ClaimSnapshot.Entry entry, ClaimFlag flag) {
+        return entry == null || entry.getFlag(flag); // Unclaimed chunks allow everything
+    }
+
     // Economy Methods
     public boolean depositToTownBank(UUID townId, double amount) {
         return getTownManager().depositToBank(townId, amount);
@@ -32,6 +32,13 @@ public abstract class BaseCommand implements CommandExecutor, TabCompleter {
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        // Nothing to work with until the data is loaded
+        if (!plugin.isDataLoaded()) {
+            sender.sendMessage(configManager.getMessage("general.loading",
+                    "§cEmpires of Alan is still loading its data, please try again in a moment."));
+            return true;
+        }
+
         // If no args, show help
         if (args.length == 0) {
             showHelp(sender);
@@ -75,6 +82,10 @@ public abstract class BaseCommand implements CommandExecutor, TabCompleter {
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
         List<String> completions = new ArrayList<>();
 
+        if (!plugin.isDataLoaded()) {
+            return completions;
+        }
+
         if (args.length == 1) {
             // Complete subcommand names
             String partialName = args[0].toLowerCase();
@@ -16,6 +16,7 @@ public class TownCommand extends BaseCommand {
         subCommands.put("delete", new TownDeleteCommand(plugin));
         subCommands.put("claim", new TownClaimCommand(plugin));
         subCommands.put("unclaim", new TownUnclaimCommand(plugin));
+        subCommands.put("plot", new TownPlotCommand(plugin));
         subCommands.put("promote", new TownPromoteCommand(plugin));
         subCommands.put("demote", new TownDemoteCommand(plugin));
         subCommands.put("spawn", new TownSpawnCommand(plugin));
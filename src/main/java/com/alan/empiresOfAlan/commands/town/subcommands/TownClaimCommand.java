@@ -5,14 +5,20 @@ import com.alan.empiresOfAlan.commands.SubCommand;
 import com.alan.empiresOfAlan.managers.ClaimManager;
 import com.alan.empiresOfAlan.managers.ResidentManager;
 import com.alan.empiresOfAlan.managers.TownManager;
+import com.alan.empiresOfAlan.managers.VisualizationManager;
 import com.alan.empiresOfAlan.model.Claim;
 import com.alan.empiresOfAlan.model.Resident;
 import com.alan.empiresOfAlan.model.Town;
+import com.alan.empiresOfAlan.model.enums.RegionShape;
 import com.alan.empiresOfAlan.model.enums.TownRole;
 import org.bukkit.Chunk;
+import org.bukkit.Location;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class TownClaimCommand extends SubCommand {
 
     public TownClaimCommand(EmpiresOfAlan plugin) {
@@ -61,6 +67,11 @@ public class TownClaimCommand extends SubCommand {
             return false;
         }
 
+        // Claim a whole region: /town claim <rect|circle> <radius>
+        if (args.length > 0) {
+            return claimRegion(player, town, args);
+        }
+
         // Claim the chunk with cost
         Chunk chunk = player.getLocation().getChunk();
         ClaimManager claimManager = ClaimManager.getInstance();
@@ -81,26 +92,108 @@ public class TownClaimCommand extends SubCommand {
                         "&aChunk claimed for town: &e{0}")
                 .replace("{0}", town.getName()));
 
-        // Visualize the claim if enabled
-        if (configManager.getConfig().getBoolean("claims.visualization.enabled", true)) {
-            claimManager.visualizeClaim(chunk);
+        // Visualize the town border if enabled
+        showBorder(player, town);
+
+        return true;
+    }
+
+    /**
+     * Claim every unclaimed chunk of a region centered on the player's chunk
+     *
+     * @param player The player
+     * @param town The player's town
+     * @param args Command arguments (shape and radius)
+     * @return true if at least one chunk was claimed
+     */
+    private boolean claimRegion(Player player, Town town, String[] args) {
+        RegionShape shape = RegionShape.getById(args[0]);
+        if (shape == null || args.length < 2) {
+            sendUsage(player);
+            return false;
+        }
+
+        int maxRadius = configManager.getConfig().getInt("chunk-claim.max-region-radius", 5);
+        int radius;
+        try {
+            radius = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            radius = -1;
+        }
+
+        if (radius < 1 || radius > maxRadius) {
+            player.sendMessage(configManager.getMessage("claims.region-invalid-radius",
+                            "&cRadius must be between &e1 &cand &e{0}&c.")
+                    .replace("{0}", String.valueOf(maxRadius)));
+            return false;
+        }
+
+        // Work from block coordinates so the surrounding chunks are never loaded
+        Location location = player.getLocation();
+        ClaimManager claimManager = ClaimManager.getInstance();
+        List<Claim> claims = claimManager.claimRegionWithCost(player.getWorld(),
+                location.getBlockX() >> 4, location.getBlockZ() >> 4, radius, shape, town.getId(), player);
+
+        if (claims == null) {
+            // Limit and cost messages are sent in claimRegionWithCost
+            return false;
+        }
+
+        if (claims.isEmpty()) {
+            player.sendMessage(configManager.getMessage("claims.region-nothing-to-claim",
+                    "&cEvery chunk in this region is already claimed."));
+            return false;
+        }
+
+        player.sendMessage(configManager.getMessage("claims.region-claimed",
+                        "&aClaimed &e{0} &achunks for town: &e{1}")
+                .replace("{0}", String.valueOf(claims.size()))
+                .replace("{1}", town.getName()));
+
+        showBorder(player, town);
+        return true;
+    }
+
+    /**
+     * Show the town border to the player if visualization is enabled
+     *
+     * @param player The player
+     * @param town The town
+     */
+    private void showBorder(Player player, Town town) {
+        if (VisualizationManager.getInstance().show(player, town.getId())) {
             int duration = configManager.getConfig().getInt("claims.visualization.duration", 10);
             player.sendMessage(configManager.getMessage("claims.visualize-started",
                             "&aShowing claim borders for &e{0} &aseconds.")
                     .replace("{0}", String.valueOf(duration)));
         }
+    }
 
-        return true;
+    @Override
+    public List<String> tabComplete(CommandSender sender, String[] args) {
+        List<String> completions = new ArrayList<>();
+
+        if (args.length == 1) {
+            String partial = args[0].toLowerCase();
+
+            for (RegionShape shape : RegionShape.values()) {
+                if (shape.getId().startsWith(partial)) {
+                    completions.add(shape.getId());
+                }
+            }
+        }
+
+        return completions;
     }
 
     @Override
     public String getDescription() {
-        return "Claim the chunk you are standing in for your town";
+        return "Claim the chunk you are standing in, or a region around it, for your town";
     }
 
     @Override
     public String getUsage() {
-        return "/town claim";
+        return "/town claim [rect|circle <radius>]";
     }
 
     @Override
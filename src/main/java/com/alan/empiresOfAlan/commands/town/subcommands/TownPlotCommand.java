@@ -0,0 +1,297 @@
+package com.alan.empiresOfAlan.commands.town.subcommands;
+
+import com.alan.empiresOfAlan.EmpiresOfAlan;
+import com.alan.empiresOfAlan.commands.SubCommand;
+import com.alan.empiresOfAlan.managers.ClaimManager;
+import com.alan.empiresOfAlan.managers.ResidentManager;
+import com.alan.empiresOfAlan.model.Claim;
+import com.alan.empiresOfAlan.model.Plot;
+import com.alan.empiresOfAlan.model.Resident;
+import com.alan.empiresOfAlan.model.enums.ClaimFlag;
+import com.alan.empiresOfAlan.model.enums.TownRole;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TownPlotCommand extends SubCommand {
+    private static final List<String> ACTIONS = Arrays.asList("create", "remove", "setowner", "flag", "info");
+
+    public TownPlotCommand(EmpiresOfAlan plugin) {
+        super(plugin);
+    }
+
+    @Override
+    public boolean execute(CommandSender sender, String[] args) {
+        Player player = getPlayer(sender);
+        if (player == null) {
+            return false;
+        }
+
+        if (args.length < 1) {
+            sendUsage(sender);
+            return false;
+        }
+
+        Resident resident = ResidentManager.getInstance().getResident(player.getUniqueId());
+        if (resident == null || !resident.hasTown()) {
+            player.sendMessage(configManager.getMessage("towns.not-in-town",
+                    "&cYou are not in a town."));
+            return false;
+        }
+
+        Claim claim = ClaimManager.getInstance().getClaimAt(player.getLocation().getChunk());
+        if (claim == null || !claim.getTownId().equals(resident.getTownId())) {
+            player.sendMessage(configManager.getMessage("claims.not-owned",
+                    "&cThis chunk is not owned by your town."));
+            return false;
+        }
+
+        String action = args[0].toLowerCase();
+        switch (action) {
+            case "create":
+                return createPlot(player, resident, claim, args);
+            case "remove":
+                return removePlot(player, resident, claim);
+            case "setowner":
+                return setOwner(player, resident, claim, args);
+            case "flag":
+                return setFlag(player, resident, claim, args);
+            case "info":
+                return showInfo(player, claim);
+            default:
+                sendUsage(sender);
+                return false;
+        }
+    }
+
+    /**
+     * Create a plot from local block bounds, or the 8x8 quarter of the chunk the player stands in
+     */
+    private boolean createPlot(Player player, Resident resident, Claim claim, String[] args) {
+        if (!hasRole(player, resident)) {
+            return false;
+        }
+
+        int minX, minZ, maxX, maxZ;
+        if (args.length >= 5) {
+            try {
+                int x1 = Integer.parseInt(args[1]);
+                int z1 = Integer.parseInt(args[2]);
+                int x2 = Integer.parseInt(args[3]);
+                int z2 = Integer.parseInt(args[4]);
+                minX = Math.min(x1, x2);
+                minZ = Math.min(z1, z2);
+                maxX = Math.max(x1, x2);
+                maxZ = Math.max(z1, z2);
+            } catch (NumberFormatException e) {
+                sendUsage(player);
+                return false;
+            }
+
+            if (minX < 0 || minZ < 0 || maxX > 15 || maxZ > 15) {
+                player.sendMessage(configManager.getMessage("plots.invalid-bounds",
+                        "&cPlot bounds must be between &e0 &cand &e15 &cinside the chunk."));
+                return false;
+            }
+        } else {
+            Location location = player.getLocation();
+            minX = location.getBlockX() & 8;
+            minZ = location.getBlockZ() & 8;
+            maxX = minX + 7;
+            maxZ = minZ + 7;
+        }
+
+        Plot plot = ClaimManager.getInstance().createPlot(claim, minX, minZ, maxX, maxZ);
+        if (plot == null) {
+            player.sendMessage(configManager.getMessage("plots.overlaps",
+                    "&cThat area overlaps another plot."));
+            return false;
+        }
+
+        player.sendMessage(configManager.getMessage("plots.created", "&aCreated a &e{0}x{1} &aplot.")
+                .replace("{0}", String.valueOf(maxX - minX + 1))
+                .replace("{1}", String.valueOf(maxZ - minZ + 1)));
+        return true;
+    }
+
+    private boolean removePlot(Player player, Resident resident, Claim claim) {
+        if (!hasRole(player, resident)) {
+            return false;
+        }
+
+        Plot plot = getStandingPlot(player, claim);
+        if (plot == null) {
+            return false;
+        }
+
+        ClaimManager.getInstance().removePlot(claim, plot.getId());
+        player.sendMessage(configManager.getMessage("plots.removed", "&aPlot removed."));
+        return true;
+    }
+
+    private boolean setOwner(Player player, Resident resident, Claim claim, String[] args) {
+        if (args.length < 2) {
+            sendUsage(player);
+            return false;
+        }
+
+        if (!hasRole(player, resident)) {
+            return false;
+        }
+
+        Plot plot = getStandingPlot(player, claim);
+        if (plot == null) {
+            return false;
+        }
+
+        if (args[1].equalsIgnoreCase("none")) {
+            ClaimManager.getInstance().setPlotOwner(plot, null);
+            player.sendMessage(configManager.getMessage("plots.owner-cleared", "&aPlot returned to the town."));
+            return true;
+        }
+
+        OfflinePlayer target = Bukkit.getPlayerExact(args[1]);
+        if (target == null) {
+            for (OfflinePlayer offlinePlayer : Bukkit.getOfflinePlayers()) {
+                if (offlinePlayer.getName() != null && offlinePlayer.getName().equalsIgnoreCase(args[1])) {
+                    target = offlinePlayer;
+                    break;
+                }
+            }
+        }
+
+        if (target == null) {
+            player.sendMessage(configManager.getMessage("general.player-not-found",
+                    "&cPlayer not found."));
+            return false;
+        }
+
+        ClaimManager.getInstance().setPlotOwner(plot, target.getUniqueId());
+        player.sendMessage(configManager.getMessage("plots.owner-set", "&aPlot owner set to &e{0}&a.")
+                .replace("{0}", target.getName() != null ? target.getName() : args[1]));
+        return true;
+    }
+
+    private boolean setFlag(Player player, Resident resident, Claim claim, String[] args) {
+        if (args.length < 3) {
+            sendUsage(player);
+            return false;
+        }
+
+        Plot plot = getStandingPlot(player, claim);
+        if (plot == null) {
+            return false;
+        }
+
+        // Plot owners manage their own flags, everyone else needs Knight+
+        if (!player.getUniqueId().equals(plot.getOwnerId()) && !hasRole(player, resident)) {
+            return false;
+        }
+
+        ClaimFlag flag = ClaimFlag.getById(args[1].toLowerCase());
+        if (flag == null) {
+            player.sendMessage(configManager.getMessage("plots.invalid-flag", "&cUnknown flag: &e{0}")
+                    .replace("{0}", args[1]));
+            return false;
+        }
+
+        boolean value = Boolean.parseBoolean(args[2]);
+        ClaimManager.getInstance().setPlotFlag(plot, flag, value);
+        player.sendMessage(configManager.getMessage("plots.flag-set", "&aPlot flag &e{0} &aset to &e{1}")
+                .replace("{0}", flag.getId())
+                .replace("{1}", String.valueOf(value)));
+        return true;
+    }
+
+    private boolean showInfo(Player player, Claim claim) {
+        Plot plot = getStandingPlot(player, claim);
+        if (plot == null) {
+            return false;
+        }
+
+        String owner = "Town";
+        if (plot.hasOwner()) {
+            OfflinePlayer ownerPlayer = Bukkit.getOfflinePlayer(plot.getOwnerId());
+            owner = ownerPlayer.getName() != null ? ownerPlayer.getName() : plot.getOwnerId().toString();
+        }
+
+        player.sendMessage(configManager.getMessage("plots.info", "&6Plot &e{0}x{1} &6at &e{2},{3} &6owned by &e{4}")
+                .replace("{0}", String.valueOf(plot.getMaxX() - plot.getMinX() + 1))
+                .replace("{1}", String.valueOf(plot.getMaxZ() - plot.getMinZ() + 1))
+                .replace("{2}", String.valueOf((claim.getX() << 4) + plot.getMinX()))
+                .replace("{3}", String.valueOf((claim.getZ() << 4) + plot.getMinZ()))
+                .replace("{4}", owner));
+        return true;
+    }
+
+    private Plot getStandingPlot(Player player, Claim claim) {
+        Location location = player.getLocation();
+        Plot plot = claim.getPlotAt(location.getBlockX(), location.getBlockZ());
+        if (plot == null) {
+            player.sendMessage(configManager.getMessage("plots.not-in-plot",
+                    "&cYou are not standing in a plot."));
+        }
+        return plot;
+    }
+
+    private boolean hasRole(Player player, Resident resident) {
+        if (!resident.hasTownPermission(TownRole.KNIGHT)) {
+            player.sendMessage(configManager.getMessage("towns.not-enough-permissions",
+                    "&cYou don't have enough permissions in your town."));
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> tabComplete(CommandSender sender, String[] args) {
+        List<String> completions = new ArrayList<>();
+
+        if (args.length == 1) {
+            for (String action : ACTIONS) {
+                if (action.startsWith(args[0].toLowerCase())) {
+                    completions.add(action);
+                }
+            }
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("flag")) {
+            for (ClaimFlag flag : ClaimFlag.values()) {
+                if (flag.getId().startsWith(args[1].toLowerCase())) {
+                    completions.add(flag.getId());
+                }
+            }
+        } else if (args.length == 3 && args[0].equalsIgnoreCase("flag")) {
+            completions.add("true");
+            completions.add("false");
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("setowner")) {
+            completions.add("none");
+            for (Player online : Bukkit.getOnlinePlayers()) {
+                if (online.getName().toLowerCase().startsWith(args[1].toLowerCase())) {
+                    completions.add(online.getName());
+                }
+            }
+        }
+
+        return completions;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Manage plots inside your town's chunks";
+    }
+
+    @Override
+    public String getUsage() {
+        return "/town plot <create [x1 z1 x2 z2]|remove|setowner <player|none>|flag <flag> <true|false>|info>";
+    }
+
+    @Override
+    public String getPermission() {
+        return "empiresofalan.town.plot";
+    }
+}
@@ -6,11 +6,16 @@ import com.alan.empiresOfAlan.managers.ClaimManager;
 import com.alan.empiresOfAlan.managers.ResidentManager;
 import com.alan.empiresOfAlan.model.Claim;
 import com.alan.empiresOfAlan.model.Resident;
+import com.alan.empiresOfAlan.model.enums.RegionShape;
 import com.alan.empiresOfAlan.model.enums.TownRole;
 import org.bukkit.Chunk;
+import org.bukkit.Location;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class TownUnclaimCommand extends SubCommand {
 
     public TownUnclaimCommand(EmpiresOfAlan plugin) {
@@ -41,6 +46,11 @@ public class TownUnclaimCommand extends SubCommand {
             return false;
         }
 
+        // Unclaim a whole region: /town unclaim <rect|circle> <radius>
+        if (args.length > 0) {
+            return unclaimRegion(player, args);
+        }
+
         // Unclaim the chunk
         Chunk chunk = player.getLocation().getChunk();
         ClaimManager claimManager = ClaimManager.getInstance();
@@ -59,6 +69,13 @@ public class TownUnclaimCommand extends SubCommand {
             return false;
         }
 
+        // Check if unclaiming would split the town's territory
+        if (claimManager.wouldSplitTerritory(claim)) {
+            player.sendMessage(configManager.getMessage("claims.would-split",
+                    "§cUnclaiming this would split your town's territory."));
+            return false;
+        }
+
         if (claimManager.unclaimChunk(chunk, player)) {
             player.sendMessage(configManager.getMessage("claims.unclaimed",
                     "§aChunk unclaimed."));
@@ -70,14 +87,82 @@ public class TownUnclaimCommand extends SubCommand {
         }
     }
 
+    /**
+     * Unclaim every chunk of a region centered on the player's chunk that belongs to their town
+     *
+     * @param player The player
+     * @param args Command arguments (shape and radius)
+     * @return true if at least one chunk was unclaimed
+     */
+    private boolean unclaimRegion(Player player, String[] args) {
+        RegionShape shape = RegionShape.getById(args[0]);
+        if (shape == null || args.length < 2) {
+            sendUsage(player);
+            return false;
+        }
+
+        int maxRadius = configManager.getConfig().getInt("chunk-claim.max-region-radius", 5);
+        int radius;
+        try {
+            radius = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            radius = -1;
+        }
+
+        if (radius < 1 || radius > maxRadius) {
+            player.sendMessage(configManager.getMessage("claims.region-invalid-radius",
+                            "§cRadius must be between §e1 §cand §e{0}§c.")
+                    .replace("{0}", String.valueOf(maxRadius)));
+            return false;
+        }
+
+        // Work from block coordinates so the surrounding chunks are never loaded
+        Location location = player.getLocation();
+        List<Claim> claims = ClaimManager.getInstance().unclaimRegion(player.getWorld(),
+                location.getBlockX() >> 4, location.getBlockZ() >> 4, radius, shape, player);
+
+        if (claims == null) {
+            // Contiguity messages are sent in unclaimRegion
+            return false;
+        }
+
+        if (claims.isEmpty()) {
+            player.sendMessage(configManager.getMessage("claims.region-nothing-to-unclaim",
+                    "§cYour town owns no chunks in this region."));
+            return false;
+        }
+
+        player.sendMessage(configManager.getMessage("claims.region-unclaimed",
+                        "§aUnclaimed §e{0} §achunks.")
+                .replace("{0}", String.valueOf(claims.size())));
+        return true;
+    }
+
+    @Override
+    public List<String> tabComplete(CommandSender sender, String[] args) {
+        List<String> completions = new ArrayList<>();
+
+        if (args.length == 1) {
+            String partial = args[0].toLowerCase();
+
+            for (RegionShape shape : RegionShape.values()) {
+                if (shape.getId().startsWith(partial)) {
+                    completions.add(shape.getId());
+                }
+            }
+        }
+
+        return completions;
+    }
+
     @Override
     public String getDescription() {
-        return "Unclaim the chunk you are standing in";
+        return "Unclaim the chunk you are standing in, or your town's chunks in a region around it";
     }
 
     @Override
     public String getUsage() {
-        return "/town unclaim";
+        return "/town unclaim [rect|circle <radius>]";
     }
 
     @Override
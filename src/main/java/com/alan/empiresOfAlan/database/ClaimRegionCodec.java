@@ -0,0 +1,133 @@
+package com.alan.empiresOfAlan.database;
+
+import com.alan.empiresOfAlan.index.RegionTile;
+import com.alan.empiresOfAlan.model.Claim;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Packs the claims of one 32x32 chunk region into a single blob for the claim_regions table.
+ * <p>
+ * Layout (big-endian): format version byte, owner palette size (unsigned short) followed by one
+ * 16-byte town id per entry, a 1024-bit occupancy bitmap (bit = localZ * 32 + localX), then for
+ * each occupied chunk in bit order its palette index (unsigned short), flag mask (int) and 16-byte claim id.
+ */
+public final class ClaimRegionCodec {
+    private static final byte FORMAT_VERSION = 1;
+    private static final int AREA = RegionTile.SIZE * RegionTile.SIZE;
+    private static final int BITMAP_LONGS = AREA / 64;
+    private static final int ENTRY_BYTES = 2 + 4 + 16;
+
+    private ClaimRegionCodec() {
+    }
+
+    /**
+     * Encode the claims of a region
+     *
+     * @param claims Claims that all lie in the same region
+     * @return The blob
+     */
+    public static byte[] encode(List<Claim> claims) {
+        Claim[] slots = new Claim[AREA];
+        long[] occupancy = new long[BITMAP_LONGS];
+        Map<UUID, Integer> paletteIndex = new HashMap<>(4);
+        List<UUID> palette = new ArrayList<>(4);
+
+        for (Claim claim : claims) {
+            int slot = slot(claim.getX(), claim.getZ());
+            slots[slot] = claim;
+            occupancy[slot >>> 6] |= 1L << slot;
+            if (!paletteIndex.containsKey(claim.getTownId())) {
+                paletteIndex.put(claim.getTownId(), palette.size());
+                palette.add(claim.getTownId());
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 2 + palette.size() * 16 + BITMAP_LONGS * 8 + claims.size() * ENTRY_BYTES);
+        buffer.put(FORMAT_VERSION);
+        buffer.putShort((short) palette.size());
+        for (UUID townId : palette) {
+            putUUID(buffer, townId);
+        }
+        for (long word : occupancy) {
+            buffer.putLong(word);
+        }
+        for (Claim claim : slots) {
+            if (claim != null) {
+                buffer.putShort((short) (int) paletteIndex.get(claim.getTownId()));
+                buffer.putInt(claim.getFlagMask());
+                putUUID(buffer, claim.getId());
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decode the claims of a region
+     *
+     * @param worldName World the region belongs to
+     * @param regionX Region X (chunk X >> 5)
+     * @param regionZ Region Z (chunk Z >> 5)
+     * @param data The blob
+     * @return The claims, with their flags set
+     * @throws IllegalArgumentException if the blob has an unknown format
+     */
+    public static List<Claim> decode(String worldName, int regionX, int regionZ, byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        byte version = buffer.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unknown claim region format " + version);
+        }
+
+        UUID[] palette = new UUID[buffer.getShort() & 0xFFFF];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = getUUID(buffer);
+        }
+
+        long[] occupancy = new long[BITMAP_LONGS];
+        int count = 0;
+        for (int i = 0; i < BITMAP_LONGS; i++) {
+            occupancy[i] = buffer.getLong();
+            count += Long.bitCount(occupancy[i]);
+        }
+
+        List<Claim> claims = new ArrayList<>(count);
+        int baseX = regionX << RegionTile.SHIFT;
+        int baseZ = regionZ << RegionTile.SHIFT;
+        for (int i = 0; i < BITMAP_LONGS; i++) {
+            long word = occupancy[i];
+            while (word != 0) {
+                int slot = (i << 6) | Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+
+                UUID townId = palette[buffer.getShort() & 0xFFFF];
+                int flags = buffer.getInt();
+                UUID claimId = getUUID(buffer);
+
+                Claim claim = new Claim(claimId, worldName, baseX + (slot & RegionTile.MASK),
+                        baseZ + (slot >>> RegionTile.SHIFT), townId);
+                claim.setFlagMask(flags);
+                claims.add(claim);
+            }
+        }
+        return claims;
+    }
+
+    private static int slot(int chunkX, int chunkZ) {
+        return ((chunkZ & RegionTile.MASK) << RegionTile.SHIFT) | (chunkX & RegionTile.MASK);
+    }
+
+    private static void putUUID(ByteBuffer buffer, UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUUID(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -0,0 +1,401 @@
+package com.alan.empiresOfAlan.database;
+
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The single thread that performs every database write.
+ * DAOs queue writes keyed by table and primary key; a newer write for the same key replaces
+ * the pending one, so only the latest state of a row reaches the database. Each flush runs in
+ * one transaction on the writer connection and batches the queued statements per SQL text, on
+ * the connection's cached prepared statements. Batches run in the order their SQL text was first queued.
+ * A flush that changes claims also bumps the claim generation in storage_meta, in the same transaction.
+ */
+public class DatabaseWriter {
+    public static final String BUMP_CLAIM_GENERATION = "UPDATE storage_meta SET value = value + 1 WHERE name = 'claim_generation'";
+    private static final Set<String> CLAIM_TABLES = new HashSet<>(Arrays.asList("claims", "claim_regions"));
+
+    private final StorageHost plugin;
+    private final Object lock = new Object();
+    private final long flushDelay;
+    private final boolean logFlushes;
+    private final Thread thread;
+    private LinkedHashMap<String, Write> pending;
+    private boolean running;
+    private boolean flushing;
+    private boolean urgent;
+    private long claimSubmissions;
+
+    // Statistics
+    private volatile int lastFlushRows;
+    private volatile long lastFlushMillis;
+    private volatile long totalRows;
+    private volatile long flushCount;
+    private volatile long failedFlushes;
+
+    public DatabaseWriter(StorageHost plugin) {
+        this.plugin = plugin;
+        this.pending = new LinkedHashMap<>();
+        this.flushDelay = Math.max(0, plugin.getStorageConfig().getLong("persistence.flush-delay-ms", 500));
+        this.logFlushes = plugin.getStorageConfig().getBoolean("persistence.log-flushes", false);
+        this.thread = new Thread(this::run, "EmpiresOfAlan-DB-Writer");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Start the writer thread
+     */
+    public void start() {
+        synchronized (lock) {
+            running = true;
+        }
+        thread.start();
+    }
+
+    /**
+     * Queue a write, replacing any pending write for the same key
+     *
+     * @param write The write
+     */
+    public void submit(Write write) {
+        synchronized (lock) {
+            // Move the key to the end so the newest state is written in submission order
+            pending.remove(write.key);
+            pending.put(write.key, write);
+            if (CLAIM_TABLES.contains(write.table)) {
+                claimSubmissions++;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Get the number of writes waiting for the next flush
+     *
+     * @return The pending write count
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Get the number of claim writes queued since startup; if it has not changed, no claim was
+     * written in the meantime
+     *
+     * @return The claim write count
+     */
+    public long getClaimSubmissions() {
+        synchronized (lock) {
+            return claimSubmissions;
+        }
+    }
+
+    /**
+     * Flush right away and wait until every write queued so far is in the database
+     *
+     * @param timeoutMillis Maximum time to wait
+     * @return true if everything was flushed in time
+     */
+    public boolean awaitFlush(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (lock) {
+            urgent = true;
+            lock.notifyAll();
+            try {
+                while ((!pending.isEmpty() || flushing) && thread.isAlive()) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    lock.wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            return pending.isEmpty() && !flushing;
+        }
+    }
+
+    /**
+     * Flush the remaining writes and stop the writer thread. Everything still queued is written
+     * in one last transaction, after the flush that may be running.
+     *
+     * @param timeoutMillis Maximum time to wait for the last flush
+     * @return true if every write was flushed
+     */
+    public boolean shutdown(long timeoutMillis) {
+        long start = System.currentTimeMillis();
+        long rowsBefore = totalRows;
+        synchronized (lock) {
+            running = false;
+            urgent = true;
+            lock.notifyAll();
+        }
+
+        try {
+            thread.join(Math.max(1, timeoutMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        boolean drained = !thread.isAlive() && getPendingCount() == 0;
+        if (!drained) {
+            plugin.getLogger().severe("Database writer did not finish within " + (System.currentTimeMillis() - start)
+                    + " ms, " + getPendingCount() + " writes were not saved.");
+        } else {
+            plugin.getLogger().info("Flushed " + (totalRows - rowsBefore) + " rows at shutdown in "
+                    + (System.currentTimeMillis() - start) + " ms.");
+        }
+        return drained;
+    }
+
+    public int getLastFlushRows() {
+        return lastFlushRows;
+    }
+
+    public long getLastFlushMillis() {
+        return lastFlushMillis;
+    }
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * Get the number of flushes that were rolled back
+     *
+     * @return The failed flush count
+     */
+    public long getFailedFlushes() {
+        return failedFlushes;
+    }
+
+    private void run() {
+        while (true) {
+            LinkedHashMap<String, Write> batch;
+            synchronized (lock) {
+                try {
+                    while (running && pending.isEmpty()) {
+                        lock.wait();
+                    }
+                    if (pending.isEmpty()) {
+                        break; // Stopped and drained
+                    }
+
+                    // Give writes queued in the same burst a moment to join this transaction
+                    if (running && !urgent && flushDelay > 0) {
+                        lock.wait(flushDelay);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                flushing = true;
+                urgent = false;
+            }
+
+            try {
+                flush(batch);
+            } finally {
+                synchronized (lock) {
+                    flushing = false;
+                    lock.notifyAll();
+                }
+            }
+        }
+
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Write a batch of pending writes in a single transaction
+     */
+    private void flush(LinkedHashMap<String, Write> batch) {
+        long start = System.nanoTime();
+        int rows = 0;
+        boolean claims = false;
+
+        Map<String, PreparedStatement> order = new LinkedHashMap<>();
+        try (PooledConnection pooled = plugin.getSQLiteManager().borrowWrite()) {
+            Connection conn = pooled.getConnection();
+            conn.setAutoCommit(false);
+            try {
+                for (Write write : batch.values()) {
+                    claims |= CLAIM_TABLES.contains(write.table);
+                    for (int i = 0; i < write.sql.size(); i++) {
+                        String sql = write.sql.get(i);
+                        PreparedStatement stmt = order.get(sql);
+                        if (stmt == null) {
+                            stmt = pooled.prepare(sql);
+                            order.put(sql, stmt);
+                        }
+
+                        bind(stmt, write.params.get(i));
+                        stmt.addBatch();
+                        rows++;
+                    }
+                }
+
+                for (PreparedStatement stmt : order.values()) {
+                    stmt.executeBatch();
+                }
+                if (claims) {
+                    pooled.prepare(BUMP_CLAIM_GENERATION).executeUpdate();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                // Drop the half-built batches so the cached statements can be reused
+                for (PreparedStatement stmt : order.values()) {
+                    stmt.clearBatch();
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to flush " + batch.size() + " database writes: " + e.getMessage());
+            failedFlushes++;
+            for (Write write : batch.values()) {
+                write.failed();
+            }
+            requeue(batch);
+            return;
+        }
+
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        lastFlushRows = rows;
+        lastFlushMillis = millis;
+        totalRows += rows;
+        flushCount++;
+
+        if (logFlushes) {
+            plugin.getLogger().info("Flushed " + rows + " rows (" + batch.size() + " writes) in " + millis + " ms.");
+        }
+    }
+
+    /**
+     * Queue the failed writes that have no entity to mark dirty again, unless a newer write for
+     * the same key is already waiting. Nothing is retried once the writer is stopping.
+     */
+    private void requeue(LinkedHashMap<String, Write> batch) {
+        synchronized (lock) {
+            if (!running) {
+                return;
+            }
+            for (Write write : batch.values()) {
+                if (write.retry) {
+                    pending.putIfAbsent(write.key, write);
+                }
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement stmt, Object[] params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            Object value = params[i];
+            int index = i + 1;
+            if (value == null) {
+                stmt.setNull(index, Types.NULL);
+            } else if (value instanceof String) {
+                stmt.setString(index, (String) value);
+            } else if (value instanceof Integer) {
+                stmt.setInt(index, (Integer) value);
+            } else if (value instanceof Long) {
+                stmt.setLong(index, (Long) value);
+            } else if (value instanceof Double) {
+                stmt.setDouble(index, (Double) value);
+            } else if (value instanceof Float) {
+                stmt.setFloat(index, (Float) value);
+            } else if (value instanceof Boolean) {
+                stmt.setBoolean(index, (Boolean) value);
+            } else if (value instanceof byte[]) {
+                stmt.setBytes(index, (byte[]) value);
+            } else {
+                stmt.setString(index, value.toString());
+            }
+        }
+    }
+
+    /**
+     * The latest state of one row (or one group of link rows) as a list of statements.
+     * Values are captured when the write is built, so later changes need a new write.
+     */
+    public static final class Write {
+        private final String table;
+        private final String key;
+        private final Runnable onFailure;
+        private final List<String> sql;
+        private final List<Object[]> params;
+        private boolean retry;
+
+        /**
+         * Create a write
+         *
+         * @param table Table the write belongs to
+         * @param primaryKey Primary key of the row, writes with the same table and key are merged;
+         *                   compared by its string form, so pass UUIDs rather than their bytes
+         * @param onFailure Called on the writer thread if the flush fails, may be null
+         */
+        public Write(String table, Object primaryKey, Runnable onFailure) {
+            this.table = table;
+            this.key = table + ':' + primaryKey;
+            this.onFailure = onFailure;
+            this.sql = new ArrayList<>(2);
+            this.params = new ArrayList<>(2);
+        }
+
+        /**
+         * Add a statement to the write
+         *
+         * @param sql SQL text
+         * @param params Parameter values (String, Integer, Long, Double, Float, Boolean, byte[] or null;
+         *               anything else is written as its string form)
+         * @return This write
+         */
+        public Write add(String sql, Object... params) {
+            this.sql.add(sql);
+            this.params.add(params);
+            return this;
+        }
+
+        /**
+         * Queue the write again if its flush fails; for deletions, which leave no entity behind
+         * that a later save could write again
+         *
+         * @return This write
+         */
+        public Write retryOnFailure() {
+            this.retry = true;
+            return this;
+        }
+
+        private void failed() {
+            if (onFailure != null) {
+                onFailure.run();
+            }
+        }
+    }
+}
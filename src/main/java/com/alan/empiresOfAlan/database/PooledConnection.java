@@ -0,0 +1,94 @@
+package com.alan.empiresOfAlan.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A connection owned by {@link SQLiteManager} and lent to one user at a time, together with
+ * its prepared-statement cache. Closing it returns it to the manager; the physical connection
+ * stays open until the manager shuts down. Statements prepared during a borrow stay open until
+ * it ends; the least recently used ones beyond the cache size are closed when it is returned.
+ */
+public final class PooledConnection implements AutoCloseable {
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements;
+    private final int statementCacheSize;
+    private final Consumer<PooledConnection> release;
+
+    PooledConnection(Connection connection, int statementCacheSize, Consumer<PooledConnection> release) {
+        this.connection = connection;
+        this.statementCacheSize = statementCacheSize;
+        this.release = release;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true); // Access order, eldest first
+    }
+
+    /**
+     * Get the underlying connection. Do not close it.
+     *
+     * @return The connection
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Get a cached prepared statement for the SQL text, preparing it on first use.
+     * Parameters left over from the previous use are cleared. Do not close it.
+     *
+     * @param sql SQL text
+     * @return The prepared statement
+     * @throws SQLException if the statement cannot be prepared
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement stmt = statements.get(sql);
+        if (stmt == null || stmt.isClosed()) {
+            stmt = connection.prepareStatement(sql);
+            statements.put(sql, stmt);
+        } else {
+            stmt.clearParameters();
+        }
+        return stmt;
+    }
+
+    /**
+     * Return the connection to its manager
+     */
+    @Override
+    public void close() {
+        // Nothing uses the statements any more, so the cache can shrink back to its size
+        Iterator<PreparedStatement> eldest = statements.values().iterator();
+        while (statements.size() > statementCacheSize && eldest.hasNext()) {
+            closeQuietly(eldest.next());
+            eldest.remove();
+        }
+        release.accept(this);
+    }
+
+    /**
+     * Close the cached statements and the physical connection
+     */
+    void closePhysical() {
+        for (PreparedStatement stmt : statements.values()) {
+            closeQuietly(stmt);
+        }
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // Shutting down
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException ignored) {
+            // Evicted or shutting down
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package com.alan.empiresOfAlan.database;
 
-import com.alan.empiresOfAlan.EmpiresOfAlan;
+import com.alan.empiresOfAlan.database.migration.SchemaMigrator;
 import com.alan.empiresOfAlan.util.AsyncExecutor;
 
 import java.io.File;
@@ -10,15 +10,28 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class SQLiteManager {
-    private final EmpiresOfAlan plugin;
+    private static final long BORROW_TIMEOUT_SECONDS = 30;
+
+    private final StorageHost plugin;
     private final String dbFilePath;
-    private Connection connection;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final List<PooledConnection> readConnections = new ArrayList<>();
+    private BlockingQueue<PooledConnection> readPool;
+    private PooledConnection writeConnection;
+    private Connection connection; // The writer's physical connection, used for schema setup
     private AsyncExecutor asyncExecutor;
 
-    public SQLiteManager(EmpiresOfAlan plugin) {
+    public SQLiteManager(StorageHost plugin) {
         this.plugin = plugin;
         this.dbFilePath = new File(plugin.getDataFolder(), "database.db").getAbsolutePath();
         this.asyncExecutor = plugin.getAsyncExecutor();
@@ -27,158 +40,168 @@ public class SQLiteManager {
     /**
      * Initialize the database connection
      *
-     * @return CompletableFuture that completes when initialization is done
+     * @return CompletableFuture that completes when initialization is done, exceptionally if it failed
      */
     public CompletableFuture<Void> initialize() {
         return asyncExecutor.runAsync(() -> {
             try {
                 Class.forName("org.sqlite.JDBC");
-                connection = DriverManager.getConnection("jdbc:sqlite:" + dbFilePath);
-                createTables();
+                int statementCacheSize = plugin.getStorageConfig().getInt("database.statement-cache-size", 64);
+                int readConnectionCount = Math.max(1, plugin.getStorageConfig().getInt("database.read-connections", 3));
+
+                // One long-lived writer; WAL lets the readers run while it writes
+                connection = openConnection(false);
+                new SchemaMigrator(plugin.getLogger(), connection).migrate();
+                writeConnection = new PooledConnection(connection, statementCacheSize, pooled -> writeLock.unlock());
+
+                readPool = new ArrayBlockingQueue<>(readConnectionCount);
+                for (int i = 0; i < readConnectionCount; i++) {
+                    PooledConnection reader = new PooledConnection(openConnection(true), statementCacheSize, readPool::offer);
+                    readConnections.add(reader);
+                    readPool.offer(reader);
+                }
+
                 plugin.getLogger().info("Database connection established successfully.");
             } catch (ClassNotFoundException | SQLException e) {
                 plugin.getLogger().severe("Failed to initialize database: " + e.getMessage());
                 e.printStackTrace();
+                if (connection != null && writeConnection == null) {
+                    try {
+                        connection.close();
+                    } catch (SQLException ignored) {
+                        // Already failing
+                    }
+                    connection = null;
+                }
+                // Nothing may be loaded or written against a schema that is not up to date
+                throw new CompletionException(e);
             }
         });
     }
 
     /**
-     * Create the database tables
+     * Open a connection with the tuned pragmas
      *
+     * @param readOnly Whether the connection may only run queries
+     * @return The connection
      * @throws SQLException if an error occurs
      */
-    private void createTables() throws SQLException {
-        // Create residents table
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute("CREATE TABLE IF NOT EXISTS residents (" +
-                    "uuid TEXT PRIMARY KEY, " +
-                    "name TEXT, " +
-                    "town_id TEXT, " +
-                    "town_role INTEGER, " +
-                    "nation_id TEXT, " +
-                    "nation_role INTEGER, " +
-                    "last_online BIGINT" +
-                    ")");
-        }
+    private Connection openConnection(boolean readOnly) throws SQLException {
+        Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbFilePath);
+        int busyTimeout = plugin.getStorageConfig().getInt("database.busy-timeout-ms", 5000);
+        int cacheSize = plugin.getStorageConfig().getInt("database.cache-size-kb", 16384);
 
-        // Create towns table
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute("CREATE TABLE IF NOT EXISTS towns (" +
-                    "id TEXT PRIMARY KEY, " +
-                    "name TEXT UNIQUE, " +
-                    "owner_id TEXT, " +
-                    "balance REAL, " +
-                    "nation_id TEXT, " +
-                    "spawn_world TEXT, " +
-                    "spawn_x DOUBLE, " +
-                    "spawn_y DOUBLE, " +
-                    "spawn_z DOUBLE, " +
-                    "spawn_yaw FLOAT, " +
-                    "spawn_pitch FLOAT, " +
-                    "tax_rate REAL, " +
-                    "last_tax_collection BIGINT, " +
-                    "is_public BOOLEAN" +
-                    ")");
-        }
-
-        // Create nations table
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute("CREATE TABLE IF NOT EXISTS nations (" +
-                    "id TEXT PRIMARY KEY, " +
-                    "name TEXT UNIQUE, " +
-                    "capital_id TEXT, " +
-                    "leader_id TEXT, " +
-                    "balance REAL, " +
-                    "spawn_world TEXT, " +
-                    "spawn_x DOUBLE, " +
-                    "spawn_y DOUBLE, " +
-                    "spawn_z DOUBLE, " +
-                    "spawn_yaw FLOAT, " +
-                    "spawn_pitch FLOAT, " +
-                    "tax_rate REAL, " +
-                    "last_tax_collection BIGINT, " +
-                    "is_public BOOLEAN" +
-                    ")");
+        try (Statement stmt = conn.createStatement()) {
+            if (!readOnly) {
+                stmt.execute("PRAGMA journal_mode = WAL");
+                stmt.execute("PRAGMA synchronous = NORMAL"); // Durable at checkpoints, safe in WAL mode
+            }
+            stmt.execute("PRAGMA busy_timeout = " + busyTimeout);
+            stmt.execute("PRAGMA cache_size = -" + cacheSize);
+            stmt.execute("PRAGMA temp_store = MEMORY");
+            if (readOnly) {
+                stmt.execute("PRAGMA query_only = ON");
+            }
         }
+        return conn;
+    }
 
-        // Create claims table
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute("CREATE TABLE IF NOT EXISTS claims (" +
-                    "id TEXT PRIMARY KEY, " +
-                    "world TEXT, " +
-                    "x INTEGER, " +
-                    "z INTEGER, " +
-                    "town_id TEXT, " +
-                    "UNIQUE(world, x, z)" +
-                    ")");
+    /**
+     * Borrow the writer connection. Only one user holds it at a time; close it to give it back.
+     *
+     * @return The writer connection
+     * @throws SQLException if the database is not initialized
+     */
+    public PooledConnection borrowWrite() throws SQLException {
+        if (writeConnection == null) {
+            throw new SQLException("Database is not initialized");
         }
 
-        // Create claim flags table
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute("CREATE TABLE IF NOT EXISTS claim_flags (" +
-                    "claim_id TEXT, " +
-                    "flag TEXT, " +
-                    "value BOOLEAN, " +
-                    "PRIMARY KEY (claim_id, flag)" +
-                    ")");
+        try {
+            if (!writeLock.tryLock(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new SQLException("Timed out waiting for the writer connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the writer connection", e);
         }
+        return writeConnection;
+    }
 
-        // Create town_residents table
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute("CREATE TABLE IF NOT EXISTS town_residents (" +
-                    "town_id TEXT, " +
-                    "resident_id TEXT, " +
-                    "PRIMARY KEY (town_id, resident_id)" +
-                    ")");
+    /**
+     * Borrow a read-only connection from the pool; close it to give it back
+     *
+     * @return A read-only connection
+     * @throws SQLException if the database is not initialized or no connection frees up in time
+     */
+    public PooledConnection borrowRead() throws SQLException {
+        if (readPool == null) {
+            throw new SQLException("Database is not initialized");
         }
 
-        // Create town_claims table
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute("CREATE TABLE IF NOT EXISTS town_claims (" +
-                    "town_id TEXT, " +
-                    "claim_id TEXT, " +
-                    "PRIMARY KEY (town_id, claim_id)" +
-                    ")");
+        try {
+            PooledConnection reader = readPool.poll(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (reader == null) {
+                throw new SQLException("Timed out waiting for a read connection");
+            }
+            return reader;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a read connection", e);
         }
+    }
 
-        // Create nation_towns table
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute("CREATE TABLE IF NOT EXISTS nation_towns (" +
-                    "nation_id TEXT, " +
-                    "town_id TEXT, " +
-                    "PRIMARY KEY (nation_id, town_id)" +
-                    ")");
+    /**
+     * Read a counter from the storage_meta table
+     *
+     * @param name Counter name
+     * @return The value
+     * @throws SQLException if the counter does not exist or cannot be read
+     */
+    public long getMeta(String name) throws SQLException {
+        try (PooledConnection conn = borrowRead()) {
+            PreparedStatement stmt = conn.prepare("SELECT value FROM storage_meta WHERE name = ?");
+            stmt.setString(1, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("storage_meta has no " + name);
+                }
+                return rs.getLong(1);
+            }
         }
     }
 
     /**
-     * Get the database connection
+     * Log how long loading a table took
      *
-     * @return The connection
-     * @throws SQLException if an error occurs
+     * @param table Table name
+     * @param rows Number of rows read
+     * @param startNanos System.nanoTime() when the load started
      */
-    public Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection("jdbc:sqlite:" + dbFilePath);
-        }
-        return connection;
+    public void logLoad(String table, int rows, long startNanos) {
+        plugin.getLogger().info("Loaded " + rows + " rows from " + table + " in "
+                + (System.nanoTime() - startNanos) / 1_000_000 + " ms.");
     }
 
     /**
-     * Execute a query asynchronously
+     * Execute a query asynchronously on a read connection
      *
      * @param sql SQL query
+     * @param mapper Reads the result set; it is closed afterwards
      * @param params Query parameters
-     * @return CompletableFuture with the ResultSet
+     * @param <T> The result type
+     * @return CompletableFuture with the mapped result
      */
-    public CompletableFuture<ResultSet> query(String sql, Object... params) {
+    public <T> CompletableFuture<T> query(String sql, ResultSetMapper<T> mapper, Object... params) {
         return asyncExecutor.runAsync(() -> {
-            try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
+            try (PooledConnection conn = borrowRead()) {
+                PreparedStatement stmt = conn.prepare(sql);
                 for (int i = 0; i < params.length; i++) {
                     stmt.setObject(i + 1, params[i]);
                 }
-                return stmt.executeQuery();
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return mapper.map(rs);
+                }
             } catch (SQLException e) {
                 plugin.getLogger().severe("Error executing query: " + e.getMessage());
                 e.printStackTrace();
@@ -188,7 +211,7 @@ public class SQLiteManager {
     }
 
     /**
-     * Execute an update asynchronously
+     * Execute an update asynchronously on the writer connection
      *
      * @param sql SQL update statement
      * @param params Update parameters
@@ -196,7 +219,8 @@ public class SQLiteManager {
      */
     public CompletableFuture<Integer> update(String sql, Object... params) {
         return asyncExecutor.runAsync(() -> {
-            try (PreparedStatement stmt = getConnection().prepareStatement(sql)) {
+            try (PooledConnection conn = borrowWrite()) {
+                PreparedStatement stmt = conn.prepare(sql);
                 for (int i = 0; i < params.length; i++) {
                     stmt.setObject(i + 1, params[i]);
                 }
@@ -210,17 +234,32 @@ public class SQLiteManager {
     }
 
     /**
-     * Close the database connection
+     * Close the writer and every pooled read connection
      */
     public void close() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                plugin.getLogger().info("Database connection closed.");
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Error closing database connection: " + e.getMessage());
-            e.printStackTrace();
+        if (writeConnection == null) {
+            return;
         }
+
+        for (PooledConnection reader : readConnections) {
+            reader.closePhysical();
+        }
+        readConnections.clear();
+        readPool = null;
+
+        writeConnection.closePhysical();
+        writeConnection = null;
+        connection = null;
+        plugin.getLogger().info("Database connection closed.");
+    }
+
+    /**
+     * Reads a query result into a value
+     *
+     * @param <T> The result type
+     */
+    @FunctionalInterface
+    public interface ResultSetMapper<T> {
+        T map(ResultSet rs) throws SQLException;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,308 @@
+package com.alan.empiresOfAlan.database;
+
+import com.alan.empiresOfAlan.database.dao.ClaimDAO;
+import com.alan.empiresOfAlan.database.dao.NationDAO;
+import com.alan.empiresOfAlan.database.dao.ResidentDAO;
+import com.alan.empiresOfAlan.database.dao.TownDAO;
+import com.alan.empiresOfAlan.database.snapshot.ClaimIndexSnapshot;
+import com.alan.empiresOfAlan.managers.ClaimManager;
+import com.alan.empiresOfAlan.model.Claim;
+import com.alan.empiresOfAlan.model.Nation;
+import com.alan.empiresOfAlan.model.Plot;
+import com.alan.empiresOfAlan.model.Resident;
+import com.alan.empiresOfAlan.model.Town;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * The SQLite backend: one table per entity, written in batched transactions by the database writer.
+ * Claims can additionally be kept in a claim index snapshot that startup reads into memory in one pass instead of querying them.
+ */
+public class SQLiteStorageProvider implements StorageProvider {
+    private final StorageHost plugin;
+    private final SQLiteManager sqliteManager;
+    private final DatabaseWriter databaseWriter;
+    private final ResidentDAO residentDAO;
+    private final TownDAO townDAO;
+    private final NationDAO nationDAO;
+    private final ClaimDAO claimDAO;
+    private final ClaimIndexSnapshot claimIndex; // null when disabled
+    private volatile long indexedSubmissions = -1; // Claim writes queued when the snapshot on disk was taken
+
+    public SQLiteStorageProvider(StorageHost plugin) {
+        this.plugin = plugin;
+        this.sqliteManager = new SQLiteManager(plugin);
+        this.databaseWriter = new DatabaseWriter(plugin);
+        this.residentDAO = new ResidentDAO(plugin);
+        this.townDAO = new TownDAO(plugin);
+        this.nationDAO = new NationDAO(plugin);
+        this.claimDAO = new ClaimDAO(plugin);
+        this.claimIndex = plugin.getStorageConfig().getBoolean("persistence.claim-index-snapshot", true)
+                ? new ClaimIndexSnapshot(new File(plugin.getDataFolder(), "claims.index"))
+                : null;
+    }
+
+    @Override
+    public String getName() {
+        return "sqlite";
+    }
+
+    @Override
+    public CompletableFuture<Void> initialize() {
+        return sqliteManager.initialize().thenRun(() -> {
+            // Claims have to be in the configured format before anything is loaded or written
+            try {
+                claimDAO.convertStorage();
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Failed to convert claim storage: " + e.getMessage());
+                // Claims in the other format would load as nothing and be saved over
+                throw new CompletionException(e);
+            }
+            databaseWriter.start();
+        });
+    }
+
+    @Override
+    public Map<UUID, Resident> loadTownResidents() {
+        return residentDAO.loadTownResidents();
+    }
+
+    @Override
+    public Resident loadResident(UUID uuid) throws StorageException {
+        try {
+            return residentDAO.loadResident(uuid);
+        } catch (SQLException e) {
+            throw new StorageException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Resident loadResidentByName(String name) throws StorageException {
+        try {
+            return residentDAO.loadResidentByName(name);
+        } catch (SQLException e) {
+            throw new StorageException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<UUID, Town> loadAllTowns() {
+        return townDAO.loadAllTowns();
+    }
+
+    @Override
+    public Map<UUID, Nation> loadAllNations() {
+        return nationDAO.loadAllNations();
+    }
+
+    @Override
+    public void forEachClaim(Consumer<Claim> consumer) {
+        if (claimIndex != null && readClaimIndex(consumer)) {
+            return;
+        }
+        claimDAO.forEachClaim(consumer);
+    }
+
+    @Override
+    public List<Plot> loadAllPlots() {
+        return claimDAO.loadAllPlots();
+    }
+
+    @Override
+    public void saveResident(Resident resident) {
+        residentDAO.saveResident(resident);
+    }
+
+    @Override
+    public void saveTown(Town town, boolean saveResidents, boolean saveClaims) {
+        townDAO.saveTown(town, saveResidents, saveClaims);
+    }
+
+    @Override
+    public void deleteTown(UUID townId) {
+        townDAO.deleteTown(townId);
+    }
+
+    @Override
+    public void saveNation(Nation nation, boolean saveTowns) {
+        nationDAO.saveNation(nation, saveTowns);
+    }
+
+    @Override
+    public void deleteNation(UUID nationId) {
+        nationDAO.deleteNation(nationId);
+    }
+
+    @Override
+    public void saveClaims(Collection<Claim> claims) {
+        claimDAO.saveClaims(claims);
+    }
+
+    @Override
+    public void deleteClaims(Collection<Claim> claims) {
+        claimDAO.deleteClaims(claims);
+    }
+
+    @Override
+    public void savePlot(Plot plot) {
+        claimDAO.savePlot(plot);
+    }
+
+    @Override
+    public void deletePlot(UUID plotId) {
+        claimDAO.deletePlot(plotId);
+    }
+
+    @Override
+    public void checkpoint() {
+        if (claimIndex == null) {
+            return;
+        }
+
+        long submissions = databaseWriter.getClaimSubmissions();
+        byte[] image = encodeClaimIndex(submissions);
+        if (image == null) {
+            return;
+        }
+
+        // The image matches the database once this save is written, unless another claim write comes after it
+        long failures = databaseWriter.getFailedFlushes();
+        plugin.getAsyncExecutor().runAsync(() -> {
+            if (databaseWriter.awaitFlush(60_000L) && databaseWriter.getFailedFlushes() == failures) {
+                writeClaimIndex(image, submissions);
+            }
+        });
+    }
+
+    @Override
+    public boolean awaitFlush(long timeoutMillis) {
+        return databaseWriter.awaitFlush(timeoutMillis);
+    }
+
+    @Override
+    public long getFailedFlushes() {
+        return databaseWriter.getFailedFlushes();
+    }
+
+    @Override
+    public boolean shutdown(long timeoutMillis) {
+        long failures = databaseWriter.getFailedFlushes();
+        boolean drained = databaseWriter.shutdown(timeoutMillis);
+        if (claimIndex != null && drained && databaseWriter.getFailedFlushes() == failures) {
+            long submissions = databaseWriter.getClaimSubmissions();
+            byte[] image = encodeClaimIndex(submissions);
+            if (image != null) {
+                writeClaimIndex(image, submissions);
+            }
+        }
+        sqliteManager.close();
+        return drained;
+    }
+
+    /**
+     * Stream the claims from the claim index snapshot if it matches the database
+     *
+     * @param consumer Receives each claim
+     * @return false if the claims have to be loaded from the database instead
+     */
+    private boolean readClaimIndex(Consumer<Claim> consumer) {
+        long start = System.nanoTime();
+        int[] count = new int[1];
+        try {
+            long generation = sqliteManager.getMeta("claim_generation");
+            if (!claimIndex.read(sqliteManager.getMeta("database_id"), generation, claim -> {
+                consumer.accept(claim);
+                count[0]++;
+            })) {
+                if (claimIndex.getFile().exists()) {
+                    plugin.getLogger().info("Claim index snapshot is out of date, loading claims from the database.");
+                }
+                return false;
+            }
+        } catch (SQLException | IOException e) {
+            plugin.getLogger().warning("Failed to read the claim index snapshot, loading claims from the database: " + e.getMessage());
+            return false;
+        }
+
+        indexedSubmissions = 0;
+        plugin.getLogger().info("Loaded " + count[0] + " claims from the claim index snapshot in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms.");
+        return true;
+    }
+
+    /**
+     * Encode the claims in memory for the claim index snapshot (main thread)
+     *
+     * @param submissions Claim writes queued so far
+     * @return The image, or null if the snapshot on disk is current, the claims are not loaded or memory holds unsaved claims
+     */
+    private byte[] encodeClaimIndex(long submissions) {
+        if (submissions == indexedSubmissions || !plugin.isLoadFinished()) {
+            return null;
+        }
+
+        Collection<Claim> claims = ClaimManager.getInstance().getClaims().values();
+        for (Claim claim : claims) {
+            if (claim.isDirty()) {
+                return null;
+            }
+        }
+        return ClaimIndexSnapshot.encode(claims);
+    }
+
+    /**
+     * Write the claim index snapshot once every claim write it reflects is in the database
+     *
+     * @param image The encoded claims
+     * @param submissions Claim writes queued when the image was encoded
+     */
+    private synchronized void writeClaimIndex(byte[] image, long submissions) {
+        if (submissions == indexedSubmissions) {
+            return;
+        }
+
+        try {
+            long databaseId = sqliteManager.getMeta("database_id");
+            long generation = sqliteManager.getMeta("claim_generation");
+            // A claim write queued after the image may already be in this generation
+            if (databaseWriter.getClaimSubmissions() != submissions) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            claimIndex.write(image, databaseId, generation);
+            indexedSubmissions = submissions;
+            plugin.getLogger().info("Wrote claim index snapshot generation " + generation + " (" + image.length
+                    + " bytes) in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+        } catch (SQLException | IOException e) {
+            plugin.getLogger().severe("Failed to write the claim index snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the SQLite manager
+     *
+     * @return The SQLite manager
+     */
+    public SQLiteManager getSQLiteManager() {
+        return sqliteManager;
+    }
+
+    /**
+     * Get the database writer
+     *
+     * @return The database writer
+     */
+    public DatabaseWriter getDatabaseWriter() {
+        return databaseWriter;
+    }
+}
@@ -0,0 +1,192 @@
+package com.alan.empiresOfAlan.database;
+
+import com.alan.empiresOfAlan.database.snapshot.SnapshotStorageProvider;
+import com.alan.empiresOfAlan.managers.ClaimManager;
+import com.alan.empiresOfAlan.model.Claim;
+import com.alan.empiresOfAlan.util.AsyncExecutor;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Saves and loads the same synthetic claims through every storage backend and prints the timings.
+ * Each backend runs through its {@link StorageProvider}, so the numbers include the database
+ * writer's batching, the DAOs and the codecs exactly as the server uses them.
+ * <p>
+ * Run outside the server with the plugin jar and the Paper API on the classpath:
+ * {@code java -cp EmpiresOfAlan.jar:paper-api.jar com.alan.empiresOfAlan.database.StorageBenchmark [claims] [directory]}
+ */
+public final class StorageBenchmark {
+    private static final String WORLD = "world";
+    private static final int TOWNS = 100;
+    private static final long TIMEOUT_MILLIS = 600_000L;
+
+    private StorageBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        File directory = args.length > 1 ? new File(args[1]) : Files.createTempDirectory("eoa-bench").toFile();
+        directory.mkdirs();
+
+        // The region format saves from the claim index, so the claims have to be registered like on a server
+        List<Claim> claims = createClaims(count);
+        ClaimManager claimManager = ClaimManager.getInstance();
+        for (Claim claim : claims) {
+            claimManager.registerClaim(claim);
+        }
+        System.out.println("Benchmarking " + claims.size() + " claims in " + directory.getAbsolutePath());
+
+        AsyncExecutor executor = new AsyncExecutor(null);
+        try {
+            run("sqlite rows", new Host(new File(directory, "rows"), executor, "sqlite", "rows"), claims);
+            run("sqlite regions", new Host(new File(directory, "regions"), executor, "sqlite", "regions"), claims);
+            run("snapshot", new Host(new File(directory, "snapshot"), executor, "snapshot", "rows"), claims);
+        } finally {
+            executor.shutdown(TIMEOUT_MILLIS);
+        }
+    }
+
+    private static List<Claim> createClaims(int count) {
+        List<UUID> towns = new ArrayList<>(TOWNS);
+        for (int i = 0; i < TOWNS; i++) {
+            towns.add(UUID.randomUUID());
+        }
+
+        int side = (int) Math.ceil(Math.sqrt(count));
+        List<Claim> claims = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int x = i % side - side / 2;
+            int z = i / side - side / 2;
+            Claim claim = new Claim(UUID.randomUUID(), WORLD, x, z, towns.get((i / 1000) % TOWNS));
+            claim.setFlagMask(i & 0xFF);
+            claims.add(claim);
+        }
+        return claims;
+    }
+
+    /**
+     * Save the claims with one backend, then open it again and read them back
+     */
+    private static void run(String name, Host host, List<Claim> claims) {
+        host.open();
+        long saveStart = System.nanoTime();
+        host.storage.saveClaims(claims);
+        if (!host.storage.awaitFlush(TIMEOUT_MILLIS)) {
+            throw new IllegalStateException(name + " did not finish saving");
+        }
+        long saved = System.nanoTime() - saveStart;
+        long bytes = diskSize(host.getDataFolder()); // Before shutdown, so the WAL file is still there and counted
+        host.storage.shutdown(TIMEOUT_MILLIS);
+
+        long loadStart = System.nanoTime();
+        host.open();
+        int[] loaded = new int[1];
+        host.storage.forEachClaim(claim -> loaded[0]++);
+        long loadNanos = System.nanoTime() - loadStart;
+        host.storage.shutdown(TIMEOUT_MILLIS);
+
+        report(name, saved, loadNanos, loaded[0], bytes);
+    }
+
+    /**
+     * Get the size of every file a backend wrote, including the SQLite WAL
+     */
+    private static long diskSize(File directory) {
+        long bytes = 0;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                bytes += file.length();
+            }
+        }
+        return bytes;
+    }
+
+    private static void report(String name, long saveNanos, long loadNanos, int loaded, long bytes) {
+        System.out.printf("%-16s save %6d ms, load %6d ms (%,d claims, %,.0f claims/s), %,d KB%n", name,
+                saveNanos / 1_000_000, loadNanos / 1_000_000, loaded, loaded / Math.max(1e-9, loadNanos / 1e9),
+                bytes / 1024);
+    }
+
+    /**
+     * Stands in for the plugin: one data folder and configuration per backend
+     */
+    private static final class Host implements StorageHost {
+        private final Logger logger = Logger.getLogger("StorageBenchmark");
+        private final File dataFolder;
+        private final AsyncExecutor executor;
+        private final String backend;
+        private final FileConfiguration config = new YamlConfiguration();
+        private StorageProvider storage;
+
+        private Host(File dataFolder, AsyncExecutor executor, String backend, String claimStorage) {
+            this.dataFolder = dataFolder;
+            this.executor = executor;
+            this.backend = backend;
+            config.set("persistence.claim-storage", claimStorage);
+            config.set("persistence.claim-index-snapshot", false); // Measure the table scan, not the index
+            config.set("persistence.flush-delay-ms", 0);
+            deleteFiles(dataFolder);
+            dataFolder.mkdirs();
+        }
+
+        /**
+         * Start a new instance of the backend on the data folder
+         */
+        private void open() {
+            storage = "snapshot".equals(backend) ? new SnapshotStorageProvider(this) : new SQLiteStorageProvider(this);
+            storage.initialize().join();
+        }
+
+        private static void deleteFiles(File directory) {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        }
+
+        @Override
+        public Logger getLogger() {
+            return logger;
+        }
+
+        @Override
+        public File getDataFolder() {
+            return dataFolder;
+        }
+
+        @Override
+        public FileConfiguration getStorageConfig() {
+            return config;
+        }
+
+        @Override
+        public AsyncExecutor getAsyncExecutor() {
+            return executor;
+        }
+
+        @Override
+        public SQLiteManager getSQLiteManager() {
+            return storage instanceof SQLiteStorageProvider ? ((SQLiteStorageProvider) storage).getSQLiteManager() : null;
+        }
+
+        @Override
+        public DatabaseWriter getDatabaseWriter() {
+            return storage instanceof SQLiteStorageProvider ? ((SQLiteStorageProvider) storage).getDatabaseWriter() : null;
+        }
+
+        @Override
+        public boolean isLoadFinished() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.alan.empiresOfAlan.database;
+
+/**
+ * Thrown when a storage backend cannot read or write its data
+ */
+public class StorageException extends Exception {
+
+    public StorageException(String message) {
+        super(message);
+    }
+
+    public StorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
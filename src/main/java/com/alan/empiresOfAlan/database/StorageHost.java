@@ -0,0 +1,63 @@
+package com.alan.empiresOfAlan.database;
+
+import com.alan.empiresOfAlan.util.AsyncExecutor;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.File;
+import java.util.logging.Logger;
+
+/**
+ * What the storage backends and the mutation journal need from the plugin. The plugin implements
+ * it; the storage benchmark and the tests supply their own so these can run outside a server.
+ */
+public interface StorageHost {
+
+    /**
+     * Get the logger
+     *
+     * @return The logger
+     */
+    Logger getLogger();
+
+    /**
+     * Get the folder the storage files live in
+     *
+     * @return The data folder
+     */
+    File getDataFolder();
+
+    /**
+     * Get the configuration the storage settings are read from
+     *
+     * @return The configuration
+     */
+    FileConfiguration getStorageConfig();
+
+    /**
+     * Get the executor for loads and other blocking work
+     *
+     * @return The async executor
+     */
+    AsyncExecutor getAsyncExecutor();
+
+    /**
+     * Get the SQLite manager of the active backend
+     *
+     * @return The SQLite manager, or null with another backend
+     */
+    SQLiteManager getSQLiteManager();
+
+    /**
+     * Get the database writer of the active backend
+     *
+     * @return The database writer, or null with another backend
+     */
+    DatabaseWriter getDatabaseWriter();
+
+    /**
+     * Check if every stored entity was loaded into the managers
+     *
+     * @return true once the load finished
+     */
+    boolean isLoadFinished();
+}
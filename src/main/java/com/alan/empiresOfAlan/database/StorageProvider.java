@@ -0,0 +1,200 @@
+package com.alan.empiresOfAlan.database;
+
+import com.alan.empiresOfAlan.model.Claim;
+import com.alan.empiresOfAlan.model.Nation;
+import com.alan.empiresOfAlan.model.Plot;
+import com.alan.empiresOfAlan.model.Resident;
+import com.alan.empiresOfAlan.model.Town;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * A storage backend for residents, towns, nations, claims and plots, picked with persistence.backend.
+ * <p>
+ * Loads block and run on the async executor; a load that cannot read everything throws instead of
+ * returning what it got, so partial data is never published. Saves and deletes are called on the main thread and
+ * only queue the change; the backend writes it in the background, and a change that fails to
+ * write marks its entity dirty again so the next save retries it.
+ */
+public interface StorageProvider {
+
+    /**
+     * Get the name of the backend as it is written in the config
+     *
+     * @return The backend name
+     */
+    String getName();
+
+    /**
+     * Open the storage and start its background writer
+     *
+     * @return CompletableFuture that completes when the storage is ready, exceptionally if it failed
+     */
+    CompletableFuture<Void> initialize();
+
+    /**
+     * Load the residents that belong to a town; everyone else is loaded when needed
+     *
+     * @return Map of the town members
+     */
+    Map<UUID, Resident> loadTownResidents();
+
+    /**
+     * Load one resident
+     *
+     * @param uuid Player UUID
+     * @return The resident or null if it is not stored
+     * @throws StorageException if the storage cannot be read
+     */
+    Resident loadResident(UUID uuid) throws StorageException;
+
+    /**
+     * Load one resident by player name, ignoring case
+     *
+     * @param name Player name
+     * @return The most recently online resident with that name, or null if there is none
+     * @throws StorageException if the storage cannot be read
+     */
+    Resident loadResidentByName(String name) throws StorageException;
+
+    /**
+     * Load every town with its resident and claim links
+     *
+     * @return Map of town ID to town
+     */
+    Map<UUID, Town> loadAllTowns();
+
+    /**
+     * Load every nation with its town links
+     *
+     * @return Map of nation ID to nation
+     */
+    Map<UUID, Nation> loadAllNations();
+
+    /**
+     * Stream every claim without collecting them first
+     *
+     * @param consumer Receives each claim, with its flags set
+     */
+    void forEachClaim(Consumer<Claim> consumer);
+
+    /**
+     * Load every claim
+     *
+     * @return Map of claim ID to claim
+     */
+    default Map<UUID, Claim> loadAllClaims() {
+        Map<UUID, Claim> claims = new HashMap<>();
+        forEachClaim(claim -> claims.put(claim.getId(), claim));
+        return claims;
+    }
+
+    /**
+     * Load every plot
+     *
+     * @return The plots
+     */
+    List<Plot> loadAllPlots();
+
+    /**
+     * Queue a resident
+     *
+     * @param resident The resident
+     */
+    void saveResident(Resident resident);
+
+    /**
+     * Queue a town, optionally with its resident and claim links
+     *
+     * @param town The town
+     * @param saveResidents Whether to rewrite the resident links
+     * @param saveClaims Whether to rewrite the claim links
+     */
+    void saveTown(Town town, boolean saveResidents, boolean saveClaims);
+
+    /**
+     * Queue the deletion of a town and its links
+     *
+     * @param townId Town UUID
+     */
+    void deleteTown(UUID townId);
+
+    /**
+     * Queue a nation, optionally with its town links
+     *
+     * @param nation The nation
+     * @param saveTowns Whether to rewrite the town links
+     */
+    void saveNation(Nation nation, boolean saveTowns);
+
+    /**
+     * Queue the deletion of a nation and its links
+     *
+     * @param nationId Nation UUID
+     */
+    void deleteNation(UUID nationId);
+
+    /**
+     * Queue a batch of claims; they are written together
+     *
+     * @param claims The claims
+     */
+    void saveClaims(Collection<Claim> claims);
+
+    /**
+     * Queue the deletion of a batch of claims with their plots
+     *
+     * @param claims The claims
+     */
+    void deleteClaims(Collection<Claim> claims);
+
+    /**
+     * Queue a plot
+     *
+     * @param plot The plot
+     */
+    void savePlot(Plot plot);
+
+    /**
+     * Queue the deletion of a plot
+     *
+     * @param plotId Plot UUID
+     */
+    void deletePlot(UUID plotId);
+
+    /**
+     * Called on the main thread after a save has queued every changed entity, so the backend can
+     * store data derived from the saved state
+     */
+    default void checkpoint() {
+    }
+
+    /**
+     * Write right away and wait until every change queued so far is stored
+     *
+     * @param timeoutMillis Maximum time to wait
+     * @return true if everything was written in time
+     */
+    boolean awaitFlush(long timeoutMillis);
+
+    /**
+     * Get the number of background writes that failed
+     *
+     * @return The failed write count
+     */
+    long getFailedFlushes();
+
+    /**
+     * Write what is still queued, stop the background writer and close the storage
+     *
+     * @param timeoutMillis Maximum time to wait for the last write
+     * @return true if every queued change was written
+     */
+    boolean shutdown(long timeoutMillis);
+}
@@ -0,0 +1,57 @@
+package com.alan.empiresOfAlan.database;
+
+import java.util.UUID;
+
+/**
+ * Converts UUIDs to and from the 16-byte big-endian BLOBs the database stores ids as.
+ * The byte order matches SQLite's unhex() of the UUID text without dashes.
+ */
+public final class UUIDCodec {
+    private UUIDCodec() {
+    }
+
+    /**
+     * Encode a UUID
+     *
+     * @param uuid The UUID, may be null
+     * @return 16 bytes, or null if the UUID is null
+     */
+    public static byte[] toBytes(UUID uuid) {
+        if (uuid == null) {
+            return null;
+        }
+
+        byte[] bytes = new byte[16];
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (most >>> (56 - (i << 3)));
+            bytes[i + 8] = (byte) (least >>> (56 - (i << 3)));
+        }
+        return bytes;
+    }
+
+    /**
+     * Decode a UUID
+     *
+     * @param bytes 16 bytes, may be null
+     * @return The UUID, or null if the bytes are null
+     * @throws IllegalArgumentException if the value is not 16 bytes long
+     */
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length != 16) {
+            throw new IllegalArgumentException("Expected a 16 byte id, got " + bytes.length + " bytes");
+        }
+
+        long most = 0;
+        long least = 0;
+        for (int i = 0; i < 8; i++) {
+            most = (most << 8) | (bytes[i] & 0xFF);
+            least = (least << 8) | (bytes[i + 8] & 0xFF);
+        }
+        return new UUID(most, least);
+    }
+}
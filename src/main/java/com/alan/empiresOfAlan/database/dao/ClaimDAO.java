@@ -1,131 +1,351 @@
 package com.alan.empiresOfAlan.database.dao;
 
-import com.alan.empiresOfAlan.EmpiresOfAlan;
+import com.alan.empiresOfAlan.database.ClaimRegionCodec;
+import com.alan.empiresOfAlan.database.DatabaseWriter;
+import com.alan.empiresOfAlan.database.PooledConnection;
+import com.alan.empiresOfAlan.database.StorageHost;
+import com.alan.empiresOfAlan.database.UUIDCodec;
+import com.alan.empiresOfAlan.index.LongObjectMap;
+import com.alan.empiresOfAlan.index.RegionTile;
+import com.alan.empiresOfAlan.index.WorldClaimIndex;
+import com.alan.empiresOfAlan.managers.ClaimManager;
 import com.alan.empiresOfAlan.model.Claim;
-import com.alan.empiresOfAlan.model.enums.ClaimFlag;
+import com.alan.empiresOfAlan.model.Plot;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 public class ClaimDAO {
-    private final EmpiresOfAlan plugin;
+    private static final String SAVE_CLAIM = "INSERT OR REPLACE INTO claims (id, world, x, z, town_id, flags) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String LINK_CLAIM = "INSERT OR IGNORE INTO town_claims (town_id, claim_id) VALUES (?, ?)";
+    private static final String SAVE_REGION = "INSERT OR REPLACE INTO claim_regions (world, region_x, region_z, data) VALUES (?, ?, ?, ?)";
+    private static final String DELETE_REGION = "DELETE FROM claim_regions WHERE world = ? AND region_x = ? AND region_z = ?";
+    private static final String SAVE_PLOT = "INSERT OR REPLACE INTO plots (id, claim_id, min_x, min_z, max_x, max_z, owner_id, flags) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
-    public ClaimDAO(EmpiresOfAlan plugin) {
+    private final StorageHost plugin;
+    private final boolean regionStorage; // Claims live in claim_regions blobs instead of claims rows
+
+    public ClaimDAO(StorageHost plugin) {
         this.plugin = plugin;
+        this.regionStorage = "regions".equalsIgnoreCase(
+                plugin.getStorageConfig().getString("persistence.claim-storage", "rows"));
+    }
+
+    /**
+     * Check if claims are stored as region blobs
+     *
+     * @return true for region blobs, false for one row per claim
+     */
+    public boolean isRegionStorage() {
+        return regionStorage;
     }
 
     public void saveClaim(Claim claim) {
-        plugin.getAsyncExecutor().runAsync(() -> {
-            try (Connection conn = plugin.getSQLiteManager().getConnection()) {
-                // Save claim
-                try (PreparedStatement stmt = conn.prepareStatement(
-                        "INSERT OR REPLACE INTO claims (id, world, x, z, town_id) VALUES (?, ?, ?, ?, ?)")) {
-
-                    stmt.setString(1, claim.getId().toString());
-                    stmt.setString(2, claim.getWorldName());
-                    stmt.setInt(3, claim.getX());
-                    stmt.setInt(4, claim.getZ());
-                    stmt.setString(5, claim.getTownId().toString());
-
-                    stmt.executeUpdate();
-                }
+        if (regionStorage) {
+            saveRegions(Collections.singletonList(claim));
+            return;
+        }
+        plugin.getDatabaseWriter().submit(claimWrite(claim));
+    }
 
-                // Save claim flags
-                saveClaimFlags(claim);
+    /**
+     * Queue a batch of claims and their town links; they are written in the same flush
+     *
+     * @param claims The claims to save
+     */
+    public void saveClaims(Collection<Claim> claims) {
+        if (regionStorage) {
+            saveRegions(claims);
+            return;
+        }
 
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Failed to save claim: " + e.getMessage());
-            }
-        });
+        DatabaseWriter writer = plugin.getDatabaseWriter();
+        for (Claim claim : claims) {
+            writer.submit(claimWrite(claim));
+        }
     }
 
-    private void saveClaimFlags(Claim claim) {
-        try (Connection conn = plugin.getSQLiteManager().getConnection()) {
-            // Clear existing flags
-            try (PreparedStatement clearStmt = conn.prepareStatement("DELETE FROM claim_flags WHERE claim_id = ?")) {
-                clearStmt.setString(1, claim.getId().toString());
-                clearStmt.executeUpdate();
-            }
+    private DatabaseWriter.Write claimWrite(Claim claim) {
+        byte[] claimId = UUIDCodec.toBytes(claim.getId());
+        byte[] townId = UUIDCodec.toBytes(claim.getTownId());
+        return new DatabaseWriter.Write("claims", claim.getId(), claim::markDirty)
+                .add(SAVE_CLAIM, claimId, claim.getWorldName(), claim.getX(), claim.getZ(), townId, claim.getFlagMask())
+                .add(LINK_CLAIM, townId, claimId);
+    }
 
-            // Insert flags
-            try (PreparedStatement insertStmt = conn.prepareStatement("INSERT INTO claim_flags (claim_id, flag, value) VALUES (?, ?, ?)")) {
-                for (Map.Entry<ClaimFlag, Boolean> entry : claim.getFlags().entrySet()) {
-                    insertStmt.setString(1, claim.getId().toString());
-                    insertStmt.setString(2, entry.getKey().getId());
-                    insertStmt.setBoolean(3, entry.getValue());
-                    insertStmt.addBatch();
-                }
-                insertStmt.executeBatch();
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to save claim flags: " + e.getMessage());
+    /**
+     * Stream every claim from the configured storage, one row or region at a time
+     *
+     * @param consumer Receives each claim
+     */
+    public void forEachClaim(Consumer<Claim> consumer) {
+        if (regionStorage) {
+            forEachClaimRegion(consumer);
+        } else {
+            forEachClaimRow(consumer);
         }
     }
 
-    public Map<UUID, Claim> loadAllClaims() {
-        Map<UUID, Claim> claims = new HashMap<>();
+    private void forEachClaimRow(Consumer<Claim> consumer) {
+        int count = 0;
+        long start = System.nanoTime();
 
-        try (Connection conn = plugin.getSQLiteManager().getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT * FROM claims");
-             ResultSet rs = stmt.executeQuery()) {
+        try (PooledConnection conn = plugin.getSQLiteManager().borrowRead();
+             ResultSet rs = conn.prepare("SELECT id, world, x, z, town_id, flags FROM claims").executeQuery()) {
 
             while (rs.next()) {
-                UUID id = UUID.fromString(rs.getString("id"));
-                UUID townId = UUID.fromString(rs.getString("town_id"));
+                UUID id = UUIDCodec.fromBytes(rs.getBytes("id"));
+                UUID townId = UUIDCodec.fromBytes(rs.getBytes("town_id"));
                 Claim claim = new Claim(id, rs.getString("world"), rs.getInt("x"), rs.getInt("z"), townId);
 
-                // Load flags
-                loadClaimFlags(claim);
+                int flags = rs.getInt("flags");
+                if (!rs.wasNull()) {
+                    claim.setFlagMask(flags);
+                }
 
-                claims.put(id, claim);
+                consumer.accept(claim);
+                count++;
             }
         } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to load claims: " + e.getMessage());
+            throw new CompletionException("Failed to load claims", e);
         }
 
-        return claims;
+        plugin.getSQLiteManager().logLoad("claims", count, start);
     }
 
-    private void loadClaimFlags(Claim claim) {
-        try (Connection conn = plugin.getSQLiteManager().getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT flag, value FROM claim_flags WHERE claim_id = ?")) {
+    private void forEachClaimRegion(Consumer<Claim> consumer) {
+        long start = System.nanoTime();
+        int regions = 0;
 
-            stmt.setString(1, claim.getId().toString());
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    String flagId = rs.getString("flag");
-                    boolean value = rs.getBoolean("value");
-                    ClaimFlag flag = ClaimFlag.getById(flagId);
-                    if (flag != null) {
-                        claim.setFlag(flag, value);
-                    }
+        try (PooledConnection conn = plugin.getSQLiteManager().borrowRead();
+             ResultSet rs = conn.prepare("SELECT world, region_x, region_z, data FROM claim_regions").executeQuery()) {
+
+            while (rs.next()) {
+                ClaimRegionCodec.decode(rs.getString(1), rs.getInt(2), rs.getInt(3), rs.getBytes(4)).forEach(consumer);
+                regions++;
+            }
+        } catch (SQLException | RuntimeException e) {
+            throw new CompletionException("Failed to load claim regions", e);
+        }
+
+        plugin.getSQLiteManager().logLoad("claim_regions", regions, start);
+    }
+
+    /**
+     * Move the claims from the other storage format into the configured one, in one transaction,
+     * when only the other has any
+     *
+     * @throws SQLException if the conversion fails; it is rolled back
+     */
+    public void convertStorage() throws SQLException {
+        boolean hasRows = hasAny("claims");
+        boolean hasRegions = hasAny("claim_regions");
+        if (regionStorage ? hasRegions || !hasRows : hasRows || !hasRegions) {
+            return;
+        }
+
+        Map<UUID, Claim> claims = new HashMap<>();
+        Consumer<Claim> collect = claim -> claims.put(claim.getId(), claim);
+        if (regionStorage) {
+            forEachClaimRow(collect);
+        } else {
+            forEachClaimRegion(collect);
+        }
+        try (PooledConnection pooled = plugin.getSQLiteManager().borrowWrite()) {
+            Connection conn = pooled.getConnection();
+            conn.setAutoCommit(false);
+            try {
+                if (regionStorage) {
+                    writeRegions(pooled, claims.values());
+                    pooled.prepare("DELETE FROM claims").executeUpdate();
+                } else {
+                    writeRows(pooled, claims.values());
+                    pooled.prepare("DELETE FROM claim_regions").executeUpdate();
                 }
+                pooled.prepare(DatabaseWriter.BUMP_CLAIM_GENERATION).executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to load claim flags: " + e.getMessage());
         }
+
+        plugin.getLogger().info("Converted " + claims.size() + " claims to " + (regionStorage ? "region blob" : "row") + " storage.");
+    }
+
+    private boolean hasAny(String table) throws SQLException {
+        try (PooledConnection conn = plugin.getSQLiteManager().borrowRead();
+             ResultSet rs = conn.prepare("SELECT EXISTS (SELECT 1 FROM " + table + ")").executeQuery()) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    private void writeRows(PooledConnection pooled, Collection<Claim> claims) throws SQLException {
+        // Links are rebuilt from the claims, the old ones may be stale
+        pooled.prepare("DELETE FROM town_claims").executeUpdate();
+
+        PreparedStatement saveClaim = pooled.prepare(SAVE_CLAIM);
+        PreparedStatement linkClaim = pooled.prepare(LINK_CLAIM);
+        for (Claim claim : claims) {
+            byte[] claimId = UUIDCodec.toBytes(claim.getId());
+            byte[] townId = UUIDCodec.toBytes(claim.getTownId());
+            saveClaim.setBytes(1, claimId);
+            saveClaim.setString(2, claim.getWorldName());
+            saveClaim.setInt(3, claim.getX());
+            saveClaim.setInt(4, claim.getZ());
+            saveClaim.setBytes(5, townId);
+            saveClaim.setInt(6, claim.getFlagMask());
+            saveClaim.addBatch();
+            linkClaim.setBytes(1, townId);
+            linkClaim.setBytes(2, claimId);
+            linkClaim.addBatch();
+        }
+        saveClaim.executeBatch();
+        linkClaim.executeBatch();
+    }
+
+    private void writeRegions(PooledConnection pooled, Collection<Claim> claims) throws SQLException {
+        Map<String, LongObjectMap<List<Claim>>> regions = new HashMap<>();
+        for (Claim claim : claims) {
+            LongObjectMap<List<Claim>> worldRegions = regions.computeIfAbsent(claim.getWorldName(), world -> new LongObjectMap<>());
+            long regionKey = Claim.chunkKey(claim.getX() >> RegionTile.SHIFT, claim.getZ() >> RegionTile.SHIFT);
+            List<Claim> region = worldRegions.get(regionKey);
+            if (region == null) {
+                region = new ArrayList<>();
+                worldRegions.put(regionKey, region);
+            }
+            region.add(claim);
+        }
+
+        PreparedStatement saveRegion = pooled.prepare(SAVE_REGION);
+        for (Map.Entry<String, LongObjectMap<List<Claim>>> entry : regions.entrySet()) {
+            for (List<Claim> region : entry.getValue().values()) {
+                Claim first = region.get(0);
+                saveRegion.setString(1, entry.getKey());
+                saveRegion.setInt(2, first.getX() >> RegionTile.SHIFT);
+                saveRegion.setInt(3, first.getZ() >> RegionTile.SHIFT);
+                saveRegion.setBytes(4, ClaimRegionCodec.encode(region));
+                saveRegion.addBatch();
+            }
+        }
+        saveRegion.executeBatch();
     }
 
     public void deleteClaim(UUID claimId) {
-        plugin.getAsyncExecutor().runAsync(() -> {
-            try (Connection conn = plugin.getSQLiteManager().getConnection()) {
-                // Delete claim flags
-                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM claim_flags WHERE claim_id = ?")) {
-                    stmt.setString(1, claimId.toString());
-                    stmt.executeUpdate();
+        byte[] id = UUIDCodec.toBytes(claimId);
+        plugin.getDatabaseWriter().submit(new DatabaseWriter.Write("claims", claimId, null).retryOnFailure()
+                .add("DELETE FROM claims WHERE id = ?", id)
+                .add("DELETE FROM town_claims WHERE claim_id = ?", id)
+                .add("DELETE FROM plots WHERE claim_id = ?", id));
+    }
+
+    /**
+     * Queue the deletion of a batch of claims with their town links and plots
+     *
+     * @param claims The claims to delete
+     */
+    public void deleteClaims(Collection<Claim> claims) {
+        for (Claim claim : claims) {
+            deleteClaim(claim.getId());
+        }
+        if (regionStorage) {
+            saveRegions(claims);
+        }
+    }
+
+    /**
+     * Queue one upsert per region touched by the claims, encoded from the live chunk index
+     * (main thread). A region left without claims is deleted instead.
+     *
+     * @param changed Claims that were saved or deleted
+     */
+    private void saveRegions(Collection<Claim> changed) {
+        // Region blobs are rebuilt from the live index, which only holds every claim once loading finished
+        if (!plugin.isLoadFinished()) {
+            plugin.getLogger().warning("Skipped saving " + changed.size() + " claim regions, the claims are not loaded.");
+            return;
+        }
+
+        Map<String, LongObjectMap<Boolean>> regions = new HashMap<>();
+        for (Claim claim : changed) {
+            regions.computeIfAbsent(claim.getWorldName(), world -> new LongObjectMap<>())
+                    .put(Claim.chunkKey(claim.getX() >> RegionTile.SHIFT, claim.getZ() >> RegionTile.SHIFT), Boolean.TRUE);
+        }
+
+        DatabaseWriter writer = plugin.getDatabaseWriter();
+        for (Map.Entry<String, LongObjectMap<Boolean>> entry : regions.entrySet()) {
+            String worldName = entry.getKey();
+            WorldClaimIndex index = ClaimManager.getInstance().getWorldIndex(worldName);
+            entry.getValue().forEach((regionKey, ignored) -> {
+                int regionX = (int) (regionKey >> 32);
+                int regionZ = (int) regionKey;
+                int baseX = regionX << RegionTile.SHIFT;
+                int baseZ = regionZ << RegionTile.SHIFT;
+                List<Claim> claims = index != null
+                        ? index.claimsInBox(baseX, baseZ, baseX + RegionTile.MASK, baseZ + RegionTile.MASK)
+                        : Collections.emptyList();
+
+                DatabaseWriter.Write write = new DatabaseWriter.Write("claim_regions",
+                        worldName + ':' + regionX + ':' + regionZ, () -> claims.forEach(Claim::markDirty));
+                if (claims.isEmpty()) {
+                    write.add(DELETE_REGION, worldName, regionX, regionZ).retryOnFailure();
+                } else {
+                    write.add(SAVE_REGION, worldName, regionX, regionZ, ClaimRegionCodec.encode(claims));
+                }
+                writer.submit(write);
+            });
+        }
+    }
+
+    public void savePlot(Plot plot) {
+        plugin.getDatabaseWriter().submit(new DatabaseWriter.Write("plots", plot.getId(), plot::markDirty)
+                .add(SAVE_PLOT, UUIDCodec.toBytes(plot.getId()), UUIDCodec.toBytes(plot.getClaimId()),
+                        plot.getMinX(), plot.getMinZ(), plot.getMaxX(), plot.getMaxZ(),
+                        UUIDCodec.toBytes(plot.getOwnerId()),
+                        plot.getFlagMask()));
+    }
+
+    public List<Plot> loadAllPlots() {
+        List<Plot> plots = new ArrayList<>();
+        long start = System.nanoTime();
+
+        try (PooledConnection conn = plugin.getSQLiteManager().borrowRead();
+             ResultSet rs = conn.prepare(
+                     "SELECT id, claim_id, min_x, min_z, max_x, max_z, owner_id, flags FROM plots").executeQuery()) {
+
+            while (rs.next()) {
+                Plot plot = new Plot(UUIDCodec.fromBytes(rs.getBytes("id")), UUIDCodec.fromBytes(rs.getBytes("claim_id")),
+                        rs.getInt("min_x"), rs.getInt("min_z"), rs.getInt("max_x"), rs.getInt("max_z"));
+
+                UUID ownerId = UUIDCodec.fromBytes(rs.getBytes("owner_id"));
+                if (ownerId != null) {
+                    plot.setOwnerId(ownerId);
                 }
 
-                // Delete claim
-                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM claims WHERE id = ?")) {
-                    stmt.setString(1, claimId.toString());
-                    stmt.executeUpdate();
+                int flags = rs.getInt("flags");
+                if (!rs.wasNull()) {
+                    plot.setFlagMask(flags);
                 }
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Failed to delete claim: " + e.getMessage());
+
+                plots.add(plot);
             }
-        });
+        } catch (SQLException e) {
+            throw new CompletionException("Failed to load plots", e);
+        }
+
+        plugin.getSQLiteManager().logLoad("plots", plots.size(), start);
+        return plots;
+    }
+
+    public void deletePlot(UUID plotId) {
+        plugin.getDatabaseWriter().submit(new DatabaseWriter.Write("plots", plotId, null).retryOnFailure()
+                .add("DELETE FROM plots WHERE id = ?", UUIDCodec.toBytes(plotId)));
     }
-}
\ No newline at end of file
+}
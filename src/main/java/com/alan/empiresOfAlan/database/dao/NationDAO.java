@@ -1,172 +1,140 @@
 package com.alan.empiresOfAlan.database.dao;
 
-import com.alan.empiresOfAlan.EmpiresOfAlan;
+import com.alan.empiresOfAlan.database.DatabaseWriter;
+import com.alan.empiresOfAlan.database.PooledConnection;
+import com.alan.empiresOfAlan.database.StorageHost;
+import com.alan.empiresOfAlan.database.UUIDCodec;
 import com.alan.empiresOfAlan.model.Nation;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.CompletionException;
 
 public class NationDAO {
-    private final EmpiresOfAlan plugin;
+    private static final String SAVE_NATION = "INSERT OR REPLACE INTO nations (id, name, capital_id, leader_id, balance, spawn_world, spawn_x, spawn_y, spawn_z, spawn_yaw, spawn_pitch, tax_rate, last_tax_collection, is_public) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String CLEAR_TOWNS = "DELETE FROM nation_towns WHERE nation_id = ?";
+    private static final String INSERT_TOWN = "INSERT INTO nation_towns (nation_id, town_id) VALUES (?, ?)";
 
-    public NationDAO(EmpiresOfAlan plugin) {
+    private final StorageHost plugin;
+
+    public NationDAO(StorageHost plugin) {
         this.plugin = plugin;
     }
 
     public void saveNation(Nation nation) {
-        plugin.getAsyncExecutor().runAsync(() -> {
-            try (Connection conn = plugin.getSQLiteManager().getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(
-                         "INSERT OR REPLACE INTO nations (id, name, capital_id, leader_id, balance, spawn_world, spawn_x, spawn_y, spawn_z, spawn_yaw, spawn_pitch, tax_rate, last_tax_collection, is_public) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
-
-                stmt.setString(1, nation.getId().toString());
-                stmt.setString(2, nation.getName());
-                stmt.setString(3, nation.getCapitalId().toString());
-                stmt.setString(4, nation.getLeaderId().toString());
-                stmt.setDouble(5, nation.getBankAccount().getBalance());
-
-                // Spawn location
-                if (nation.hasSpawn()) {
-                    Location spawn = nation.getSpawn();
-                    stmt.setString(6, spawn.getWorld().getName());
-                    stmt.setDouble(7, spawn.getX());
-                    stmt.setDouble(8, spawn.getY());
-                    stmt.setDouble(9, spawn.getZ());
-                    stmt.setFloat(10, spawn.getYaw());
-                    stmt.setFloat(11, spawn.getPitch());
-                } else {
-                    stmt.setNull(6, java.sql.Types.VARCHAR);
-                    stmt.setNull(7, java.sql.Types.DOUBLE);
-                    stmt.setNull(8, java.sql.Types.DOUBLE);
-                    stmt.setNull(9, java.sql.Types.DOUBLE);
-                    stmt.setNull(10, java.sql.Types.FLOAT);
-                    stmt.setNull(11, java.sql.Types.FLOAT);
-                }
-
-                stmt.setDouble(12, nation.getTaxRate());
-                stmt.setLong(13, nation.getLastTaxCollection());
-                stmt.setBoolean(14, nation.isPublic());
-
-                stmt.executeUpdate();
-
-                // Save towns relationship
-                saveNationTowns(nation);
-
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Failed to save nation: " + e.getMessage());
-            }
-        });
+        saveNation(nation, true);
     }
 
-    private void saveNationTowns(Nation nation) {
-        try (Connection conn = plugin.getSQLiteManager().getConnection()) {
-            // Clear existing towns
-            try (PreparedStatement clearStmt = conn.prepareStatement("DELETE FROM nation_towns WHERE nation_id = ?")) {
-                clearStmt.setString(1, nation.getId().toString());
-                clearStmt.executeUpdate();
-            }
+    /**
+     * Queue a nation row, optionally rewriting its town links
+     *
+     * @param nation The nation
+     * @param saveTowns Whether to rewrite the nation_towns rows
+     */
+    public void saveNation(Nation nation, boolean saveTowns) {
+        DatabaseWriter writer = plugin.getDatabaseWriter();
+        UUID id = nation.getId();
+        byte[] nationId = UUIDCodec.toBytes(id);
+
+        // Spawn location
+        String spawnWorld = null;
+        Double spawnX = null, spawnY = null, spawnZ = null;
+        Float spawnYaw = null, spawnPitch = null;
+        if (nation.hasSpawn()) {
+            Location spawn = nation.getSpawn();
+            spawnWorld = spawn.getWorld().getName();
+            spawnX = spawn.getX();
+            spawnY = spawn.getY();
+            spawnZ = spawn.getZ();
+            spawnYaw = spawn.getYaw();
+            spawnPitch = spawn.getPitch();
+        }
 
-            // Insert towns
-            try (PreparedStatement insertStmt = conn.prepareStatement("INSERT INTO nation_towns (nation_id, town_id) VALUES (?, ?)")) {
-                for (UUID townId : nation.getTowns()) {
-                    insertStmt.setString(1, nation.getId().toString());
-                    insertStmt.setString(2, townId.toString());
-                    insertStmt.addBatch();
-                }
-                insertStmt.executeBatch();
+        writer.submit(new DatabaseWriter.Write("nations", id, nation::markDirty)
+                .add(SAVE_NATION, nationId, nation.getName(), UUIDCodec.toBytes(nation.getCapitalId()),
+                        UUIDCodec.toBytes(nation.getLeaderId()), nation.getBankAccount().getBalance(),
+                        spawnWorld, spawnX, spawnY, spawnZ, spawnYaw, spawnPitch,
+                        nation.getTaxRate(), nation.getLastTaxCollection(), nation.isPublic()));
+
+        // Save towns relationship
+        if (saveTowns) {
+            DatabaseWriter.Write towns = new DatabaseWriter.Write("nation_towns", id, nation::markDirty)
+                    .add(CLEAR_TOWNS, nationId);
+            for (UUID townId : nation.getTowns()) {
+                towns.add(INSERT_TOWN, nationId, UUIDCodec.toBytes(townId));
             }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to save nation towns: " + e.getMessage());
+            writer.submit(towns);
         }
     }
 
     public Map<UUID, Nation> loadAllNations() {
         Map<UUID, Nation> nations = new HashMap<>();
 
-        try (Connection conn = plugin.getSQLiteManager().getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT * FROM nations");
-             ResultSet rs = stmt.executeQuery()) {
-
-            while (rs.next()) {
-                UUID id = UUID.fromString(rs.getString("id"));
-                UUID capitalId = UUID.fromString(rs.getString("capital_id"));
-                UUID leaderId = UUID.fromString(rs.getString("leader_id"));
-                Nation nation = new Nation(id, rs.getString("name"), capitalId, leaderId);
-
-                // Set bank balance
-                nation.getBankAccount().setBalance(rs.getDouble("balance"));
-
-                // Set spawn
-                String worldName = rs.getString("spawn_world");
-                if (worldName != null) {
-                    World world = Bukkit.getWorld(worldName);
-                    if (world != null) {
-                        Location spawn = new Location(world,
-                                rs.getDouble("spawn_x"),
-                                rs.getDouble("spawn_y"),
-                                rs.getDouble("spawn_z"),
-                                rs.getFloat("spawn_yaw"),
-                                rs.getFloat("spawn_pitch"));
-                        nation.setSpawn(spawn);
+        try (PooledConnection conn = plugin.getSQLiteManager().borrowRead()) {
+            long start = System.nanoTime();
+            try (ResultSet rs = conn.prepare("SELECT * FROM nations").executeQuery()) {
+                while (rs.next()) {
+                    UUID id = UUIDCodec.fromBytes(rs.getBytes("id"));
+                    UUID capitalId = UUIDCodec.fromBytes(rs.getBytes("capital_id"));
+                    UUID leaderId = UUIDCodec.fromBytes(rs.getBytes("leader_id"));
+                    Nation nation = new Nation(id, rs.getString("name"), capitalId, leaderId);
+
+                    // Set bank balance
+                    nation.getBankAccount().setBalance(rs.getDouble("balance"));
+
+                    // Set spawn
+                    String worldName = rs.getString("spawn_world");
+                    if (worldName != null) {
+                        World world = Bukkit.getWorld(worldName);
+                        if (world != null) {
+                            Location spawn = new Location(world,
+                                    rs.getDouble("spawn_x"),
+                                    rs.getDouble("spawn_y"),
+                                    rs.getDouble("spawn_z"),
+                                    rs.getFloat("spawn_yaw"),
+                                    rs.getFloat("spawn_pitch"));
+                            nation.setSpawn(spawn);
+                        }
                     }
-                }
 
-                nation.setTaxRate(rs.getDouble("tax_rate"));
-                nation.setLastTaxCollection(rs.getLong("last_tax_collection"));
-                nation.setPublic(rs.getBoolean("is_public"));
+                    nation.setTaxRate(rs.getDouble("tax_rate"));
+                    nation.setLastTaxCollection(rs.getLong("last_tax_collection"));
+                    nation.setPublic(rs.getBoolean("is_public"));
 
-                nations.put(id, nation);
+                    nations.put(id, nation);
+                }
             }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to load nations: " + e.getMessage());
-        }
-
-        // Load towns for each nation
-        for (Nation nation : nations.values()) {
-            loadNationTowns(nation);
-        }
-
-        return nations;
-    }
+            plugin.getSQLiteManager().logLoad("nations", nations.size(), start);
 
-    private void loadNationTowns(Nation nation) {
-        try (Connection conn = plugin.getSQLiteManager().getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT town_id FROM nation_towns WHERE nation_id = ?")) {
-
-            stmt.setString(1, nation.getId().toString());
-            try (ResultSet rs = stmt.executeQuery()) {
+            // Link member towns with one scan of the link table
+            start = System.nanoTime();
+            int rows = 0;
+            try (ResultSet rs = conn.prepare("SELECT nation_id, town_id FROM nation_towns").executeQuery()) {
                 while (rs.next()) {
-                    nation.addTown(UUID.fromString(rs.getString("town_id")));
+                    Nation nation = nations.get(UUIDCodec.fromBytes(rs.getBytes(1)));
+                    if (nation != null) {
+                        nation.addTown(UUIDCodec.fromBytes(rs.getBytes(2)));
+                    }
+                    rows++;
                 }
             }
+            plugin.getSQLiteManager().logLoad("nation_towns", rows, start);
         } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to load nation towns: " + e.getMessage());
+            throw new CompletionException("Failed to load nations", e);
         }
+
+        return nations;
     }
 
     public void deleteNation(UUID nationId) {
-        plugin.getAsyncExecutor().runAsync(() -> {
-            try (Connection conn = plugin.getSQLiteManager().getConnection()) {
-                // Delete nation towns
-                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM nation_towns WHERE nation_id = ?")) {
-                    stmt.setString(1, nationId.toString());
-                    stmt.executeUpdate();
-                }
+        DatabaseWriter writer = plugin.getDatabaseWriter();
+        byte[] id = UUIDCodec.toBytes(nationId);
 
-                // Delete nation
-                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM nations WHERE id = ?")) {
-                    stmt.setString(1, nationId.toString());
-                    stmt.executeUpdate();
-                }
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Failed to delete nation: " + e.getMessage());
-            }
-        });
+        writer.submit(new DatabaseWriter.Write("nation_towns", nationId, null).retryOnFailure().add(CLEAR_TOWNS, id));
+        writer.submit(new DatabaseWriter.Write("nations", nationId, null).retryOnFailure().add("DELETE FROM nations WHERE id = ?", id));
     }
-}
\ No newline at end of file
+}
@@ -1,91 +1,122 @@
 package com.alan.empiresOfAlan.database.dao;
 
-import com.alan.empiresOfAlan.EmpiresOfAlan;
+import com.alan.empiresOfAlan.database.DatabaseWriter;
+import com.alan.empiresOfAlan.database.PooledConnection;
+import com.alan.empiresOfAlan.database.StorageHost;
+import com.alan.empiresOfAlan.database.UUIDCodec;
 import com.alan.empiresOfAlan.model.Resident;
 import com.alan.empiresOfAlan.model.enums.NationRole;
 import com.alan.empiresOfAlan.model.enums.TownRole;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
 
 public class ResidentDAO {
-    private final EmpiresOfAlan plugin;
+    private static final String SAVE_RESIDENT = "INSERT OR REPLACE INTO residents (uuid, name, town_id, town_role, nation_id, nation_role, last_online) VALUES (?, ?, ?, ?, ?, ?, ?)";
 
-    public ResidentDAO(EmpiresOfAlan plugin) {
+    private final StorageHost plugin;
+
+    public ResidentDAO(StorageHost plugin) {
         this.plugin = plugin;
     }
 
     public void saveResident(Resident resident) {
-        plugin.getAsyncExecutor().runAsync(() -> {
-            try (Connection conn = plugin.getSQLiteManager().getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(
-                         "INSERT OR REPLACE INTO residents (uuid, name, town_id, town_role, nation_id, nation_role, last_online) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
-
-                stmt.setString(1, resident.getUuid().toString());
-                stmt.setString(2, resident.getName());
-                stmt.setString(3, resident.getTownId() != null ? resident.getTownId().toString() : null);
-                stmt.setInt(4, resident.getTownRole().getLevel());
-                stmt.setString(5, resident.getNationId() != null ? resident.getNationId().toString() : null);
-                stmt.setInt(6, resident.getNationRole().getLevel());
-                stmt.setLong(7, resident.getLastOnline());
-
-                stmt.executeUpdate();
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Failed to save resident: " + e.getMessage());
-            }
-        });
+        plugin.getDatabaseWriter().submit(new DatabaseWriter.Write("residents", resident.getUuid(), resident::markDirty)
+                .add(SAVE_RESIDENT, UUIDCodec.toBytes(resident.getUuid()), resident.getName(),
+                        UUIDCodec.toBytes(resident.getTownId()),
+                        resident.getTownRole().getLevel(),
+                        UUIDCodec.toBytes(resident.getNationId()),
+                        resident.getNationRole().getLevel(),
+                        resident.getLastOnline()));
     }
 
-    public Map<UUID, Resident> loadAllResidents() {
+    /**
+     * Load the residents that belong to a town; everyone else is loaded when needed
+     *
+     * @return Map of the town members
+     */
+    public Map<UUID, Resident> loadTownResidents() {
         Map<UUID, Resident> residents = new HashMap<>();
+        long start = System.nanoTime();
 
-        try (Connection conn = plugin.getSQLiteManager().getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT * FROM residents");
-             ResultSet rs = stmt.executeQuery()) {
+        try (PooledConnection conn = plugin.getSQLiteManager().borrowRead();
+             ResultSet rs = conn.prepare("SELECT * FROM residents WHERE town_id IS NOT NULL").executeQuery()) {
 
             while (rs.next()) {
-                UUID uuid = UUID.fromString(rs.getString("uuid"));
-                Resident resident = new Resident(uuid, rs.getString("name"));
+                Resident resident = readResident(rs);
+                residents.put(resident.getUuid(), resident);
+            }
+        } catch (SQLException e) {
+            throw new CompletionException("Failed to load residents", e);
+        }
+
+        plugin.getSQLiteManager().logLoad("residents", residents.size(), start);
+        return residents;
+    }
+
+    /**
+     * Load one resident
+     *
+     * @param uuid Player UUID
+     * @return The resident or null if it is not in the database
+     * @throws SQLException if the database cannot be read
+     */
+    public Resident loadResident(UUID uuid) throws SQLException {
+        try (PooledConnection conn = plugin.getSQLiteManager().borrowRead()) {
+            PreparedStatement stmt = conn.prepare("SELECT * FROM residents WHERE uuid = ?");
+            stmt.setBytes(1, UUIDCodec.toBytes(uuid));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? readResident(rs) : null;
+            }
+        }
+    }
 
-                String townIdStr = rs.getString("town_id");
-                if (townIdStr != null) {
-                    resident.setTownId(UUID.fromString(townIdStr));
-                }
+    /**
+     * Load one resident by player name, ignoring case
+     *
+     * @param name Player name
+     * @return The most recently online resident with that name, or null if there is none
+     * @throws SQLException if the database cannot be read
+     */
+    public Resident loadResidentByName(String name) throws SQLException {
+        try (PooledConnection conn = plugin.getSQLiteManager().borrowRead()) {
+            PreparedStatement stmt = conn.prepare(
+                    "SELECT * FROM residents WHERE name = ? COLLATE NOCASE ORDER BY last_online DESC LIMIT 1");
+            stmt.setString(1, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? readResident(rs) : null;
+            }
+        }
+    }
 
-                resident.setTownRole(TownRole.getByLevel(rs.getInt("town_role")));
+    private static Resident readResident(ResultSet rs) throws SQLException {
+        UUID uuid = UUIDCodec.fromBytes(rs.getBytes("uuid"));
+        Resident resident = new Resident(uuid, rs.getString("name"));
 
-                String nationIdStr = rs.getString("nation_id");
-                if (nationIdStr != null) {
-                    resident.setNationId(UUID.fromString(nationIdStr));
-                }
+        UUID townId = UUIDCodec.fromBytes(rs.getBytes("town_id"));
+        if (townId != null) {
+            resident.setTownId(townId);
+        }
 
-                resident.setNationRole(NationRole.getByLevel(rs.getInt("nation_role")));
-                resident.setLastOnline(rs.getLong("last_online"));
+        resident.setTownRole(TownRole.getByLevel(rs.getInt("town_role")));
 
-                residents.put(uuid, resident);
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to load residents: " + e.getMessage());
+        UUID nationId = UUIDCodec.fromBytes(rs.getBytes("nation_id"));
+        if (nationId != null) {
+            resident.setNationId(nationId);
         }
 
-        return residents;
+        resident.setNationRole(NationRole.getByLevel(rs.getInt("nation_role")));
+        resident.setLastOnline(rs.getLong("last_online"));
+        return resident;
     }
 
     public void deleteResident(UUID uuid) {
-        plugin.getAsyncExecutor().runAsync(() -> {
-            try (Connection conn = plugin.getSQLiteManager().getConnection();
-                 PreparedStatement stmt = conn.prepareStatement("DELETE FROM residents WHERE uuid = ?")) {
-
-                stmt.setString(1, uuid.toString());
-                stmt.executeUpdate();
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Failed to delete resident: " + e.getMessage());
-            }
-        });
+        plugin.getDatabaseWriter().submit(new DatabaseWriter.Write("residents", uuid, null).retryOnFailure()
+                .add("DELETE FROM residents WHERE uuid = ?", UUIDCodec.toBytes(uuid)));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,190 @@
+package com.alan.empiresOfAlan.database.migration;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Store every id as a 16-byte BLOB instead of 36 characters of text and add the secondary
+ * indexes the lookups and deletes by town and claim need.
+ * SQLite cannot change a column's type, so each table is rebuilt: the new table is created
+ * beside the old one, the rows are copied with unhex() converting the ids, and the new table
+ * takes the old one's name.
+ */
+class BinaryIdsMigration implements Migration {
+
+    @Override
+    public int getVersion() {
+        return 3;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Binary ids and secondary indexes";
+    }
+
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        rebuild(connection, "residents",
+                "uuid BLOB PRIMARY KEY, " +
+                        "name TEXT, " +
+                        "town_id BLOB, " +
+                        "town_role INTEGER, " +
+                        "nation_id BLOB, " +
+                        "nation_role INTEGER, " +
+                        "last_online BIGINT",
+                Arrays.asList("uuid", "name", "town_id", "town_role", "nation_id", "nation_role", "last_online"),
+                "uuid", "town_id", "nation_id");
+
+        rebuild(connection, "towns",
+                "id BLOB PRIMARY KEY, " +
+                        "name TEXT UNIQUE, " +
+                        "owner_id BLOB, " +
+                        "balance REAL, " +
+                        "nation_id BLOB, " +
+                        "spawn_world TEXT, " +
+                        "spawn_x DOUBLE, " +
+                        "spawn_y DOUBLE, " +
+                        "spawn_z DOUBLE, " +
+                        "spawn_yaw FLOAT, " +
+                        "spawn_pitch FLOAT, " +
+                        "tax_rate REAL, " +
+                        "last_tax_collection BIGINT, " +
+                        "is_public BOOLEAN",
+                Arrays.asList("id", "name", "owner_id", "balance", "nation_id", "spawn_world", "spawn_x", "spawn_y",
+                        "spawn_z", "spawn_yaw", "spawn_pitch", "tax_rate", "last_tax_collection", "is_public"),
+                "id", "owner_id", "nation_id");
+
+        rebuild(connection, "nations",
+                "id BLOB PRIMARY KEY, " +
+                        "name TEXT UNIQUE, " +
+                        "capital_id BLOB, " +
+                        "leader_id BLOB, " +
+                        "balance REAL, " +
+                        "spawn_world TEXT, " +
+                        "spawn_x DOUBLE, " +
+                        "spawn_y DOUBLE, " +
+                        "spawn_z DOUBLE, " +
+                        "spawn_yaw FLOAT, " +
+                        "spawn_pitch FLOAT, " +
+                        "tax_rate REAL, " +
+                        "last_tax_collection BIGINT, " +
+                        "is_public BOOLEAN",
+                Arrays.asList("id", "name", "capital_id", "leader_id", "balance", "spawn_world", "spawn_x", "spawn_y",
+                        "spawn_z", "spawn_yaw", "spawn_pitch", "tax_rate", "last_tax_collection", "is_public"),
+                "id", "capital_id", "leader_id");
+
+        rebuild(connection, "claims",
+                "id BLOB PRIMARY KEY, " +
+                        "world TEXT, " +
+                        "x INTEGER, " +
+                        "z INTEGER, " +
+                        "town_id BLOB, " +
+                        "flags INTEGER, " +
+                        "UNIQUE(world, x, z)",
+                Arrays.asList("id", "world", "x", "z", "town_id", "flags"),
+                "id", "town_id");
+
+        rebuild(connection, "plots",
+                "id BLOB PRIMARY KEY, " +
+                        "claim_id BLOB, " +
+                        "min_x INTEGER, " +
+                        "min_z INTEGER, " +
+                        "max_x INTEGER, " +
+                        "max_z INTEGER, " +
+                        "owner_id BLOB, " +
+                        "flags INTEGER",
+                Arrays.asList("id", "claim_id", "min_x", "min_z", "max_x", "max_z", "owner_id", "flags"),
+                "id", "claim_id", "owner_id");
+
+        rebuild(connection, "town_residents",
+                "town_id BLOB, " +
+                        "resident_id BLOB, " +
+                        "PRIMARY KEY (town_id, resident_id)",
+                Arrays.asList("town_id", "resident_id"),
+                "town_id", "resident_id");
+
+        rebuild(connection, "town_claims",
+                "town_id BLOB, " +
+                        "claim_id BLOB, " +
+                        "PRIMARY KEY (town_id, claim_id)",
+                Arrays.asList("town_id", "claim_id"),
+                "town_id", "claim_id");
+
+        rebuild(connection, "nation_towns",
+                "nation_id BLOB, " +
+                        "town_id BLOB, " +
+                        "PRIMARY KEY (nation_id, town_id)",
+                Arrays.asList("nation_id", "town_id"),
+                "nation_id", "town_id");
+
+        // Dropping the old tables dropped their indexes too
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_residents_name ON residents (name COLLATE NOCASE)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_residents_town ON residents (town_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_claims_town ON claims (town_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_plots_claim ON plots (claim_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_town_claims_claim ON town_claims (claim_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_nation_towns_town ON nation_towns (town_id)");
+        }
+    }
+
+    /**
+     * Rebuild a table with a new definition, converting the id columns from UUID text to bytes
+     *
+     * @param connection The connection
+     * @param table Table name
+     * @param definition Column definitions of the new table
+     * @param columns Columns to copy
+     * @param idColumns Columns holding UUID text
+     * @throws SQLException if an error occurs
+     */
+    private void rebuild(Connection connection, String table, String definition, List<String> columns,
+                         String... idColumns) throws SQLException {
+        Set<String> ids = new HashSet<>(Arrays.asList(idColumns));
+        StringBuilder select = new StringBuilder();
+        for (String column : columns) {
+            if (select.length() > 0) {
+                select.append(", ");
+            }
+            // Values that are not UUID text cannot be converted and are copied unchanged
+            select.append(ids.contains(column)
+                    ? "CASE WHEN typeof(" + column + ") = 'text' THEN coalesce(unhex(replace(" + column + ", '-', '')), "
+                    + column + ") ELSE " + column + " END"
+                    : column);
+        }
+
+        String columnList = String.join(", ", columns);
+        String next = table + "_next";
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS " + next);
+            stmt.execute("CREATE TABLE " + next + " (" + definition + ")");
+            stmt.execute("INSERT INTO " + next + " (" + columnList + ") SELECT " + select + " FROM " + table);
+            checkRowCount(stmt, table, next);
+            stmt.execute("DROP TABLE " + table);
+            stmt.execute("ALTER TABLE " + next + " RENAME TO " + table);
+        }
+    }
+
+    /**
+     * Refuse to replace a table if the copy lost rows
+     */
+    private void checkRowCount(Statement stmt, String table, String copy) throws SQLException {
+        long original;
+        long copied;
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            original = rs.next() ? rs.getLong(1) : 0;
+        }
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + copy)) {
+            copied = rs.next() ? rs.getLong(1) : 0;
+        }
+        if (original != copied) {
+            throw new SQLException("Copied " + copied + " of " + original + " rows of " + table);
+        }
+    }
+}
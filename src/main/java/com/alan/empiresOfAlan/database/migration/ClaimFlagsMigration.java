@@ -0,0 +1,69 @@
+package com.alan.empiresOfAlan.database.migration;
+
+import com.alan.empiresOfAlan.model.enums.ClaimFlag;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fold the legacy one-row-per-flag claim_flags table into the claims.flags mask column
+ */
+class ClaimFlagsMigration implements Migration {
+
+    @Override
+    public int getVersion() {
+        return 2;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Claim flags mask";
+    }
+
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        if (SchemaMigrator.hasColumn(connection, "claims", "flags")) {
+            return;
+        }
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE claims ADD COLUMN flags INTEGER");
+        }
+
+        if (!SchemaMigrator.hasTable(connection, "claim_flags")) {
+            return;
+        }
+
+        // Build each claim's mask starting from the defaults
+        Map<String, Integer> masks = new HashMap<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT claim_id, flag, value FROM claim_flags")) {
+            while (rs.next()) {
+                ClaimFlag flag = ClaimFlag.getById(rs.getString("flag"));
+                if (flag == null) {
+                    continue;
+                }
+                int mask = masks.getOrDefault(rs.getString("claim_id"), ClaimFlag.getDefaultMask());
+                mask = rs.getBoolean("value") ? mask | flag.getMask() : mask & ~flag.getMask();
+                masks.put(rs.getString("claim_id"), mask);
+            }
+        }
+
+        try (PreparedStatement stmt = connection.prepareStatement("UPDATE claims SET flags = ? WHERE id = ?")) {
+            for (Map.Entry<String, Integer> entry : masks.entrySet()) {
+                stmt.setInt(1, entry.getValue());
+                stmt.setString(2, entry.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP TABLE claim_flags");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.alan.empiresOfAlan.database.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Table for the region blob claim storage, one row per 32x32 chunk region with claims
+ */
+class ClaimRegionsMigration implements Migration {
+
+    @Override
+    public int getVersion() {
+        return 4;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Claim region blobs";
+    }
+
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS claim_regions (" +
+                    "world TEXT, " +
+                    "region_x INTEGER, " +
+                    "region_z INTEGER, " +
+                    "data BLOB, " +
+                    "PRIMARY KEY (world, region_x, region_z)" +
+                    ")");
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.alan.empiresOfAlan.database.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The original schema. Tables that already exist are left as they are, so databases created
+ * before schema versions were tracked pass through unchanged.
+ */
+class CreateTablesMigration implements Migration {
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Create tables";
+    }
+
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        // Create residents table
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS residents (" +
+                    "uuid TEXT PRIMARY KEY, " +
+                    "name TEXT, " +
+                    "town_id TEXT, " +
+                    "town_role INTEGER, " +
+                    "nation_id TEXT, " +
+                    "nation_role INTEGER, " +
+                    "last_online BIGINT" +
+                    ")");
+            // Offline residents are looked up by name on demand
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_residents_name ON residents (name COLLATE NOCASE)");
+        }
+
+        // Create towns table
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS towns (" +
+                    "id TEXT PRIMARY KEY, " +
+                    "name TEXT UNIQUE, " +
+                    "owner_id TEXT, " +
+                    "balance REAL, " +
+                    "nation_id TEXT, " +
+                    "spawn_world TEXT, " +
+                    "spawn_x DOUBLE, " +
+                    "spawn_y DOUBLE, " +
+                    "spawn_z DOUBLE, " +
+                    "spawn_yaw FLOAT, " +
+                    "spawn_pitch FLOAT, " +
+                    "tax_rate REAL, " +
+                    "last_tax_collection BIGINT, " +
+                    "is_public BOOLEAN" +
+                    ")");
+        }
+
+        // Create nations table
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS nations (" +
+                    "id TEXT PRIMARY KEY, " +
+                    "name TEXT UNIQUE, " +
+                    "capital_id TEXT, " +
+                    "leader_id TEXT, " +
+                    "balance REAL, " +
+                    "spawn_world TEXT, " +
+                    "spawn_x DOUBLE, " +
+                    "spawn_y DOUBLE, " +
+                    "spawn_z DOUBLE, " +
+                    "spawn_yaw FLOAT, " +
+                    "spawn_pitch FLOAT, " +
+                    "tax_rate REAL, " +
+                    "last_tax_collection BIGINT, " +
+                    "is_public BOOLEAN" +
+                    ")");
+        }
+
+        // Create claims table
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS claims (" +
+                    "id TEXT PRIMARY KEY, " +
+                    "world TEXT, " +
+                    "x INTEGER, " +
+                    "z INTEGER, " +
+                    "town_id TEXT, " +
+                    "flags INTEGER, " +
+                    "UNIQUE(world, x, z)" +
+                    ")");
+        }
+
+        // Create plots table
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS plots (" +
+                    "id TEXT PRIMARY KEY, " +
+                    "claim_id TEXT, " +
+                    "min_x INTEGER, " +
+                    "min_z INTEGER, " +
+                    "max_x INTEGER, " +
+                    "max_z INTEGER, " +
+                    "owner_id TEXT, " +
+                    "flags INTEGER" +
+                    ")");
+        }
+
+        // Create town_residents table
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS town_residents (" +
+                    "town_id TEXT, " +
+                    "resident_id TEXT, " +
+                    "PRIMARY KEY (town_id, resident_id)" +
+                    ")");
+        }
+
+        // Create town_claims table
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS town_claims (" +
+                    "town_id TEXT, " +
+                    "claim_id TEXT, " +
+                    "PRIMARY KEY (town_id, claim_id)" +
+                    ")");
+        }
+
+        // Create nation_towns table
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS nation_towns (" +
+                    "nation_id TEXT, " +
+                    "town_id TEXT, " +
+                    "PRIMARY KEY (nation_id, town_id)" +
+                    ")");
+        }
+    }
+}
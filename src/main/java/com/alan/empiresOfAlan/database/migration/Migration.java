@@ -0,0 +1,33 @@
+package com.alan.empiresOfAlan.database.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * One step of the database schema. Migrations run in version order, each inside its own
+ * transaction together with the schema_version row that records it.
+ */
+public interface Migration {
+
+    /**
+     * Get the schema version this migration brings the database to
+     *
+     * @return The version, starting at 1 and increasing by one per migration
+     */
+    int getVersion();
+
+    /**
+     * Get a short description for the log and the schema_version table
+     *
+     * @return The description
+     */
+    String getDescription();
+
+    /**
+     * Apply the migration. Do not commit or change the auto-commit mode.
+     *
+     * @param connection The writer connection, inside a transaction
+     * @throws SQLException if the migration fails; the transaction is rolled back
+     */
+    void migrate(Connection connection) throws SQLException;
+}
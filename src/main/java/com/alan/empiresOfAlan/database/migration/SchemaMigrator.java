@@ -0,0 +1,137 @@
+package com.alan.empiresOfAlan.database.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Brings the database schema up to date.
+ * The applied versions are recorded in the schema_version table; every pending migration runs
+ * in version order, each in its own transaction, and startup stops at the first one that fails.
+ */
+public class SchemaMigrator {
+    private static final List<Migration> MIGRATIONS = Arrays.asList(
+            new CreateTablesMigration(),
+            new ClaimFlagsMigration(),
+            new BinaryIdsMigration(),
+            new ClaimRegionsMigration(),
+            new StorageMetaMigration()
+    );
+
+    private final Logger logger;
+    private final Connection connection;
+
+    public SchemaMigrator(Logger logger, Connection connection) {
+        this.logger = logger;
+        this.connection = connection;
+    }
+
+    /**
+     * Run every migration newer than the database
+     *
+     * @throws SQLException if a migration fails
+     */
+    public void migrate() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INTEGER PRIMARY KEY, " +
+                    "description TEXT, " +
+                    "applied_at BIGINT" +
+                    ")");
+        }
+
+        int current = getCurrentVersion();
+        int latest = MIGRATIONS.get(MIGRATIONS.size() - 1).getVersion();
+        if (current > latest) {
+            throw new SQLException("Database schema version " + current + " is newer than this plugin supports (" + latest + ")");
+        }
+
+        for (Migration migration : MIGRATIONS) {
+            if (migration.getVersion() > current) {
+                apply(migration);
+            }
+        }
+    }
+
+    /**
+     * Get the newest schema version applied to the database
+     *
+     * @return The version, or 0 for a database that has never been migrated
+     * @throws SQLException if an error occurs
+     */
+    public int getCurrentVersion() throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void apply(Migration migration) throws SQLException {
+        long start = System.nanoTime();
+        connection.setAutoCommit(false);
+        try {
+            migration.migrate(connection);
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, ?)")) {
+                stmt.setInt(1, migration.getVersion());
+                stmt.setString(2, migration.getDescription());
+                stmt.setLong(3, System.currentTimeMillis());
+                stmt.executeUpdate();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw new SQLException("Schema migration " + migration.getVersion() + " (" + migration.getDescription()
+                    + ") failed: " + e.getMessage(), e);
+        } finally {
+            connection.setAutoCommit(true);
+        }
+
+        logger.info("Applied schema migration " + migration.getVersion() + " (" + migration.getDescription()
+                + ") in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+    }
+
+    /**
+     * Check if a table exists
+     *
+     * @param connection The connection
+     * @param table Table name
+     * @return true if the table exists
+     * @throws SQLException if an error occurs
+     */
+    static boolean hasTable(Connection connection, String table) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Check if a table has a column
+     *
+     * @param connection The connection
+     * @param table Table name
+     * @param column Column name
+     * @return true if the column exists
+     * @throws SQLException if an error occurs
+     */
+    static boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,34 @@
+package com.alan.empiresOfAlan.database.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Name/value table for database-wide counters: a random id for this database and the claim
+ * generation, which goes up with every transaction that changes claims
+ */
+class StorageMetaMigration implements Migration {
+
+    @Override
+    public int getVersion() {
+        return 5;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Storage metadata";
+    }
+
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS storage_meta (" +
+                    "name TEXT PRIMARY KEY, " +
+                    "value BIGINT NOT NULL" +
+                    ")");
+            stmt.execute("INSERT OR IGNORE INTO storage_meta (name, value) VALUES ('database_id', random())");
+            stmt.execute("INSERT OR IGNORE INTO storage_meta (name, value) VALUES ('claim_generation', 0)");
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.alan.empiresOfAlan.database.snapshot;
+
+import com.alan.empiresOfAlan.model.Claim;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * A fixed-layout image of every claim, so startup can rebuild the claims without running and
+ * parsing the claim query.
+ * <p>
+ * File layout (big-endian): a 40-byte header with magic, format version, database id, claim
+ * generation, world count, town count, claim count and the CRC32 of the body; then the world
+ * names, the town ids (16 bytes each) and one 36-byte entry per claim: claim id, packed chunk
+ * coordinates, town ordinal, flag mask, world ordinal and two reserved bytes.
+ * <p>
+ * The database id and claim generation are copied from the storage_meta table of the database
+ * the image was taken from. The image is only used while both still match; any committed claim
+ * change moves the generation on.
+ */
+public class ClaimIndexSnapshot {
+    private static final int MAGIC = 0x454F4149; // "EOAI"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+    private static final int ENTRY_BYTES = 36;
+
+    private final File file;
+
+    public ClaimIndexSnapshot(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Get the snapshot file
+     *
+     * @return The file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Encode claims into an image; the database id and generation are filled in by {@link #write}
+     *
+     * @param claims The claims
+     * @return The image
+     */
+    public static byte[] encode(Collection<Claim> claims) {
+        Map<String, Integer> worlds = new HashMap<>();
+        List<byte[]> worldNames = new ArrayList<>();
+        Map<UUID, Integer> towns = new HashMap<>();
+        List<UUID> townIds = new ArrayList<>();
+        int namesBytes = 0;
+        for (Claim claim : claims) {
+            if (!worlds.containsKey(claim.getWorldName())) {
+                byte[] name = claim.getWorldName().getBytes(StandardCharsets.UTF_8);
+                worlds.put(claim.getWorldName(), worldNames.size());
+                worldNames.add(name);
+                namesBytes += 2 + name.length;
+            }
+            if (!towns.containsKey(claim.getTownId())) {
+                towns.put(claim.getTownId(), townIds.size());
+                townIds.add(claim.getTownId());
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + namesBytes + townIds.size() * 16 + claims.size() * ENTRY_BYTES);
+        buffer.position(HEADER_BYTES);
+        for (byte[] name : worldNames) {
+            buffer.putShort((short) name.length);
+            buffer.put(name);
+        }
+        for (UUID townId : townIds) {
+            buffer.putLong(townId.getMostSignificantBits());
+            buffer.putLong(townId.getLeastSignificantBits());
+        }
+        for (Claim claim : claims) {
+            buffer.putLong(claim.getId().getMostSignificantBits());
+            buffer.putLong(claim.getId().getLeastSignificantBits());
+            buffer.putLong(Claim.chunkKey(claim.getX(), claim.getZ()));
+            buffer.putInt(towns.get(claim.getTownId()));
+            buffer.putInt(claim.getFlagMask());
+            buffer.putShort((short) (int) worlds.get(claim.getWorldName()));
+            buffer.putShort((short) 0);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, buffer.capacity() - HEADER_BYTES);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, FORMAT_VERSION);
+        buffer.putInt(24, worldNames.size());
+        buffer.putInt(28, townIds.size());
+        buffer.putInt(32, claims.size());
+        buffer.putInt(36, (int) crc.getValue());
+        return buffer.array();
+    }
+
+    /**
+     * Stamp an image with the database it matches and replace the snapshot file with it
+     *
+     * @param image Image from {@link #encode}
+     * @param databaseId The database_id of the database
+     * @param generation The claim_generation the image matches
+     * @throws IOException if the file cannot be written; the previous one is kept
+     */
+    public void write(byte[] image, long databaseId, long generation) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(image);
+        buffer.putLong(8, databaseId);
+        buffer.putLong(16, generation);
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        File temp = new File(parent, file.getName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Read every claim from the snapshot file if it matches the database.
+     * Nothing is passed to the consumer unless the whole file is valid.
+     *
+     * @param databaseId The database_id of the database
+     * @param generation The current claim_generation of the database
+     * @param consumer Receives each claim
+     * @return false if there is no snapshot or it was taken from another database or generation
+     * @throws IOException if the file cannot be read or is corrupt
+     */
+    public boolean read(long databaseId, long generation, Consumer<Claim> consumer) throws IOException {
+        if (!file.exists()) {
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Claim index " + file.getName() + " has an invalid size");
+            }
+            ByteBuffer data = SnapshotStore.readFully(channel, (int) size);
+
+            if (data.getInt() != MAGIC || data.getInt() != FORMAT_VERSION) {
+                throw new IOException(file.getName() + " is not a claim index of this version");
+            }
+            if (data.getLong() != databaseId || data.getLong() != generation) {
+                return false;
+            }
+            int worldCount = data.getInt();
+            int townCount = data.getInt();
+            int claimCount = data.getInt();
+            int checksum = data.getInt();
+
+            CRC32 crc = new CRC32();
+            crc.update(data.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Claim index " + file.getName() + " failed its checksum");
+            }
+
+            String[] worlds = new String[worldCount];
+            for (int i = 0; i < worldCount; i++) {
+                byte[] name = new byte[data.getShort() & 0xFFFF];
+                data.get(name);
+                worlds[i] = new String(name, StandardCharsets.UTF_8);
+            }
+            UUID[] towns = new UUID[townCount];
+            for (int i = 0; i < townCount; i++) {
+                towns[i] = new UUID(data.getLong(), data.getLong());
+            }
+            if (data.remaining() != (long) claimCount * ENTRY_BYTES) {
+                throw new IOException("Claim index " + file.getName() + " is truncated");
+            }
+
+            for (int i = 0; i < claimCount; i++) {
+                UUID id = new UUID(data.getLong(), data.getLong());
+                long key = data.getLong();
+                UUID townId = towns[data.getInt()];
+                int flags = data.getInt();
+                String world = worlds[data.getShort()];
+                data.getShort();
+
+                Claim claim = new Claim(id, world, (int) (key >> 32), (int) key, townId);
+                claim.setFlagMask(flags);
+                claim.clearDirty();
+                consumer.accept(claim);
+            }
+        }
+        return true;
+    }
+}
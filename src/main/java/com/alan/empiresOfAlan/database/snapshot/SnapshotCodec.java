@@ -0,0 +1,313 @@
+package com.alan.empiresOfAlan.database.snapshot;
+
+import com.alan.empiresOfAlan.model.Claim;
+import com.alan.empiresOfAlan.model.Nation;
+import com.alan.empiresOfAlan.model.Plot;
+import com.alan.empiresOfAlan.model.Resident;
+import com.alan.empiresOfAlan.model.Town;
+import com.alan.empiresOfAlan.model.enums.NationRole;
+import com.alan.empiresOfAlan.model.enums.TownRole;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Encodes entities as snapshot records. Every record starts with the entity's 16-byte id, so the
+ * store can key records without decoding them; the rest is big-endian fields in a fixed order,
+ * with a presence byte before every optional value.
+ */
+public final class SnapshotCodec {
+
+    private SnapshotCodec() {
+    }
+
+    /**
+     * Read the id a record starts with
+     *
+     * @param record The record
+     * @return The entity id
+     */
+    public static UUID readId(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    public static byte[] encodeResident(Resident resident) {
+        Encoder out = new Encoder(64);
+        out.uuid(resident.getUuid());
+        out.string(resident.getName());
+        out.optionalUuid(resident.getTownId());
+        out.buffer.put((byte) resident.getTownRole().getLevel());
+        out.optionalUuid(resident.getNationId());
+        out.buffer.put((byte) resident.getNationRole().getLevel());
+        out.buffer.putLong(resident.getLastOnline());
+        return out.toArray();
+    }
+
+    public static Resident decodeResident(byte[] record) {
+        ByteBuffer in = ByteBuffer.wrap(record);
+        Resident resident = new Resident(uuid(in), string(in));
+        UUID townId = optionalUuid(in);
+        if (townId != null) {
+            resident.setTownId(townId);
+        }
+        resident.setTownRole(TownRole.getByLevel(in.get()));
+        UUID nationId = optionalUuid(in);
+        if (nationId != null) {
+            resident.setNationId(nationId);
+        }
+        resident.setNationRole(NationRole.getByLevel(in.get()));
+        resident.setLastOnline(in.getLong());
+        resident.clearDirty();
+        return resident;
+    }
+
+    /**
+     * Check if a resident record belongs to a town without decoding the rest of it
+     *
+     * @param record The resident record
+     * @return true if the resident is in a town
+     */
+    public static boolean residentHasTown(byte[] record) {
+        ByteBuffer in = ByteBuffer.wrap(record);
+        in.position(16);
+        int nameLength = in.getShort() & 0xFFFF;
+        in.position(in.position() + nameLength);
+        return in.get() != 0;
+    }
+
+    public static byte[] encodeTown(Town town) {
+        Encoder out = new Encoder(128 + (town.getResidents().size() + town.getClaims().size()) * 16);
+        out.uuid(town.getId());
+        out.string(town.getName());
+        out.uuid(town.getOwnerId());
+        out.buffer.putDouble(town.getBankAccount().getBalance());
+        out.optionalUuid(town.getNationId());
+        out.spawn(town.hasSpawn() ? town.getSpawn() : null);
+        out.buffer.putDouble(town.getTaxRate());
+        out.buffer.putLong(town.getLastTaxCollection());
+        out.buffer.put((byte) (town.isPublic() ? 1 : 0));
+        out.uuids(town.getResidents());
+        out.uuids(town.getClaims());
+        return out.toArray();
+    }
+
+    public static Town decodeTown(byte[] record) {
+        ByteBuffer in = ByteBuffer.wrap(record);
+        UUID id = uuid(in);
+        String name = string(in);
+        Town town = new Town(id, name, uuid(in));
+        town.getBankAccount().setBalance(in.getDouble());
+        UUID nationId = optionalUuid(in);
+        if (nationId != null) {
+            town.setNationId(nationId);
+        }
+        Location spawn = spawn(in);
+        if (spawn != null) {
+            town.setSpawn(spawn);
+        }
+        town.setTaxRate(in.getDouble());
+        town.setLastTaxCollection(in.getLong());
+        town.setPublic(in.get() != 0);
+        for (int i = in.getInt(); i > 0; i--) {
+            town.addResident(uuid(in));
+        }
+        for (int i = in.getInt(); i > 0; i--) {
+            town.addClaim(uuid(in));
+        }
+        town.clearDirty();
+        return town;
+    }
+
+    public static byte[] encodeNation(Nation nation) {
+        Encoder out = new Encoder(128 + nation.getTowns().size() * 16);
+        out.uuid(nation.getId());
+        out.string(nation.getName());
+        out.uuid(nation.getCapitalId());
+        out.uuid(nation.getLeaderId());
+        out.buffer.putDouble(nation.getBankAccount().getBalance());
+        out.spawn(nation.hasSpawn() ? nation.getSpawn() : null);
+        out.buffer.putDouble(nation.getTaxRate());
+        out.buffer.putLong(nation.getLastTaxCollection());
+        out.buffer.put((byte) (nation.isPublic() ? 1 : 0));
+        out.uuids(nation.getTowns());
+        return out.toArray();
+    }
+
+    public static Nation decodeNation(byte[] record) {
+        ByteBuffer in = ByteBuffer.wrap(record);
+        UUID id = uuid(in);
+        String name = string(in);
+        UUID capitalId = uuid(in);
+        Nation nation = new Nation(id, name, capitalId, uuid(in));
+        nation.getBankAccount().setBalance(in.getDouble());
+        Location spawn = spawn(in);
+        if (spawn != null) {
+            nation.setSpawn(spawn);
+        }
+        nation.setTaxRate(in.getDouble());
+        nation.setLastTaxCollection(in.getLong());
+        nation.setPublic(in.get() != 0);
+        for (int i = in.getInt(); i > 0; i--) {
+            nation.addTown(uuid(in));
+        }
+        nation.clearDirty();
+        return nation;
+    }
+
+    public static byte[] encodeClaim(Claim claim) {
+        Encoder out = new Encoder(64);
+        out.uuid(claim.getId());
+        out.string(claim.getWorldName());
+        out.buffer.putInt(claim.getX());
+        out.buffer.putInt(claim.getZ());
+        out.uuid(claim.getTownId());
+        out.buffer.putInt(claim.getFlagMask());
+        return out.toArray();
+    }
+
+    public static Claim decodeClaim(byte[] record) {
+        ByteBuffer in = ByteBuffer.wrap(record);
+        Claim claim = new Claim(uuid(in), string(in), in.getInt(), in.getInt(), uuid(in));
+        claim.setFlagMask(in.getInt());
+        claim.clearDirty();
+        return claim;
+    }
+
+    public static byte[] encodePlot(Plot plot) {
+        Encoder out = new Encoder(72);
+        out.uuid(plot.getId());
+        out.uuid(plot.getClaimId());
+        out.buffer.putInt(plot.getMinX());
+        out.buffer.putInt(plot.getMinZ());
+        out.buffer.putInt(plot.getMaxX());
+        out.buffer.putInt(plot.getMaxZ());
+        out.optionalUuid(plot.getOwnerId());
+        out.buffer.putInt(plot.getFlagMask());
+        return out.toArray();
+    }
+
+    public static Plot decodePlot(byte[] record) {
+        ByteBuffer in = ByteBuffer.wrap(record);
+        Plot plot = new Plot(uuid(in), uuid(in), in.getInt(), in.getInt(), in.getInt(), in.getInt());
+        UUID ownerId = optionalUuid(in);
+        if (ownerId != null) {
+            plot.setOwnerId(ownerId);
+        }
+        plot.setFlagMask(in.getInt());
+        plot.clearDirty();
+        return plot;
+    }
+
+    /**
+     * Get the claim a plot record belongs to without decoding the rest of it
+     *
+     * @param record The plot record
+     * @return The claim id
+     */
+    public static UUID plotClaimId(byte[] record) {
+        ByteBuffer in = ByteBuffer.wrap(record);
+        in.position(16);
+        return uuid(in);
+    }
+
+    private static UUID uuid(ByteBuffer in) {
+        return new UUID(in.getLong(), in.getLong());
+    }
+
+    private static UUID optionalUuid(ByteBuffer in) {
+        return in.get() != 0 ? uuid(in) : null;
+    }
+
+    private static String string(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Location spawn(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        String worldName = string(in);
+        double x = in.getDouble();
+        double y = in.getDouble();
+        double z = in.getDouble();
+        float yaw = in.getFloat();
+        float pitch = in.getFloat();
+
+        World world = Bukkit.getWorld(worldName);
+        return world != null ? new Location(world, x, y, z, yaw, pitch) : null;
+    }
+
+    /**
+     * Growable big-endian record buffer
+     */
+    private static final class Encoder {
+        private ByteBuffer buffer;
+
+        private Encoder(int capacity) {
+            this.buffer = ByteBuffer.allocate(capacity);
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes + 64) {
+                buffer = ByteBuffer.wrap(Arrays.copyOf(buffer.array(), buffer.capacity() * 2 + bytes)).position(buffer.position());
+            }
+        }
+
+        private void uuid(UUID uuid) {
+            ensure(16);
+            buffer.putLong(uuid.getMostSignificantBits());
+            buffer.putLong(uuid.getLeastSignificantBits());
+        }
+
+        private void optionalUuid(UUID uuid) {
+            ensure(17);
+            buffer.put((byte) (uuid != null ? 1 : 0));
+            if (uuid != null) {
+                uuid(uuid);
+            }
+        }
+
+        private void uuids(Collection<UUID> uuids) {
+            ensure(4 + uuids.size() * 16);
+            buffer.putInt(uuids.size());
+            for (UUID uuid : uuids) {
+                uuid(uuid);
+            }
+        }
+
+        private void string(String value) {
+            byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+            ensure(2 + bytes.length);
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void spawn(Location spawn) {
+            ensure(1);
+            if (spawn == null || spawn.getWorld() == null) {
+                buffer.put((byte) 0);
+                return;
+            }
+            buffer.put((byte) 1);
+            string(spawn.getWorld().getName());
+            buffer.putDouble(spawn.getX());
+            buffer.putDouble(spawn.getY());
+            buffer.putDouble(spawn.getZ());
+            buffer.putFloat(spawn.getYaw());
+            buffer.putFloat(spawn.getPitch());
+        }
+
+        private byte[] toArray() {
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+    }
+}
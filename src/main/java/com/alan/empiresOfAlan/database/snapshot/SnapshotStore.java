@@ -0,0 +1,263 @@
+package com.alan.empiresOfAlan.database.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Every entity as an encoded record in memory, written to one binary file as a whole.
+ * <p>
+ * File layout (big-endian): magic, format version, generation (long), body length (long) and the
+ * CRC32 of the body (int), then the body: for each section its record count followed by the
+ * records, each prefixed with its length. The file is read onto the heap in one pass and replaced
+ * atomically on every write, so a crash leaves either the old or the new snapshot.
+ */
+public class SnapshotStore {
+    public static final int RESIDENTS = 0;
+    public static final int TOWNS = 1;
+    public static final int NATIONS = 2;
+    public static final int CLAIMS = 3;
+    public static final int PLOTS = 4;
+    private static final int SECTIONS = 5;
+
+    private static final int MAGIC = 0x454F4153; // "EOAS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4;
+
+    private final File file;
+    private final List<Map<UUID, byte[]>> sections = new ArrayList<>(SECTIONS);
+    private long generation;
+
+    public SnapshotStore(File file) {
+        this.file = file;
+        for (int i = 0; i < SECTIONS; i++) {
+            sections.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Get the snapshot file
+     *
+     * @return The file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Get the generation of the last snapshot read or written; it goes up by one with every write
+     *
+     * @return The generation, 0 before the first snapshot
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Add or replace a record
+     *
+     * @param section Section index
+     * @param record The encoded entity, starting with its id
+     */
+    public synchronized void put(int section, byte[] record) {
+        sections.get(section).put(SnapshotCodec.readId(record), record);
+    }
+
+    /**
+     * Remove a record
+     *
+     * @param section Section index
+     * @param id Entity id
+     * @return The removed record, or null if there was none
+     */
+    public synchronized byte[] remove(int section, UUID id) {
+        return sections.get(section).remove(id);
+    }
+
+    /**
+     * Get a record
+     *
+     * @param section Section index
+     * @param id Entity id
+     * @return The record, or null if there is none
+     */
+    public synchronized byte[] get(int section, UUID id) {
+        return sections.get(section).get(id);
+    }
+
+    /**
+     * Get a copy of the records of a section; records are never changed in place
+     *
+     * @param section Section index
+     * @return The records
+     */
+    public synchronized List<byte[]> records(int section) {
+        return new ArrayList<>(sections.get(section).values());
+    }
+
+    /**
+     * Read a whole file into a heap buffer. A mapping is not used because it stays open until it
+     * is garbage collected, and Windows refuses to replace a file that is still mapped.
+     *
+     * @param channel The open file
+     * @param size The file size
+     * @return The contents, positioned at the start
+     * @throws IOException if the file cannot be read or ends early
+     */
+    static ByteBuffer readFully(FileChannel channel, int size) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(size);
+        while (data.hasRemaining()) {
+            if (channel.read(data, data.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        return data.flip();
+    }
+
+    /**
+     * Replace the records in memory with the snapshot file
+     *
+     * @return true if a snapshot was read, false if there is no snapshot file
+     * @throws IOException if the file cannot be read or is corrupt
+     */
+    public boolean load() throws IOException {
+        if (!file.exists()) {
+            return false;
+        }
+
+        List<Map<UUID, byte[]>> loaded = new ArrayList<>(SECTIONS);
+        long loadedGeneration;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Snapshot " + file.getName() + " is truncated");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + file.getName() + " is too large");
+            }
+            ByteBuffer data = readFully(channel, (int) size);
+
+            if (data.getInt() != MAGIC) {
+                throw new IOException(file.getName() + " is not a snapshot");
+            }
+            int version = data.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unknown snapshot format " + version);
+            }
+            loadedGeneration = data.getLong();
+            long bodyLength = data.getLong();
+            int checksum = data.getInt();
+            if (bodyLength != size - HEADER_BYTES) {
+                throw new IOException("Snapshot " + file.getName() + " is truncated");
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(data.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Snapshot " + file.getName() + " failed its checksum");
+            }
+
+            for (int i = 0; i < SECTIONS; i++) {
+                int count = data.getInt();
+                Map<UUID, byte[]> records = new HashMap<>(Math.max(16, count * 4 / 3 + 1));
+                for (int j = 0; j < count; j++) {
+                    byte[] record = new byte[data.getInt()];
+                    data.get(record);
+                    records.put(SnapshotCodec.readId(record), record);
+                }
+                loaded.add(records);
+            }
+        }
+
+        synchronized (this) {
+            for (int i = 0; i < SECTIONS; i++) {
+                sections.set(i, loaded.get(i));
+            }
+            generation = loadedGeneration;
+        }
+        return true;
+    }
+
+    /**
+     * Write every record to a new snapshot file that replaces the current one.
+     * Changes made while the file is written go into the next snapshot.
+     *
+     * @return The size of the snapshot in bytes
+     * @throws IOException if the snapshot cannot be written; the previous one is kept
+     */
+    public long write() throws IOException {
+        List<List<byte[]>> copy = new ArrayList<>(SECTIONS);
+        long nextGeneration;
+        synchronized (this) {
+            for (Map<UUID, byte[]> records : sections) {
+                copy.add(new ArrayList<>(records.values()));
+            }
+            nextGeneration = generation + 1;
+        }
+
+        long bodyLength = 0;
+        for (List<byte[]> records : copy) {
+            bodyLength += 4;
+            for (byte[] record : records) {
+                bodyLength += 4 + record.length;
+            }
+        }
+        if (HEADER_BYTES + bodyLength > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot is too large (" + bodyLength + " bytes)");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) (HEADER_BYTES + bodyLength));
+        buffer.position(HEADER_BYTES);
+        for (List<byte[]> records : copy) {
+            buffer.putInt(records.size());
+            for (byte[] record : records) {
+                buffer.putInt(record.length);
+                buffer.put(record);
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, (int) bodyLength);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, FORMAT_VERSION);
+        buffer.putLong(8, nextGeneration);
+        buffer.putLong(16, bodyLength);
+        buffer.putInt(24, (int) crc.getValue());
+        buffer.flip();
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        File temp = new File(parent, file.getName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        synchronized (this) {
+            generation = nextGeneration;
+        }
+        return HEADER_BYTES + bodyLength;
+    }
+}
@@ -0,0 +1,76 @@
+package com.alan.empiresOfAlan.events.claim;
+
+import com.alan.empiresOfAlan.model.Claim;
+import com.alan.empiresOfAlan.model.Town;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Event that is called once when a region of claims is added to a town, after any cost was
+ * charged; cancelling it refunds the cost
+ */
+public class ClaimRegionAddedEvent extends Event implements Cancellable {
+    private static final HandlerList HANDLERS = new HandlerList();
+    private final List<Claim> claims;
+    private final Town town;
+    private final Player claimer;
+    private boolean cancelled;
+
+    public ClaimRegionAddedEvent(List<Claim> claims, Town town, Player claimer) {
+        this.claims = Collections.unmodifiableList(claims);
+        this.town = town;
+        this.claimer = claimer;
+        this.cancelled = false;
+    }
+
+    /**
+     * Get the claims being added
+     *
+     * @return Unmodifiable list of claims
+     */
+    public List<Claim> getClaims() {
+        return claims;
+    }
+
+    /**
+     * Get the town the claims are being added to
+     *
+     * @return The town
+     */
+    public Town getTown() {
+        return town;
+    }
+
+    /**
+     * Get the player whose chunks are being claimed for the town
+     *
+     * @return The claimer, or null if done by console/system
+     */
+    public Player getClaimer() {
+        return claimer;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
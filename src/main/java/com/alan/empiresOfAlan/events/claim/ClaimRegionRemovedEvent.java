@@ -0,0 +1,75 @@
+package com.alan.empiresOfAlan.events.claim;
+
+import com.alan.empiresOfAlan.model.Claim;
+import com.alan.empiresOfAlan.model.Town;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Event that is called once when a region of claims is removed from a town
+ */
+public class ClaimRegionRemovedEvent extends Event implements Cancellable {
+    private static final HandlerList HANDLERS = new HandlerList();
+    private final List<Claim> claims;
+    private final Town town;
+    private final Player unclaimer;
+    private boolean cancelled;
+
+    public ClaimRegionRemovedEvent(List<Claim> claims, Town town, Player unclaimer) {
+        this.claims = Collections.unmodifiableList(claims);
+        this.town = town;
+        this.unclaimer = unclaimer;
+        this.cancelled = false;
+    }
+
+    /**
+     * Get the claims being removed
+     *
+     * @return Unmodifiable list of claims
+     */
+    public List<Claim> getClaims() {
+        return claims;
+    }
+
+    /**
+     * Get the town the claims are being removed from
+     *
+     * @return The town
+     */
+    public Town getTown() {
+        return town;
+    }
+
+    /**
+     * Get the player whose chunks are being unclaimed from the town
+     *
+     * @return The unclaimer, or null if done by console/system
+     */
+    public Player getUnclaimer() {
+        return unclaimer;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
@@ -0,0 +1,94 @@
+package com.alan.empiresOfAlan.events.claim;
+
+import com.alan.empiresOfAlan.events.EmpireEvent;
+import com.alan.empiresOfAlan.managers.TownManager;
+import com.alan.empiresOfAlan.model.Town;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.HandlerList;
+
+import java.util.UUID;
+
+/**
+ * Event that is called when a player moves into a chunk owned by a different town
+ * (or between a town and the wilderness). Cancelling it keeps the player where they were.
+ */
+public class PlayerTerritoryChangeEvent extends EmpireEvent implements Cancellable {
+    private static final HandlerList HANDLERS = new HandlerList();
+    private final Player player;
+    private final UUID fromTownId;
+    private final UUID toTownId;
+    private final Location from;
+    private final Location to;
+
+    public PlayerTerritoryChangeEvent(Player player, UUID fromTownId, UUID toTownId, Location from, Location to) {
+        this.player = player;
+        this.fromTownId = fromTownId;
+        this.toTownId = toTownId;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Get the player that is moving
+     *
+     * @return The player
+     */
+    public Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Get the town the player is leaving
+     *
+     * @return Town UUID, or null if leaving the wilderness
+     */
+    public UUID getFromTownId() {
+        return fromTownId;
+    }
+
+    /**
+     * Get the town the player is entering
+     *
+     * @return Town UUID, or null if entering the wilderness
+     */
+    public UUID getToTownId() {
+        return toTownId;
+    }
+
+    /**
+     * Get the town the player is leaving
+     *
+     * @return The town, or null if leaving the wilderness
+     */
+    public Town getFromTown() {
+        return TownManager.getInstance().getTown(fromTownId);
+    }
+
+    /**
+     * Get the town the player is entering
+     *
+     * @return The town, or null if entering the wilderness
+     */
+    public Town getToTown() {
+        return TownManager.getInstance().getTown(toTownId);
+    }
+
+    public Location getFrom() {
+        return from;
+    }
+
+    public Location getTo() {
+        return to;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
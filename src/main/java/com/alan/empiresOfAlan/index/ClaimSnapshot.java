@@ -0,0 +1,237 @@
+package com.alan.empiresOfAlan.index;
+
+import com.alan.empiresOfAlan.model.Claim;
+import com.alan.empiresOfAlan.model.ClaimFlagSet;
+import com.alan.empiresOfAlan.model.enums.ClaimFlag;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Immutable view of every claim, safe to read from any thread without locking.
+ * The main thread builds a new snapshot after each batch of claim changes and publishes it
+ * through a volatile field; only the region tiles that changed are rebuilt; the rest are
+ * shared with the previous snapshot.
+ */
+public final class ClaimSnapshot {
+    public static final ClaimSnapshot EMPTY = new ClaimSnapshot(Collections.emptyMap(), 0, 0);
+
+    private static final int TILE_AREA = RegionTile.SIZE * RegionTile.SIZE;
+
+    private final Map<String, LongObjectMap<Entry[]>> worlds; // world name -> region key -> tile entries
+    private final long version;
+    private final int size;
+
+    private ClaimSnapshot(Map<String, LongObjectMap<Entry[]>> worlds, long version, int size) {
+        this.worlds = worlds;
+        this.version = version;
+        this.size = size;
+    }
+
+    /**
+     * Get the claim at chunk coordinates
+     *
+     * @param worldName World name
+     * @param chunkX Chunk X
+     * @param chunkZ Chunk Z
+     * @return The claim entry or null if unclaimed
+     */
+    public Entry getClaimAtChunk(String worldName, int chunkX, int chunkZ) {
+        LongObjectMap<Entry[]> tiles = worlds.get(worldName);
+        if (tiles == null) {
+            return null;
+        }
+
+        Entry[] tile = tiles.get(Claim.chunkKey(chunkX >> RegionTile.SHIFT, chunkZ >> RegionTile.SHIFT));
+        return tile != null ? tile[slot(chunkX, chunkZ)] : null;
+    }
+
+    /**
+     * Get the claim at block coordinates
+     *
+     * @param worldName World name
+     * @param blockX Block X
+     * @param blockZ Block Z
+     * @return The claim entry or null if unclaimed
+     */
+    public Entry getClaimAt(String worldName, int blockX, int blockZ) {
+        return getClaimAtChunk(worldName, blockX >> 4, blockZ >> 4);
+    }
+
+    /**
+     * Get the town that owns block coordinates
+     *
+     * @param worldName World name
+     * @param blockX Block X
+     * @param blockZ Block Z
+     * @return Town UUID or null if unclaimed
+     */
+    public UUID getTownAt(String worldName, int blockX, int blockZ) {
+        Entry entry = getClaimAt(worldName, blockX, blockZ);
+        return entry != null ? entry.townId : null;
+    }
+
+    /**
+     * Check if block coordinates are claimed
+     *
+     * @param worldName World name
+     * @param blockX Block X
+     * @param blockZ Block Z
+     * @return true if claimed
+     */
+    public boolean isClaimed(String worldName, int blockX, int blockZ) {
+        return getClaimAt(worldName, blockX, blockZ) != null;
+    }
+
+    /**
+     * Get the claim version this snapshot was built from
+     *
+     * @return The version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the number of claims in the snapshot
+     *
+     * @return The claim count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Build the next snapshot, rebuilding only the changed region tiles
+     *
+     * @param indexes The live world indexes (main thread)
+     * @param dirtyTiles World name -> region keys of the tiles that changed
+     * @param version The live claim version
+     * @return The new snapshot
+     */
+    public ClaimSnapshot withChanges(Map<String, WorldClaimIndex> indexes,
+                                     Map<String, LongObjectMap<Boolean>> dirtyTiles, long version) {
+        Map<String, LongObjectMap<Entry[]>> nextWorlds = new HashMap<>(worlds);
+        int[] nextSize = {size};
+
+        for (Map.Entry<String, LongObjectMap<Boolean>> dirty : dirtyTiles.entrySet()) {
+            String worldName = dirty.getKey();
+            WorldClaimIndex index = indexes.get(worldName);
+            LongObjectMap<Entry[]> previous = worlds.get(worldName);
+
+            // Copy the tile references, then replace the changed tiles
+            LongObjectMap<Entry[]> tiles = new LongObjectMap<>(previous != null ? previous.size() + 1 : 16);
+            if (previous != null) {
+                previous.forEach(tiles::put);
+            }
+
+            dirty.getValue().forEach((regionKey, ignored) -> {
+                Entry[] old = tiles.remove(regionKey);
+                if (old != null) {
+                    nextSize[0] -= count(old);
+                }
+
+                Entry[] rebuilt = index != null ? buildTile(index, (int) (regionKey >> 32), (int) regionKey) : null;
+                if (rebuilt != null) {
+                    tiles.put(regionKey, rebuilt);
+                    nextSize[0] += count(rebuilt);
+                }
+            });
+
+            if (tiles.isEmpty()) {
+                nextWorlds.remove(worldName);
+            } else {
+                nextWorlds.put(worldName, tiles);
+            }
+        }
+
+        return new ClaimSnapshot(Collections.unmodifiableMap(nextWorlds), version, nextSize[0]);
+    }
+
+    private static Entry[] buildTile(WorldClaimIndex index, int regionX, int regionZ) {
+        int baseX = regionX << RegionTile.SHIFT;
+        int baseZ = regionZ << RegionTile.SHIFT;
+        List<Claim> claims = index.claimsInBox(baseX, baseZ, baseX + RegionTile.MASK, baseZ + RegionTile.MASK);
+        if (claims.isEmpty()) {
+            return null;
+        }
+
+        Entry[] tile = new Entry[TILE_AREA];
+        for (Claim claim : claims) {
+            tile[slot(claim.getX(), claim.getZ())] = new Entry(claim);
+        }
+        return tile;
+    }
+
+    private static int count(Entry[] tile) {
+        int count = 0;
+        for (Entry entry : tile) {
+            if (entry != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int slot(int chunkX, int chunkZ) {
+        return ((chunkZ & RegionTile.MASK) << RegionTile.SHIFT) | (chunkX & RegionTile.MASK);
+    }
+
+    /**
+     * Immutable copy of one claim
+     */
+    public static final class Entry {
+        private final UUID id;
+        private final UUID townId;
+        private final String worldName;
+        private final int x;
+        private final int z;
+        private final ClaimFlagSet flags;
+
+        private Entry(Claim claim) {
+            this.id = claim.getId();
+            this.townId = claim.getTownId();
+            this.worldName = claim.getWorldName();
+            this.x = claim.getX();
+            this.z = claim.getZ();
+            this.flags = claim.getFlagSet();
+        }
+
+        public UUID getId() {
+            return id;
+        }
+
+        public UUID getTownId() {
+            return townId;
+        }
+
+        public String getWorldName() {
+            return worldName;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getZ() {
+            return z;
+        }
+
+        public ClaimFlagSet getFlags() {
+            return flags;
+        }
+
+        /**
+         * Check if a flag is enabled
+         *
+         * @param flag The flag
+         * @return true if enabled
+         */
+        public boolean getFlag(ClaimFlag flag) {
+            return flags.has(flag);
+        }
+    }
+}
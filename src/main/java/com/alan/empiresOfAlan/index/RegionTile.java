@@ -0,0 +1,150 @@
+package com.alan.empiresOfAlan.index;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Summary of a 32x32 chunk region: an occupancy bitmap of its claimed chunks
+ * and the number of claims each town has inside it
+ */
+public class RegionTile {
+    public static final int SHIFT = 5;
+    public static final int SIZE = 1 << SHIFT;
+    public static final int MASK = SIZE - 1;
+
+    private final int regionX;
+    private final int regionZ;
+    private final long[] occupancy; // Two 32-chunk rows per long, bit = ((localZ & 1) << 5) | localX
+    private final Map<UUID, Integer> townCounts;
+    private int count;
+
+    public RegionTile(int regionX, int regionZ) {
+        this.regionX = regionX;
+        this.regionZ = regionZ;
+        this.occupancy = new long[SIZE / 2];
+        this.townCounts = new HashMap<>(4);
+    }
+
+    public int getRegionX() {
+        return regionX;
+    }
+
+    public int getRegionZ() {
+        return regionZ;
+    }
+
+    /**
+     * Mark a chunk as claimed by a town
+     *
+     * @param localX Chunk X inside the region (0-31)
+     * @param localZ Chunk Z inside the region (0-31)
+     * @param townId The owning town
+     */
+    public void add(int localX, int localZ, UUID townId) {
+        long bit = 1L << (((localZ & 1) << 5) | localX);
+        int word = localZ >> 1;
+        if ((occupancy[word] & bit) == 0) {
+            occupancy[word] |= bit;
+            count++;
+        }
+        townCounts.merge(townId, 1, Integer::sum);
+    }
+
+    /**
+     * Mark a chunk as no longer claimed by a town
+     *
+     * @param localX Chunk X inside the region (0-31)
+     * @param localZ Chunk Z inside the region (0-31)
+     * @param townId The town that owned it
+     */
+    public void remove(int localX, int localZ, UUID townId) {
+        long bit = 1L << (((localZ & 1) << 5) | localX);
+        int word = localZ >> 1;
+        if ((occupancy[word] & bit) != 0) {
+            occupancy[word] &= ~bit;
+            count--;
+        }
+        townCounts.computeIfPresent(townId, (id, claims) -> claims > 1 ? claims - 1 : null);
+    }
+
+    /**
+     * Check if a chunk is claimed
+     *
+     * @param localX Chunk X inside the region (0-31)
+     * @param localZ Chunk Z inside the region (0-31)
+     * @return true if claimed
+     */
+    public boolean contains(int localX, int localZ) {
+        return (occupancy[localZ >> 1] & (1L << (((localZ & 1) << 5) | localX))) != 0;
+    }
+
+    /**
+     * Get the claimed chunks of one row, limited to a range of columns
+     *
+     * @param localZ Row inside the region (0-31)
+     * @param minLocalX First column (inclusive)
+     * @param maxLocalX Last column (inclusive)
+     * @return Bit i is set if chunk (i, localZ) is claimed
+     */
+    public long rowBits(int localZ, int minLocalX, int maxLocalX) {
+        long row = (occupancy[localZ >> 1] >>> ((localZ & 1) << 5)) & 0xFFFFFFFFL;
+        long range = ((1L << (maxLocalX - minLocalX + 1)) - 1) << minLocalX;
+        return row & range;
+    }
+
+    /**
+     * Check if any chunk inside a box of local coordinates is claimed
+     *
+     * @param minLocalX Minimum local X (inclusive)
+     * @param minLocalZ Minimum local Z (inclusive)
+     * @param maxLocalX Maximum local X (inclusive)
+     * @param maxLocalZ Maximum local Z (inclusive)
+     * @return true if at least one chunk is claimed
+     */
+    public boolean containsAny(int minLocalX, int minLocalZ, int maxLocalX, int maxLocalZ) {
+        if (count == 0) {
+            return false;
+        }
+        for (int localZ = minLocalZ; localZ <= maxLocalZ; localZ++) {
+            if (rowBits(localZ, minLocalX, maxLocalX) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of claimed chunks in the region
+     *
+     * @return The claim count
+     */
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Get the towns with at least one claim in the region
+     *
+     * @return Live view of the town IDs
+     */
+    public Set<UUID> getTownIds() {
+        return townCounts.keySet();
+    }
+
+    /**
+     * Check if a town other than the given one has claims in the region
+     *
+     * @param townId Town UUID
+     * @return true if another town has claims here
+     */
+    public boolean hasOtherTown(UUID townId) {
+        int size = townCounts.size();
+        return size > 1 || (size == 1 && !townCounts.containsKey(townId));
+    }
+}
@@ -0,0 +1,420 @@
+package com.alan.empiresOfAlan.index;
+
+import com.alan.empiresOfAlan.model.Claim;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Connectivity of a town's claims, kept as a union-find over chunk coordinates per world.
+ * Claims are joined to their four orthogonal neighbours as they are added. Removing a chunk
+ * that cannot split its parcel only drops it from the chunk map (its union-find node stays
+ * behind as a ghost); removing a chunk that may split its parcel rebuilds that parcel only.
+ */
+public class TownTerritory {
+    private static final int[] RING_X = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final int[] RING_Z = {-1, -1, 0, 1, 1, 1, 0, -1};
+
+    private final UUID townId;
+    private final Map<String, WorldParcels> worlds;
+
+    public TownTerritory(UUID townId) {
+        this.townId = townId;
+        this.worlds = new HashMap<>();
+    }
+
+    public UUID getTownId() {
+        return townId;
+    }
+
+    /**
+     * Add a claimed chunk to the territory
+     *
+     * @param claim The claim
+     */
+    public void add(Claim claim) {
+        worlds.computeIfAbsent(claim.getWorldName(), name -> new WorldParcels()).add(claim.getChunkKey());
+    }
+
+    /**
+     * Remove a claimed chunk from the territory
+     *
+     * @param claim The claim
+     */
+    public void remove(Claim claim) {
+        WorldParcels parcels = worlds.get(claim.getWorldName());
+        if (parcels != null && parcels.remove(claim.getChunkKey()) && parcels.isEmpty()) {
+            worlds.remove(claim.getWorldName());
+        }
+    }
+
+    /**
+     * Check if the territory has a chunk
+     *
+     * @param worldName World name
+     * @param chunkX Chunk X
+     * @param chunkZ Chunk Z
+     * @return true if the chunk belongs to the territory
+     */
+    public boolean contains(String worldName, int chunkX, int chunkZ) {
+        WorldParcels parcels = worlds.get(worldName);
+        return parcels != null && parcels.contains(Claim.chunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * Check if a chunk shares an edge with the territory
+     *
+     * @param worldName World name
+     * @param chunkX Chunk X
+     * @param chunkZ Chunk Z
+     * @return true if one of the four neighbouring chunks belongs to the territory
+     */
+    public boolean isAdjacent(String worldName, int chunkX, int chunkZ) {
+        WorldParcels parcels = worlds.get(worldName);
+        return parcels != null && parcels.isAdjacent(chunkX, chunkZ);
+    }
+
+    /**
+     * Check if two chunks belong to the same parcel
+     *
+     * @param worldName World name
+     * @param chunkX1 First chunk X
+     * @param chunkZ1 First chunk Z
+     * @param chunkX2 Second chunk X
+     * @param chunkZ2 Second chunk Z
+     * @return true if both chunks are claimed and connected
+     */
+    public boolean isConnected(String worldName, int chunkX1, int chunkZ1, int chunkX2, int chunkZ2) {
+        WorldParcels parcels = worlds.get(worldName);
+        return parcels != null && parcels.isConnected(Claim.chunkKey(chunkX1, chunkZ1), Claim.chunkKey(chunkX2, chunkZ2));
+    }
+
+    /**
+     * Check if removing a chunk would split its parcel in two or more
+     *
+     * @param worldName World name
+     * @param chunkX Chunk X
+     * @param chunkZ Chunk Z
+     * @return true if unclaiming the chunk would disconnect the territory
+     */
+    public boolean wouldSplit(String worldName, int chunkX, int chunkZ) {
+        WorldParcels parcels = worlds.get(worldName);
+        return parcels != null && parcels.wouldSplit(chunkX, chunkZ);
+    }
+
+    /**
+     * Check if the territory has any chunk in a world
+     *
+     * @param worldName World name
+     * @return true if the town has claims in the world
+     */
+    public boolean hasClaimsIn(String worldName) {
+        return worlds.containsKey(worldName);
+    }
+
+    /**
+     * Get the number of disconnected parcels across all worlds
+     *
+     * @return The parcel count
+     */
+    public int getParcelCount() {
+        int count = 0;
+        for (WorldParcels parcels : worlds.values()) {
+            count += parcels.parcelCount;
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of disconnected parcels in one world
+     *
+     * @param worldName World name
+     * @return The parcel count
+     */
+    public int getParcelCount(String worldName) {
+        WorldParcels parcels = worlds.get(worldName);
+        return parcels != null ? parcels.parcelCount : 0;
+    }
+
+    /**
+     * Get the number of chunks in the territory
+     *
+     * @return The chunk count
+     */
+    public int size() {
+        int size = 0;
+        for (WorldParcels parcels : worlds.values()) {
+            size += parcels.nodes.size();
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return worlds.isEmpty();
+    }
+
+    /**
+     * Union-find node of a claimed chunk
+     */
+    private static final class Node {
+        final long key;
+        Node parent;
+        int rank;
+
+        Node(long key) {
+            this.key = key;
+            this.parent = this;
+        }
+    }
+
+    /**
+     * The parcels of one town in one world
+     */
+    private static final class WorldParcels {
+        private final LongObjectMap<Node> nodes = new LongObjectMap<>();
+        private int parcelCount;
+        private int ghosts; // Removed nodes still referenced by parent links
+
+        boolean isEmpty() {
+            return nodes.isEmpty();
+        }
+
+        boolean contains(long key) {
+            return nodes.containsKey(key);
+        }
+
+        void add(long key) {
+            if (nodes.containsKey(key)) {
+                return;
+            }
+
+            Node node = new Node(key);
+            nodes.put(key, node);
+            parcelCount++;
+
+            int x = (int) (key >> 32);
+            int z = (int) key;
+            for (int i = 0; i < 8; i += 2) {
+                Node neighbour = nodes.get(Claim.chunkKey(x + RING_X[i], z + RING_Z[i]));
+                if (neighbour != null && union(node, neighbour)) {
+                    parcelCount--;
+                }
+            }
+        }
+
+        boolean remove(long key) {
+            Node node = nodes.remove(key);
+            if (node == null) {
+                return false;
+            }
+
+            int x = (int) (key >> 32);
+            int z = (int) key;
+            int groups = countLocalGroups(x, z);
+
+            if (groups == 0) {
+                // An isolated chunk was a parcel of its own
+                parcelCount--;
+            } else if (groups == 1) {
+                // Every neighbour stays connected around the removed chunk, the parcel is unchanged
+                ghosts++;
+            } else {
+                rebuildAround(x, z);
+            }
+
+            if (ghosts > Math.max(64, nodes.size())) {
+                rebuildAll();
+            }
+            return true;
+        }
+
+        boolean isAdjacent(int x, int z) {
+            for (int i = 0; i < 8; i += 2) {
+                if (nodes.containsKey(Claim.chunkKey(x + RING_X[i], z + RING_Z[i]))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean isConnected(long first, long second) {
+            Node a = nodes.get(first);
+            Node b = nodes.get(second);
+            return a != null && b != null && find(a) == find(b);
+        }
+
+        boolean wouldSplit(int x, int z) {
+            long key = Claim.chunkKey(x, z);
+            if (!nodes.containsKey(key) || countLocalGroups(x, z) <= 1) {
+                return false;
+            }
+
+            // The ring around the chunk is broken: search the parcel for another path between the neighbours
+            long start = 0;
+            int remaining = 0;
+            for (int i = 0; i < 8; i += 2) {
+                long neighbour = Claim.chunkKey(x + RING_X[i], z + RING_Z[i]);
+                if (nodes.containsKey(neighbour)) {
+                    if (remaining == 0) {
+                        start = neighbour;
+                    }
+                    remaining++;
+                }
+            }
+
+            LongObjectMap<Boolean> visited = new LongObjectMap<>();
+            ArrayDeque<Long> queue = new ArrayDeque<>();
+            visited.put(key, Boolean.TRUE);
+            visited.put(start, Boolean.TRUE);
+            queue.add(start);
+            remaining--;
+
+            while (!queue.isEmpty()) {
+                long current = queue.poll();
+                int cx = (int) (current >> 32);
+                int cz = (int) current;
+                for (int i = 0; i < 8; i += 2) {
+                    int nx = cx + RING_X[i];
+                    int nz = cz + RING_Z[i];
+                    long next = Claim.chunkKey(nx, nz);
+                    if (!nodes.containsKey(next) || visited.containsKey(next)) {
+                        continue;
+                    }
+
+                    visited.put(next, Boolean.TRUE);
+                    if (Math.abs(nx - x) + Math.abs(nz - z) == 1 && --remaining == 0) {
+                        return false;
+                    }
+                    queue.add(next);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Count the groups of orthogonal neighbours that stay connected through the 8 surrounding chunks
+         */
+        private int countLocalGroups(int x, int z) {
+            boolean[] present = new boolean[8];
+            int gap = -1;
+            for (int i = 0; i < 8; i++) {
+                present[i] = nodes.containsKey(Claim.chunkKey(x + RING_X[i], z + RING_Z[i]));
+                if (!present[i]) {
+                    gap = i;
+                }
+            }
+
+            if (gap < 0) {
+                return 1;
+            }
+
+            int groups = 0;
+            boolean inRun = false;
+            boolean runHasEdge = false;
+            for (int step = 1; step <= 8; step++) {
+                int i = (gap + step) & 7;
+                if (present[i]) {
+                    inRun = true;
+                    runHasEdge |= (i & 1) == 0;
+                } else if (inRun) {
+                    if (runHasEdge) {
+                        groups++;
+                    }
+                    inRun = false;
+                    runHasEdge = false;
+                }
+            }
+            return groups;
+        }
+
+        /**
+         * Rebuild the parcel that contained a removed chunk from its remaining neighbours
+         */
+        private void rebuildAround(int x, int z) {
+            LongObjectMap<Boolean> visited = new LongObjectMap<>();
+            ArrayDeque<Node> queue = new ArrayDeque<>();
+            int components = 0;
+
+            for (int i = 0; i < 8; i += 2) {
+                Node start = nodes.get(Claim.chunkKey(x + RING_X[i], z + RING_Z[i]));
+                if (start == null || visited.containsKey(start.key)) {
+                    continue;
+                }
+
+                components++;
+                start.parent = start;
+                start.rank = 1;
+                visited.put(start.key, Boolean.TRUE);
+                queue.add(start);
+
+                while (!queue.isEmpty()) {
+                    Node current = queue.poll();
+                    int cx = (int) (current.key >> 32);
+                    int cz = (int) current.key;
+                    for (int j = 0; j < 8; j += 2) {
+                        Node next = nodes.get(Claim.chunkKey(cx + RING_X[j], cz + RING_Z[j]));
+                        if (next != null && !visited.containsKey(next.key)) {
+                            visited.put(next.key, Boolean.TRUE);
+                            next.parent = start;
+                            next.rank = 0;
+                            queue.add(next);
+                        }
+                    }
+                }
+            }
+
+            parcelCount += components - 1;
+        }
+
+        /**
+         * Rebuild every parcel, dropping all ghost nodes
+         */
+        private void rebuildAll() {
+            parcelCount = 0;
+            ghosts = 0;
+            nodes.forEach((key, node) -> {
+                node.parent = node;
+                node.rank = 0;
+            });
+            nodes.forEach((key, node) -> {
+                parcelCount++;
+                int x = (int) (key >> 32);
+                int z = (int) key;
+                for (int i = 0; i < 8; i += 2) {
+                    Node neighbour = nodes.get(Claim.chunkKey(x + RING_X[i], z + RING_Z[i]));
+                    if (neighbour != null && union(node, neighbour)) {
+                        parcelCount--;
+                    }
+                }
+            });
+        }
+
+        private static Node find(Node node) {
+            while (node.parent != node) {
+                node.parent = node.parent.parent; // Path halving
+                node = node.parent;
+            }
+            return node;
+        }
+
+        private static boolean union(Node a, Node b) {
+            Node rootA = find(a);
+            Node rootB = find(b);
+            if (rootA == rootB) {
+                return false;
+            }
+
+            if (rootA.rank < rootB.rank) {
+                rootA.parent = rootB;
+            } else if (rootA.rank > rootB.rank) {
+                rootB.parent = rootA;
+            } else {
+                rootB.parent = rootA;
+                rootA.rank++;
+            }
+            return true;
+        }
+    }
+}
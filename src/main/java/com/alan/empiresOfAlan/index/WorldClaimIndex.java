@@ -0,0 +1,382 @@
+package com.alan.empiresOfAlan.index;
+
+import com.alan.empiresOfAlan.model.Claim;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Chunk index for the claims of a single world, keyed by packed chunk coordinates.
+ * A coarser grid of 32x32 chunk region tiles answers box, radius and nearest queries
+ * without visiting empty space chunk by chunk.
+ */
+public class WorldClaimIndex {
+    private final String worldName;
+    private final LongObjectMap<Claim> chunks;
+    private final LongObjectMap<RegionTile> regions; // packed region key -> tile
+
+    public WorldClaimIndex(String worldName) {
+        this.worldName = worldName;
+        this.chunks = new LongObjectMap<>(256);
+        this.regions = new LongObjectMap<>();
+    }
+
+    public String getWorldName() {
+        return worldName;
+    }
+
+    /**
+     * Get the claim at chunk coordinates
+     *
+     * @param chunkX Chunk X
+     * @param chunkZ Chunk Z
+     * @return The claim or null if unclaimed
+     */
+    public Claim get(int chunkX, int chunkZ) {
+        return chunks.get(Claim.chunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * Check if chunk coordinates are claimed
+     *
+     * @param chunkX Chunk X
+     * @param chunkZ Chunk Z
+     * @return true if claimed
+     */
+    public boolean contains(int chunkX, int chunkZ) {
+        return chunks.containsKey(Claim.chunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * Check if any chunk inside a box of chunk coordinates is claimed
+     *
+     * @param minX Minimum chunk X (inclusive)
+     * @param minZ Minimum chunk Z (inclusive)
+     * @param maxX Maximum chunk X (inclusive)
+     * @param maxZ Maximum chunk Z (inclusive)
+     * @return true if at least one chunk in the box is claimed
+     */
+    public boolean containsAny(int minX, int minZ, int maxX, int maxZ) {
+        return !visitTiles(minX, minZ, maxX, maxZ,
+                (tile, baseX, baseZ, minLX, minLZ, maxLX, maxLZ) -> !tile.containsAny(minLX, minLZ, maxLX, maxLZ));
+    }
+
+    /**
+     * Check if a town other than the given one has a claim inside a box of chunk coordinates.
+     * Tiles holding only the given town's claims are skipped without looking at their chunks.
+     *
+     * @param minX Minimum chunk X (inclusive)
+     * @param minZ Minimum chunk Z (inclusive)
+     * @param maxX Maximum chunk X (inclusive)
+     * @param maxZ Maximum chunk Z (inclusive)
+     * @param townId The town whose claims are ignored
+     * @return true if a foreign claim is in the box
+     */
+    public boolean containsForeign(int minX, int minZ, int maxX, int maxZ, UUID townId) {
+        return !visitTiles(minX, minZ, maxX, maxZ, (tile, baseX, baseZ, minLX, minLZ, maxLX, maxLZ) -> {
+            if (!tile.hasOtherTown(townId)) {
+                return true;
+            }
+
+            for (int localZ = minLZ; localZ <= maxLZ; localZ++) {
+                long bits = tile.rowBits(localZ, minLX, maxLX);
+                while (bits != 0) {
+                    int localX = Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if (!chunks.get(Claim.chunkKey(baseX + localX, baseZ + localZ)).getTownId().equals(townId)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Get every claim inside a box of chunk coordinates
+     *
+     * @param minX Minimum chunk X (inclusive)
+     * @param minZ Minimum chunk Z (inclusive)
+     * @param maxX Maximum chunk X (inclusive)
+     * @param maxZ Maximum chunk Z (inclusive)
+     * @return A new list of claims
+     */
+    public List<Claim> claimsInBox(int minX, int minZ, int maxX, int maxZ) {
+        List<Claim> result = new ArrayList<>();
+        visitTiles(minX, minZ, maxX, maxZ, (tile, baseX, baseZ, minLX, minLZ, maxLX, maxLZ) -> {
+            for (int localZ = minLZ; localZ <= maxLZ; localZ++) {
+                long bits = tile.rowBits(localZ, minLX, maxLX);
+                while (bits != 0) {
+                    int localX = Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    result.add(chunks.get(Claim.chunkKey(baseX + localX, baseZ + localZ)));
+                }
+            }
+            return true;
+        });
+        return result;
+    }
+
+    /**
+     * Get the towns with at least one claim within a square radius of a chunk
+     *
+     * @param chunkX Center chunk X
+     * @param chunkZ Center chunk Z
+     * @param radius Radius in chunks
+     * @return A new set of town IDs
+     */
+    public Set<UUID> townsWithinRadius(int chunkX, int chunkZ, int radius) {
+        Set<UUID> result = new HashSet<>();
+        visitTiles(chunkX - radius, chunkZ - radius, chunkX + radius, chunkZ + radius,
+                (tile, baseX, baseZ, minLX, minLZ, maxLX, maxLZ) -> {
+                    if (result.containsAll(tile.getTownIds())) {
+                        return true; // Nothing new to find in this tile
+                    }
+
+                    if (minLX == 0 && minLZ == 0 && maxLX == RegionTile.MASK && maxLZ == RegionTile.MASK) {
+                        result.addAll(tile.getTownIds()); // The whole tile is inside the radius
+                        return true;
+                    }
+
+                    for (int localZ = minLZ; localZ <= maxLZ; localZ++) {
+                        long bits = tile.rowBits(localZ, minLX, maxLX);
+                        while (bits != 0) {
+                            int localX = Long.numberOfTrailingZeros(bits);
+                            bits &= bits - 1;
+                            result.add(chunks.get(Claim.chunkKey(baseX + localX, baseZ + localZ)).getTownId());
+                        }
+                    }
+                    return true;
+                });
+        return result;
+    }
+
+    /**
+     * Find the claim closest to a chunk (by straight-line chunk distance)
+     *
+     * @param chunkX Center chunk X
+     * @param chunkZ Center chunk Z
+     * @param maxRadius Maximum distance in chunks
+     * @param excludeTownId Town whose claims are ignored, or null
+     * @return The nearest claim, or null if none within the radius
+     */
+    public Claim nearestClaim(int chunkX, int chunkZ, int maxRadius, UUID excludeTownId) {
+        NearestSearch search = new NearestSearch(chunkX, chunkZ, maxRadius, excludeTownId);
+        int centerRX = chunkX >> RegionTile.SHIFT;
+        int centerRZ = chunkZ >> RegionTile.SHIFT;
+        int maxRing = (maxRadius >> RegionTile.SHIFT) + 1;
+
+        if ((long) (2 * maxRing + 1) * (2 * maxRing + 1) > regions.size()) {
+            // Fewer tiles exist than the search square holds, test each of them
+            regions.forEach((key, tile) -> search.scan(tile));
+            return search.best;
+        }
+
+        // Walk rings of tiles outwards until no closer claim is possible
+        for (int ring = 0; ring <= maxRing; ring++) {
+            long reach = Math.max(0, (long) (ring - 1) << RegionTile.SHIFT);
+            if (reach * reach > search.bestDistance) {
+                break;
+            }
+
+            for (int rx = centerRX - ring; rx <= centerRX + ring; rx++) {
+                for (int rz = centerRZ - ring; rz <= centerRZ + ring; rz++) {
+                    if (Math.max(Math.abs(rx - centerRX), Math.abs(rz - centerRZ)) != ring) {
+                        continue;
+                    }
+                    RegionTile tile = regions.get(Claim.chunkKey(rx, rz));
+                    if (tile != null) {
+                        search.scan(tile);
+                    }
+                }
+            }
+        }
+        return search.best;
+    }
+
+    /**
+     * Get the number of region tiles with claims
+     *
+     * @return The tile count
+     */
+    public int getRegionCount() {
+        return regions.size();
+    }
+
+    /**
+     * Visit the tiles overlapping a box of chunk coordinates, with the box clipped to each tile
+     *
+     * @return false if the visitor stopped early
+     */
+    private boolean visitTiles(int minX, int minZ, int maxX, int maxZ, TileVisitor visitor) {
+        if (regions.isEmpty() || minX > maxX || minZ > maxZ) {
+            return true;
+        }
+
+        int minRX = minX >> RegionTile.SHIFT;
+        int minRZ = minZ >> RegionTile.SHIFT;
+        int maxRX = maxX >> RegionTile.SHIFT;
+        int maxRZ = maxZ >> RegionTile.SHIFT;
+
+        long tileArea = ((long) maxRX - minRX + 1) * ((long) maxRZ - minRZ + 1);
+        if (tileArea > regions.size()) {
+            // Cheaper to test every tile than to probe every tile position of a large box
+            return !regions.anyKey(key -> {
+                int rx = (int) (key >> 32);
+                int rz = (int) key;
+                if (rx < minRX || rx > maxRX || rz < minRZ || rz > maxRZ) {
+                    return false;
+                }
+                return !visitTile(regions.get(key), minX, minZ, maxX, maxZ, visitor);
+            });
+        }
+
+        for (int rx = minRX; rx <= maxRX; rx++) {
+            for (int rz = minRZ; rz <= maxRZ; rz++) {
+                RegionTile tile = regions.get(Claim.chunkKey(rx, rz));
+                if (tile != null && !visitTile(tile, minX, minZ, maxX, maxZ, visitor)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean visitTile(RegionTile tile, int minX, int minZ, int maxX, int maxZ, TileVisitor visitor) {
+        int baseX = tile.getRegionX() << RegionTile.SHIFT;
+        int baseZ = tile.getRegionZ() << RegionTile.SHIFT;
+        return visitor.visit(tile, baseX, baseZ,
+                Math.max(minX, baseX) - baseX, Math.max(minZ, baseZ) - baseZ,
+                Math.min(maxX, baseX + RegionTile.MASK) - baseX, Math.min(maxZ, baseZ + RegionTile.MASK) - baseZ);
+    }
+
+    /**
+     * Add a claim to the index
+     *
+     * @param claim The claim
+     * @return The claim previously stored at the same chunk, or null
+     */
+    public Claim put(Claim claim) {
+        Claim previous = chunks.put(claim.getChunkKey(), claim);
+        if (previous != null) {
+            tileOf(previous, false).remove(previous.getX() & RegionTile.MASK, previous.getZ() & RegionTile.MASK,
+                    previous.getTownId());
+        }
+        tileOf(claim, true).add(claim.getX() & RegionTile.MASK, claim.getZ() & RegionTile.MASK, claim.getTownId());
+        return previous;
+    }
+
+    /**
+     * Remove a claim from the index, if it is still the one stored at its chunk
+     *
+     * @param claim The claim
+     * @return true if removed
+     */
+    public boolean remove(Claim claim) {
+        long key = claim.getChunkKey();
+        if (chunks.get(key) != claim) {
+            return false;
+        }
+        chunks.remove(key);
+
+        RegionTile tile = tileOf(claim, false);
+        tile.remove(claim.getX() & RegionTile.MASK, claim.getZ() & RegionTile.MASK, claim.getTownId());
+        if (tile.isEmpty()) {
+            regions.remove(Claim.chunkKey(tile.getRegionX(), tile.getRegionZ()));
+        }
+        return true;
+    }
+
+    private RegionTile tileOf(Claim claim, boolean create) {
+        int regionX = claim.getX() >> RegionTile.SHIFT;
+        int regionZ = claim.getZ() >> RegionTile.SHIFT;
+        long key = Claim.chunkKey(regionX, regionZ);
+        RegionTile tile = regions.get(key);
+        if (tile == null && create) {
+            tile = new RegionTile(regionX, regionZ);
+            regions.put(key, tile);
+        }
+        return tile;
+    }
+
+    public int size() {
+        return chunks.size();
+    }
+
+    public boolean isEmpty() {
+        return chunks.isEmpty();
+    }
+
+    /**
+     * Get every claim in this world
+     *
+     * @return A new list of claims
+     */
+    public List<Claim> getClaims() {
+        return chunks.values();
+    }
+
+    /**
+     * Callback for {@link #visitTiles}, with the queried box in local tile coordinates
+     */
+    @FunctionalInterface
+    private interface TileVisitor {
+        boolean visit(RegionTile tile, int baseX, int baseZ, int minLocalX, int minLocalZ, int maxLocalX, int maxLocalZ);
+    }
+
+    /**
+     * State of a nearest-claim search
+     */
+    private final class NearestSearch {
+        final int chunkX;
+        final int chunkZ;
+        final UUID excludeTownId;
+        long bestDistance; // Squared
+        Claim best;
+
+        NearestSearch(int chunkX, int chunkZ, int maxRadius, UUID excludeTownId) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.excludeTownId = excludeTownId;
+            this.bestDistance = (long) maxRadius * maxRadius;
+        }
+
+        void scan(RegionTile tile) {
+            if (excludeTownId != null && !tile.hasOtherTown(excludeTownId)) {
+                return;
+            }
+
+            int baseX = tile.getRegionX() << RegionTile.SHIFT;
+            int baseZ = tile.getRegionZ() << RegionTile.SHIFT;
+            long dx = Math.max(0, Math.max(baseX - chunkX, chunkX - (baseX + RegionTile.MASK)));
+            long dz = Math.max(0, Math.max(baseZ - chunkZ, chunkZ - (baseZ + RegionTile.MASK)));
+            if (dx * dx + dz * dz > bestDistance) {
+                return; // No chunk of this tile can be closer
+            }
+
+            for (int localZ = 0; localZ < RegionTile.SIZE; localZ++) {
+                long bits = tile.rowBits(localZ, 0, RegionTile.MASK);
+                long rowZ = baseZ + localZ - chunkZ;
+                while (bits != 0) {
+                    int localX = Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+
+                    long rowX = baseX + localX - chunkX;
+                    long distance = rowX * rowX + rowZ * rowZ;
+                    if (distance > bestDistance || (distance == bestDistance && best != null)) {
+                        continue;
+                    }
+
+                    Claim claim = chunks.get(Claim.chunkKey(baseX + localX, baseZ + localZ));
+                    if (excludeTownId == null || !excludeTownId.equals(claim.getTownId())) {
+                        best = claim;
+                        bestDistance = distance;
+                    }
+                }
+            }
+        }
+    }
+}
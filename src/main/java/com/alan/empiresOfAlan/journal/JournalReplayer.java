@@ -0,0 +1,154 @@
+package com.alan.empiresOfAlan.journal;
+
+import com.alan.empiresOfAlan.database.StorageHost;
+import com.alan.empiresOfAlan.managers.ClaimManager;
+import com.alan.empiresOfAlan.managers.NationManager;
+import com.alan.empiresOfAlan.managers.ResidentManager;
+import com.alan.empiresOfAlan.managers.TownManager;
+import com.alan.empiresOfAlan.model.Claim;
+import com.alan.empiresOfAlan.model.Nation;
+import com.alan.empiresOfAlan.model.Resident;
+import com.alan.empiresOfAlan.model.Town;
+import com.alan.empiresOfAlan.model.enums.NationRole;
+import com.alan.empiresOfAlan.model.enums.TownRole;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Applies journal records on top of the data loaded from the database (main thread).
+ * Every entity a record touches is marked dirty, so the next save writes the replayed state.
+ */
+public class JournalReplayer {
+    private final StorageHost plugin;
+    private final ResidentManager residentManager = ResidentManager.getInstance();
+    private final TownManager townManager = TownManager.getInstance();
+    private final NationManager nationManager = NationManager.getInstance();
+    private final ClaimManager claimManager = ClaimManager.getInstance();
+
+    public JournalReplayer(StorageHost plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Apply records in the order they were written
+     *
+     * @param records Record payloads from {@link MutationJournal#readAll()}
+     * @return The number of records applied
+     */
+    public int replay(List<ByteBuffer> records) {
+        int applied = 0;
+        for (ByteBuffer record : records) {
+            try {
+                byte type = record.get();
+                record.getLong(); // Written at
+                switch (type) {
+                    case MutationJournal.RESIDENT:
+                        replayResident(record);
+                        break;
+                    case MutationJournal.BALANCE:
+                        replayBalance(record);
+                        break;
+                    case MutationJournal.CLAIM:
+                        replayClaim(record);
+                        break;
+                    case MutationJournal.UNCLAIM:
+                        claimManager.unclaimChunk(MutationJournal.getUUID(record));
+                        break;
+                    default:
+                        plugin.getLogger().warning("Skipping journal record of unknown type " + type);
+                        continue;
+                }
+                applied++;
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Skipping unreadable journal record: " + e.getMessage());
+            }
+        }
+        return applied;
+    }
+
+    private void replayResident(ByteBuffer record) {
+        UUID uuid = MutationJournal.getUUID(record);
+        String name = MutationJournal.getString(record);
+        UUID townId = MutationJournal.getNullableUUID(record);
+        TownRole townRole = TownRole.getByLevel(record.get());
+        UUID nationId = MutationJournal.getNullableUUID(record);
+        NationRole nationRole = NationRole.getByLevel(record.get());
+        long lastOnline = record.getLong();
+
+        // Town-less residents are not loaded at startup
+        Resident resident = residentManager.getResidents().get(uuid);
+        if (resident == null) {
+            resident = new Resident(uuid, name);
+            residentManager.getResidents().put(uuid, resident);
+        }
+
+        Town oldTown = resident.getTownId() != null ? townManager.getTown(resident.getTownId()) : null;
+        Town newTown = townId != null ? townManager.getTown(townId) : null;
+        if (oldTown != null && oldTown != newTown) {
+            oldTown.removeResident(uuid);
+        }
+
+        if (newTown != null) {
+            newTown.addResident(uuid);
+            resident.setTownId(townId);
+            resident.setTownRole(townRole != null ? townRole : TownRole.MEMBER);
+        } else {
+            resident.leaveTown();
+        }
+
+        Nation nation = nationId != null ? nationManager.getNation(nationId) : null;
+        if (nation != null && newTown != null) {
+            resident.setNationId(nationId);
+            resident.setNationRole(nationRole != null ? nationRole : NationRole.MEMBER);
+        } else {
+            resident.leaveNation();
+        }
+
+        resident.setName(name);
+        resident.setLastOnline(lastOnline);
+        resident.markDirty();
+        residentManager.release(uuid);
+    }
+
+    private void replayBalance(ByteBuffer record) {
+        UUID ownerId = MutationJournal.getUUID(record);
+        double balance = record.getDouble();
+
+        Town town = townManager.getTown(ownerId);
+        if (town != null) {
+            town.getBankAccount().setBalance(balance);
+            return;
+        }
+        Nation nation = nationManager.getNation(ownerId);
+        if (nation != null) {
+            nation.getBankAccount().setBalance(balance);
+        }
+    }
+
+    private void replayClaim(ByteBuffer record) {
+        UUID id = MutationJournal.getUUID(record);
+        String worldName = MutationJournal.getString(record);
+        int x = record.getInt();
+        int z = record.getInt();
+        UUID townId = MutationJournal.getUUID(record);
+        int flags = record.getInt();
+
+        Claim claim = claimManager.getClaim(id);
+        if (claim != null) {
+            claim.setFlagMask(flags);
+            claim.markDirty();
+            return;
+        }
+
+        Town town = townManager.getTown(townId);
+        if (town == null || claimManager.getClaimAtChunk(worldName, x, z) != null) {
+            return;
+        }
+        claim = new Claim(id, worldName, x, z, townId);
+        claim.setFlagMask(flags);
+        claimManager.registerClaim(claim);
+        town.addClaim(id);
+    }
+}
@@ -0,0 +1,463 @@
+package com.alan.empiresOfAlan.journal;
+
+import com.alan.empiresOfAlan.database.StorageHost;
+import com.alan.empiresOfAlan.model.Claim;
+import com.alan.empiresOfAlan.model.Resident;
+import com.alan.empiresOfAlan.model.bank.BankAccount;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the mutations made since the last save, so a crash between saves loses
+ * (almost) nothing. Each record holds the absolute state of one entity after the change, which
+ * makes replaying a record more than once harmless.
+ * <p>
+ * Records are framed as payload length (int), CRC32 of the payload (int) and the payload; the
+ * payload starts with the record type and the time it was written. Appends go to a memory buffer;
+ * the journal thread writes the buffer to the current segment file and forces it to disk every
+ * few milliseconds, so all records appended in that window share one sync (group commit).
+ * <p>
+ * Every save rotates to a new segment; once the save is in the database the older segments are
+ * deleted. At startup every segment left over is replayed on top of the loaded data.
+ */
+public class MutationJournal {
+    static final byte RESIDENT = 1;
+    static final byte BALANCE = 2;
+    static final byte CLAIM = 3;
+    static final byte UNCLAIM = 4;
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1 << 16;
+
+    private final StorageHost plugin;
+    private final File directory;
+    private final boolean enabled;
+    private final long syncInterval;
+    private final Object lock = new Object(); // Appends
+    private final Object ioLock = new Object(); // The segment file, always taken before lock
+    private final CRC32 crc = new CRC32(); // Guarded by lock
+    private ByteBuffer record; // Scratch buffer for the record being built, guarded by lock
+    private ByteBuffer pending; // Appended but not yet written, guarded by lock
+    private ByteBuffer spare; // Swapped with pending by the journal thread
+    private FileChannel channel; // Guarded by ioLock
+    private long segment;
+    private Thread thread;
+    private boolean open;
+
+    public MutationJournal(StorageHost plugin) {
+        this.plugin = plugin;
+        this.directory = new File(plugin.getDataFolder(), "journal");
+        this.enabled = plugin.getStorageConfig().getBoolean("persistence.journal.enabled", true);
+        this.syncInterval = Math.max(1, plugin.getStorageConfig().getLong("persistence.journal.sync-interval-ms", 50));
+        this.record = ByteBuffer.allocate(256);
+        this.pending = ByteBuffer.allocate(64 * 1024);
+        this.spare = ByteBuffer.allocate(64 * 1024);
+    }
+
+    /**
+     * Check if the journal is enabled in the config
+     *
+     * @return true if enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Read the records of every segment on disk, oldest first. Reading stops at the first record
+     * that is cut short or fails its checksum, which is where a crash interrupted the last write.
+     *
+     * @return The record payloads
+     */
+    public List<ByteBuffer> readAll() {
+        List<ByteBuffer> records = new ArrayList<>();
+        if (!enabled) {
+            return records;
+        }
+
+        for (File file : listSegments()) {
+            try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer data = ByteBuffer.allocate((int) in.size());
+                while (data.hasRemaining() && in.read(data) >= 0) {
+                    // Read the whole segment
+                }
+                data.flip();
+
+                CRC32 check = new CRC32();
+                while (data.remaining() >= HEADER_BYTES) {
+                    int length = data.getInt();
+                    int checksum = data.getInt();
+                    if (length <= 0 || length > MAX_RECORD_BYTES || length > data.remaining()) {
+                        plugin.getLogger().warning("Journal " + file.getName() + " ends with an incomplete record, ignoring the rest.");
+                        break;
+                    }
+
+                    ByteBuffer payload = data.slice();
+                    payload.limit(length);
+                    check.reset();
+                    check.update(payload.duplicate());
+                    if ((int) check.getValue() != checksum) {
+                        plugin.getLogger().warning("Journal " + file.getName() + " has a corrupt record, ignoring the rest.");
+                        break;
+                    }
+
+                    records.add(payload);
+                    data.position(data.position() + length);
+                }
+            } catch (IOException e) {
+                plugin.getLogger().severe("Failed to read journal " + file.getName() + ": " + e.getMessage());
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Start appending to a new segment (after the replay) and start the journal thread
+     */
+    public void open() {
+        if (!enabled) {
+            return;
+        }
+
+        synchronized (ioLock) {
+            try {
+                directory.mkdirs();
+                List<File> existing = listSegments();
+                segment = existing.isEmpty() ? 1 : segmentNumber(existing.get(existing.size() - 1)) + 1;
+                channel = openSegment(segment);
+                open = true;
+            } catch (IOException e) {
+                plugin.getLogger().severe("Failed to open the journal, changes are only saved every save interval: " + e.getMessage());
+                return;
+            }
+        }
+
+        thread = new Thread(this::run, "EmpiresOfAlan-Journal");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Record the state of a resident
+     *
+     * @param resident The resident after the change
+     */
+    public void resident(Resident resident) {
+        synchronized (lock) {
+            if (!open) {
+                return;
+            }
+            begin(RESIDENT);
+            putUUID(resident.getUuid());
+            putString(resident.getName());
+            putNullableUUID(resident.getTownId());
+            record.put((byte) resident.getTownRole().getLevel());
+            putNullableUUID(resident.getNationId());
+            record.put((byte) resident.getNationRole().getLevel());
+            record.putLong(resident.getLastOnline());
+            commit();
+        }
+    }
+
+    /**
+     * Record the balance of a town or nation bank account
+     *
+     * @param account The account after the change
+     */
+    public void balance(BankAccount account) {
+        synchronized (lock) {
+            if (!open) {
+                return;
+            }
+            begin(BALANCE);
+            putUUID(account.getOwnerId());
+            record.putDouble(account.getBalance());
+            commit();
+        }
+    }
+
+    /**
+     * Record a new claim or a claim whose flags changed
+     *
+     * @param claim The claim
+     */
+    public void claim(Claim claim) {
+        synchronized (lock) {
+            if (!open) {
+                return;
+            }
+            begin(CLAIM);
+            putUUID(claim.getId());
+            putString(claim.getWorldName());
+            record.putInt(claim.getX());
+            record.putInt(claim.getZ());
+            putUUID(claim.getTownId());
+            record.putInt(claim.getFlagMask());
+            commit();
+        }
+    }
+
+    /**
+     * Record that a claim was removed
+     *
+     * @param claimId Claim UUID
+     */
+    public void unclaim(UUID claimId) {
+        synchronized (lock) {
+            if (!open) {
+                return;
+            }
+            begin(UNCLAIM);
+            putUUID(claimId);
+            commit();
+        }
+    }
+
+    /**
+     * Switch to a new segment before a save; the returned segments only hold changes that the
+     * save is about to write and can be deleted with {@link #delete(List)} once it is in the database
+     *
+     * @return The segments that were closed
+     */
+    public List<File> rotate() {
+        List<File> closed = new ArrayList<>();
+        if (!enabled) {
+            return closed;
+        }
+
+        synchronized (ioLock) {
+            synchronized (lock) {
+                if (!open) {
+                    return closed;
+                }
+                try {
+                    write(pending);
+                    channel.force(false);
+                    channel.close();
+                    segment++;
+                    channel = openSegment(segment);
+                } catch (IOException e) {
+                    plugin.getLogger().severe("Failed to rotate the journal: " + e.getMessage());
+                    return closed;
+                }
+            }
+
+            for (File file : listSegments()) {
+                if (segmentNumber(file) < segment) {
+                    closed.add(file);
+                }
+            }
+        }
+        return closed;
+    }
+
+    /**
+     * Delete segments whose changes are in the database
+     *
+     * @param segments Segments returned by {@link #rotate()}
+     */
+    public void delete(List<File> segments) {
+        for (File file : segments) {
+            if (!file.delete() && file.exists()) {
+                plugin.getLogger().warning("Failed to delete journal " + file.getName());
+            }
+        }
+    }
+
+    /**
+     * Write what is left, stop the journal thread and close the segment
+     *
+     * @param discard Whether every change is in the database, so all segments can be deleted
+     */
+    public void close(boolean discard) {
+        synchronized (ioLock) {
+            synchronized (lock) {
+                if (!open) {
+                    return;
+                }
+                open = false;
+                try {
+                    write(pending);
+                    channel.force(false);
+                    channel.close();
+                } catch (IOException e) {
+                    plugin.getLogger().severe("Failed to close the journal: " + e.getMessage());
+                }
+                lock.notifyAll();
+            }
+        }
+
+        if (thread != null) {
+            try {
+                thread.join(1000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (discard) {
+            delete(listSegments());
+        }
+    }
+
+    private void run() {
+        while (true) {
+            // Wait without the segment so that rotate() and close() are never held up by the interval
+            synchronized (lock) {
+                if (!open) {
+                    return;
+                }
+                try {
+                    lock.wait(syncInterval);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+
+            synchronized (ioLock) {
+                ByteBuffer batch;
+                synchronized (lock) {
+                    if (!open) {
+                        return;
+                    }
+                    if (pending.position() == 0) {
+                        continue;
+                    }
+
+                    // Appends go on into the other buffer while this one is on its way to disk
+                    batch = pending;
+                    pending = spare;
+                }
+
+                // One write and one sync for everything appended since the last pass
+                try {
+                    write(batch);
+                    channel.force(false);
+                } catch (IOException e) {
+                    plugin.getLogger().severe("Failed to write the journal: " + e.getMessage());
+                } finally {
+                    batch.clear();
+                    synchronized (lock) {
+                        spare = batch;
+                    }
+                }
+            }
+        }
+    }
+
+    private void begin(byte type) {
+        record.clear();
+        record.position(HEADER_BYTES);
+        record.put(type);
+        record.putLong(System.currentTimeMillis());
+    }
+
+    private void commit() {
+        int length = record.position() - HEADER_BYTES;
+        crc.reset();
+        crc.update(record.array(), HEADER_BYTES, length);
+        record.putInt(0, length);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+
+        if (pending.remaining() < record.remaining()) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + record.remaining()));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        pending.put(record);
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        File file = new File(directory, PREFIX + String.format("%016d", number) + SUFFIX);
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<File> listSegments() {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)));
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    private static long segmentNumber(File file) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void putString(String value) {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        ensure(2 + bytes.length);
+        record.putShort((short) bytes.length);
+        record.put(bytes);
+    }
+
+    private void putUUID(UUID uuid) {
+        ensure(16);
+        record.putLong(uuid.getMostSignificantBits());
+        record.putLong(uuid.getLeastSignificantBits());
+    }
+
+    private void putNullableUUID(UUID uuid) {
+        ensure(1);
+        record.put((byte) (uuid != null ? 1 : 0));
+        if (uuid != null) {
+            putUUID(uuid);
+        }
+    }
+
+    /**
+     * Grow the scratch buffer so the next field fits, keeping room for the fixed-size fields after it
+     */
+    private void ensure(int bytes) {
+        if (record.remaining() >= bytes + 64) {
+            return;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(record.capacity() * 2 + bytes);
+        record.flip();
+        grown.put(record);
+        record = grown;
+    }
+
+    static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static UUID getUUID(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    static UUID getNullableUUID(ByteBuffer buffer) {
+        return buffer.get() != 0 ? getUUID(buffer) : null;
+    }
+}
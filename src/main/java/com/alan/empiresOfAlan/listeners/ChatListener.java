@@ -29,7 +29,8 @@ public class ChatListener implements Listener {
 
     @EventHandler(priority = EventPriority.LOWEST)
     public void onPlayerChat(AsyncPlayerChatEvent event) {
-        if (event.isCancelled()) {
+        // Plain chat until towns and nations are loaded
+        if (event.isCancelled() || !plugin.isDataLoaded()) {
             return;
         }
 
@@ -180,6 +181,10 @@ public class ChatListener implements Listener {
 
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
+        if (!plugin.isDataLoaded()) {
+            return;
+        }
+
         Player player = event.getPlayer();
         ResidentManager residentManager = ResidentManager.getInstance();
 
@@ -2,8 +2,10 @@ package com.alan.empiresOfAlan.listeners;
 
 import com.alan.empiresOfAlan.EmpiresOfAlan;
 import com.alan.empiresOfAlan.managers.ClaimManager;
+import com.alan.empiresOfAlan.model.Claim;
+import com.alan.empiresOfAlan.model.enums.ClaimFlag;
 import com.alan.empiresOfAlan.util.ConfigManager;
-import org.bukkit.Chunk;
+import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Entity;
@@ -17,25 +19,36 @@ import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 
+import java.util.List;
+
 public class ClaimListener implements Listener {
     private final EmpiresOfAlan plugin;
     private final ConfigManager configManager;
+    private final Location scratchLocation; // Reused for entity positions, events fire on the main thread only
 
     public ClaimListener(EmpiresOfAlan plugin) {
         this.plugin = plugin;
         this.configManager = plugin.getConfigManager();
+        this.scratchLocation = new Location(null, 0, 0, 0);
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onBlockBreak(BlockBreakEvent event) {
         Player player = event.getPlayer();
         Block block = event.getBlock();
-        Chunk chunk = block.getChunk();
+
+        // Fail closed until the claims are loaded
+        if (!plugin.isDataLoaded()) {
+            event.setCancelled(true);
+            player.sendMessage(configManager.getMessage("general.loading",
+                    "§cEmpires of Alan is still loading its data, please try again in a moment."));
+            return;
+        }
 
         ClaimManager claimManager = ClaimManager.getInstance();
 
         // Check if player can build here
-        if (!claimManager.canBuild(chunk, player.getUniqueId())) {
+        if (!claimManager.canBuild(block.getWorld(), block.getX(), block.getZ(), player.getUniqueId())) {
             event.setCancelled(true);
             player.sendMessage(configManager.getMessage("claims.cannot-build",
                     "§cYou cannot build in this area."));
@@ -46,12 +59,19 @@ public class ClaimListener implements Listener {
     public void onBlockPlace(BlockPlaceEvent event) {
         Player player = event.getPlayer();
         Block block = event.getBlock();
-        Chunk chunk = block.getChunk();
+
+        // Fail closed until the claims are loaded
+        if (!plugin.isDataLoaded()) {
+            event.setCancelled(true);
+            player.sendMessage(configManager.getMessage("general.loading",
+                    "§cEmpires of Alan is still loading its data, please try again in a moment."));
+            return;
+        }
 
         ClaimManager claimManager = ClaimManager.getInstance();
 
         // Check if player can build here
-        if (!claimManager.canBuild(chunk, player.getUniqueId())) {
+        if (!claimManager.canBuild(block.getWorld(), block.getX(), block.getZ(), player.getUniqueId())) {
             event.setCancelled(true);
             player.sendMessage(configManager.getMessage("claims.cannot-build",
                     "§cYou cannot build in this area."));
@@ -66,17 +86,24 @@ public class ClaimListener implements Listener {
 
         Player player = event.getPlayer();
         Block block = event.getClickedBlock();
-        Chunk chunk = block.getChunk();
 
         // Skip for certain blocks (always allow interactions)
         if (isAlwaysAllowed(block.getType())) {
             return;
         }
 
+        // Fail closed until the claims are loaded
+        if (!plugin.isDataLoaded()) {
+            event.setCancelled(true);
+            player.sendMessage(configManager.getMessage("general.loading",
+                    "§cEmpires of Alan is still loading its data, please try again in a moment."));
+            return;
+        }
+
         ClaimManager claimManager = ClaimManager.getInstance();
 
         // Check if player can interact here
-        if (!claimManager.canInteract(chunk, player.getUniqueId())) {
+        if (!claimManager.canInteract(block.getWorld(), block.getX(), block.getZ(), player.getUniqueId())) {
             event.setCancelled(true);
             player.sendMessage(configManager.getMessage("claims.cannot-interact",
                     "§cYou cannot interact with blocks in this area."));
@@ -94,12 +121,20 @@ public class ClaimListener implements Listener {
         }
 
         Player attacker = (Player) damager;
-        Chunk chunk = target.getLocation().getChunk();
+        Location location = target.getLocation(scratchLocation);
+
+        // Fail closed until the claims are loaded
+        if (!plugin.isDataLoaded()) {
+            event.setCancelled(true);
+            attacker.sendMessage(configManager.getMessage("general.loading",
+                    "§cEmpires of Alan is still loading its data, please try again in a moment."));
+            return;
+        }
 
         ClaimManager claimManager = ClaimManager.getInstance();
 
         // Check if PvP is allowed here
-        if (!claimManager.isPvPAllowed(chunk)) {
+        if (!claimManager.isPvPAllowed(location.getWorld(), location.getBlockX(), location.getBlockZ())) {
             event.setCancelled(true);
             attacker.sendMessage(configManager.getMessage("claims.pvp-disabled",
                     "§cPvP is disabled in this area."));
@@ -108,17 +143,44 @@ public class ClaimListener implements Listener {
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onEntityExplode(EntityExplodeEvent event) {
-        if (event.blockList().isEmpty()) {
+        List<Block> blocks = event.blockList();
+        if (blocks.isEmpty()) {
+            return;
+        }
+
+        // Fail closed until the claims are loaded
+        if (!plugin.isDataLoaded()) {
+            blocks.clear();
             return;
         }
 
+        String worldName = blocks.get(0).getWorld().getName();
+
+        // Chunk bounding box of the blast
+        int minChunkX = Integer.MAX_VALUE;
+        int minChunkZ = Integer.MAX_VALUE;
+        int maxChunkX = Integer.MIN_VALUE;
+        int maxChunkZ = Integer.MIN_VALUE;
+        for (int i = 0, size = blocks.size(); i < size; i++) {
+            Block block = blocks.get(i);
+            int chunkX = block.getX() >> 4;
+            int chunkZ = block.getZ() >> 4;
+            minChunkX = Math.min(minChunkX, chunkX);
+            maxChunkX = Math.max(maxChunkX, chunkX);
+            minChunkZ = Math.min(minChunkZ, chunkZ);
+            maxChunkZ = Math.max(maxChunkZ, chunkZ);
+        }
+
         ClaimManager claimManager = ClaimManager.getInstance();
 
-        // Check each block in the explosion
-        event.blockList().removeIf(block -> {
-            Chunk chunk = block.getChunk();
-            return !claimManager.areExplosionsAllowed(chunk);
-        });
+        // Fast path: nothing claimed anywhere under the blast
+        if (!claimManager.hasClaimInChunkBox(worldName, minChunkX, minChunkZ, maxChunkX, maxChunkZ)) {
+            return;
+        }
+
+        // Resolve each distinct chunk once; blasts rarely span more than a few chunks
+        ExplosionChunkMemo memo = new ExplosionChunkMemo(claimManager, worldName);
+        blocks.removeIf(block -> !memo.isAllowed(block.getX() >> 4, block.getZ() >> 4));
     }
 
     /**
@@ -132,4 +194,44 @@ public class ClaimListener implements Listener {
                 material == Material.ENCHANTING_TABLE ||
                 material == Material.ENDER_CHEST;
     }
+
+    /**
+     * Small per-explosion cache of explosion decisions by chunk
+     */
+    private static final class ExplosionChunkMemo {
+        private static final int SLOTS = 8;
+
+        private final ClaimManager claimManager;
+        private final String worldName;
+        private final long[] keys = new long[SLOTS];
+        private final boolean[] allowed = new boolean[SLOTS];
+        private int count;
+        private int next;
+
+        ExplosionChunkMemo(ClaimManager claimManager, String worldName) {
+            this.claimManager = claimManager;
+            this.worldName = worldName;
+        }
+
+        boolean isAllowed(int chunkX, int chunkZ) {
+            long key = Claim.chunkKey(chunkX, chunkZ);
+            for (int i = 0; i < count; i++) {
+                if (keys[i] == key) {
+                    return allowed[i];
+                }
+            }
+
+            Claim claim = claimManager.getClaimAtChunk(worldName, chunkX, chunkZ);
+            boolean result = claim == null || claim.getFlag(ClaimFlag.EXPLOSIONS);
+
+            // Round-robin replacement once every slot is used
+            keys[next] = key;
+            allowed[next] = result;
+            next = (next + 1) % SLOTS;
+            if (count < SLOTS) {
+                count++;
+            }
+            return result;
+        }
+    }
 }
\ No newline at end of file
@@ -1,14 +1,22 @@
 package com.alan.empiresOfAlan.listeners;
 
 import com.alan.empiresOfAlan.EmpiresOfAlan;
+import com.alan.empiresOfAlan.managers.PermissionManager;
 import com.alan.empiresOfAlan.managers.ResidentManager;
+import com.alan.empiresOfAlan.managers.VisualizationManager;
 import com.alan.empiresOfAlan.model.Resident;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
+import java.util.UUID;
+
 public class PlayerListener implements Listener {
     private final EmpiresOfAlan plugin;
 
@@ -16,8 +24,41 @@ public class PlayerListener implements Listener {
         this.plugin = plugin;
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+
+        // Read the resident here, off the main thread, so the join finds it in memory
+        if (!ResidentManager.getInstance().preloadResident(event.getUniqueId())) {
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER,
+                    plugin.getConfigManager().getMessage("general.loading",
+                            "§cEmpires of Alan is still loading its data, please try again in a moment."));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        if (event.getResult() == PlayerLoginEvent.Result.ALLOWED) {
+            return;
+        }
+
+        // Refused after the preload, so neither join nor quit will follow
+        ResidentManager residentManager = ResidentManager.getInstance();
+        residentManager.unpin(event.getPlayer().getUniqueId());
+        residentManager.release(event.getPlayer().getUniqueId());
+    }
+
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
+        ResidentManager.getInstance().unpin(event.getPlayer().getUniqueId());
+
+        // Residents for players who join while loading are created once the data is published
+        if (!plugin.isDataLoaded()) {
+            return;
+        }
+
         Player player = event.getPlayer();
         ResidentManager residentManager = ResidentManager.getInstance();
 
@@ -36,5 +77,18 @@ public class PlayerListener implements Listener {
         if (resident != null) {
             resident.setLastOnline(System.currentTimeMillis());
         }
+
+        // Drop cached permission decisions
+        PermissionManager.getInstance().forget(player.getUniqueId());
+
+        // Stop showing claim borders
+        VisualizationManager.getInstance().hide(player.getUniqueId());
+
+        // The player still counts as online during this event
+        UUID uuid = player.getUniqueId();
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            residentManager.unpin(uuid);
+            residentManager.release(uuid);
+        });
     }
 }
\ No newline at end of file
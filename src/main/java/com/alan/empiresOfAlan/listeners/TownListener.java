@@ -1,4 +1,169 @@
 package com.alan.empiresOfAlan.listeners;
 
-public class TownListener {
+import com.alan.empiresOfAlan.EmpiresOfAlan;
+import com.alan.empiresOfAlan.events.claim.PlayerTerritoryChangeEvent;
+import com.alan.empiresOfAlan.managers.ClaimManager;
+import com.alan.empiresOfAlan.managers.TownManager;
+import com.alan.empiresOfAlan.model.Claim;
+import com.alan.empiresOfAlan.model.Town;
+import com.alan.empiresOfAlan.util.ConfigManager;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Tracks which town's territory each player is standing in and fires
+ * {@link PlayerTerritoryChangeEvent} when the owner of their chunk changes
+ */
+public class TownListener implements Listener {
+    private final EmpiresOfAlan plugin;
+    private final ConfigManager configManager;
+    private final Map<UUID, Position> positions;
+
+    public TownListener(EmpiresOfAlan plugin) {
+        this.plugin = plugin;
+        this.configManager = plugin.getConfigManager();
+        this.positions = new HashMap<>();
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        if (!plugin.isDataLoaded()) {
+            return;
+        }
+
+        Location from = event.getFrom();
+        Location to = event.getTo();
+
+        // Still in the same chunk: the chunk bits of both coordinates are unchanged
+        if ((((from.getBlockX() ^ to.getBlockX()) | (from.getBlockZ() ^ to.getBlockZ())) >>> 4) == 0) {
+            return;
+        }
+
+        handleChunkChange(event, from, to);
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        if (!plugin.isDataLoaded()) {
+            return;
+        }
+
+        Location from = event.getFrom();
+        Location to = event.getTo();
+
+        if (from.getWorld() == to.getWorld()
+                && (((from.getBlockX() ^ to.getBlockX()) | (from.getBlockZ() ^ to.getBlockZ())) >>> 4) == 0) {
+            return;
+        }
+
+        handleChunkChange(event, from, to);
+    }
+
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        // Tracking starts with the first move after loading
+        if (!plugin.isDataLoaded()) {
+            return;
+        }
+
+        Player player = event.getPlayer();
+        Location location = player.getLocation();
+        String worldName = location.getWorld().getName();
+        int chunkX = location.getBlockX() >> 4;
+        int chunkZ = location.getBlockZ() >> 4;
+
+        positions.put(player.getUniqueId(),
+                new Position(worldName, Claim.chunkKey(chunkX, chunkZ), resolveOwner(worldName, chunkX, chunkZ)));
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        positions.remove(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Resolve the owner of the chunk a player moved into and fire the territory event if it changed
+     */
+    private void handleChunkChange(PlayerMoveEvent event, Location from, Location to) {
+        Player player = event.getPlayer();
+        String worldName = to.getWorld().getName();
+        int chunkX = to.getBlockX() >> 4;
+        int chunkZ = to.getBlockZ() >> 4;
+        long chunkKey = Claim.chunkKey(chunkX, chunkZ);
+
+        Position position = positions.get(player.getUniqueId());
+        if (position == null) {
+            positions.put(player.getUniqueId(), new Position(worldName, chunkKey, resolveOwner(worldName, chunkX, chunkZ)));
+            return;
+        }
+
+        if (position.chunkKey == chunkKey && position.worldName.equals(worldName)) {
+            return;
+        }
+
+        UUID owner = resolveOwner(worldName, chunkX, chunkZ);
+        if (Objects.equals(owner, position.townId)) {
+            position.worldName = worldName;
+            position.chunkKey = chunkKey;
+            return;
+        }
+
+        PlayerTerritoryChangeEvent change = new PlayerTerritoryChangeEvent(player, position.townId, owner, from, to);
+        Bukkit.getPluginManager().callEvent(change);
+
+        if (change.isCancelled()) {
+            event.setCancelled(true);
+            return;
+        }
+
+        position.worldName = worldName;
+        position.chunkKey = chunkKey;
+        position.townId = owner;
+        showTitle(player, owner);
+    }
+
+    private UUID resolveOwner(String worldName, int chunkX, int chunkZ) {
+        Claim claim = ClaimManager.getInstance().getClaimAtChunk(worldName, chunkX, chunkZ);
+        return claim != null ? claim.getTownId() : null;
+    }
+
+    private void showTitle(Player player, UUID townId) {
+        if (!configManager.getConfig().getBoolean("towns.territory-titles", true)) {
+            return;
+        }
+
+        Town town = TownManager.getInstance().getTown(townId);
+        String title = town != null
+                ? configManager.getMessage("territory.entering-town", "&6{0}").replace("{0}", town.getName())
+                : configManager.getMessage("territory.entering-wilderness", "&2Wilderness");
+        player.sendTitle(title, "", 5, 30, 10);
+    }
+
+    /**
+     * The chunk a player was last seen in and the town that owned it
+     */
+    private static final class Position {
+        String worldName;
+        long chunkKey;
+        UUID townId;
+
+        Position(String worldName, long chunkKey, UUID townId) {
+            this.worldName = worldName;
+            this.chunkKey = chunkKey;
+            this.townId = townId;
+        }
+    }
 }
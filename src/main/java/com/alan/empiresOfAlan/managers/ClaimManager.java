@@ -1,27 +1,57 @@
 package com.alan.empiresOfAlan.managers;
 
 import com.alan.empiresOfAlan.EmpiresOfAlan;
+import com.alan.empiresOfAlan.events.claim.ClaimRegionAddedEvent;
+import com.alan.empiresOfAlan.events.claim.ClaimRegionRemovedEvent;
+import com.alan.empiresOfAlan.index.ClaimSnapshot;
+import com.alan.empiresOfAlan.index.LongObjectMap;
+import com.alan.empiresOfAlan.index.RegionTile;
+import com.alan.empiresOfAlan.index.TownTerritory;
+import com.alan.empiresOfAlan.index.WorldClaimIndex;
 import com.alan.empiresOfAlan.model.Claim;
+import com.alan.empiresOfAlan.model.Plot;
 import com.alan.empiresOfAlan.model.Resident;
 import com.alan.empiresOfAlan.model.Town;
 import com.alan.empiresOfAlan.model.enums.ClaimFlag;
+import com.alan.empiresOfAlan.model.enums.ContiguityRule;
+import com.alan.empiresOfAlan.model.enums.RegionShape;
 import com.alan.empiresOfAlan.model.enums.TownRole;
 import org.bukkit.*;
 import org.bukkit.entity.Player;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ClaimManager {
+    // Offsets of the chunks around a chunk, the 4 edges before the 4 corners
+    private static final int[][] SURROUNDING = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
     private static ClaimManager instance;
     private final Map<UUID, Claim> claims;
-    private final Map<String, UUID> locationToClaimId; // "world:x:z" -> claim UUID
+    private final Map<String, WorldClaimIndex> worldIndexes; // world name -> packed chunk key index
+    private WorldClaimIndex lastIndex; // Most recently used world, skips the map lookup on repeat hits
+    private final Map<UUID, TownTerritory> territories; // town ID -> connectivity of its claims
+    private long version; // Bumped on every claim or unclaim
+    private final Map<String, LongObjectMap<Boolean>> dirtyTiles; // Region tiles changed since the last snapshot
+    private volatile ClaimSnapshot snapshot = ClaimSnapshot.EMPTY;
+    private boolean publishScheduled;
+    private final Map<UUID, Claim> deletedClaims; // Unclaimed since the last save
+    private final Set<UUID> deletedPlots; // Removed since the last save
     private EmpiresOfAlan plugin;
 
     private ClaimManager() {
-        this.claims = new HashMap<>();
-        this.locationToClaimId = new HashMap<>();
+        this.claims = new ConcurrentHashMap<>();
+        this.worldIndexes = new HashMap<>();
+        this.territories = new HashMap<>();
+        this.dirtyTiles = new HashMap<>();
+        this.deletedClaims = new ConcurrentHashMap<>();
+        this.deletedPlots = ConcurrentHashMap.newKeySet();
     }
 
     public static ClaimManager getInstance() {
@@ -47,7 +77,7 @@ public class ClaimManager {
      * @return Claim object or null if not found
      */
     public Claim getClaim(UUID claimId) {
-        return claims.get(claimId);
+        return claimId != null ? claims.get(claimId) : null;
     }
 
     /**
@@ -57,9 +87,44 @@ public class ClaimManager {
      * @return Claim object or null if not claimed
      */
     public Claim getClaimAt(Chunk chunk) {
-        String locationKey = Claim.getLocationKey(chunk);
-        UUID claimId = locationToClaimId.get(locationKey);
-        return claimId != null ? claims.get(claimId) : null;
+        return getClaimAtChunk(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
+    }
+
+    /**
+     * Get a claim at block coordinates, without loading or fetching the chunk
+     *
+     * @param world The world
+     * @param blockX Block X
+     * @param blockZ Block Z
+     * @return Claim object or null if not claimed
+     */
+    public Claim getClaimAt(World world, int blockX, int blockZ) {
+        return getClaimAtChunk(world.getName(), blockX >> 4, blockZ >> 4);
+    }
+
+    /**
+     * Get a claim at block coordinates, without loading or fetching the chunk
+     *
+     * @param worldName World name
+     * @param blockX Block X
+     * @param blockZ Block Z
+     * @return Claim object or null if not claimed
+     */
+    public Claim getClaimAt(String worldName, int blockX, int blockZ) {
+        return getClaimAtChunk(worldName, blockX >> 4, blockZ >> 4);
+    }
+
+    /**
+     * Get a claim at chunk coordinates
+     *
+     * @param worldName World name
+     * @param chunkX Chunk X
+     * @param chunkZ Chunk Z
+     * @return Claim object or null if not claimed
+     */
+    public Claim getClaimAtChunk(String worldName, int chunkX, int chunkZ) {
+        WorldClaimIndex index = getWorldIndex(worldName);
+        return index != null ? index.get(chunkX, chunkZ) : null;
     }
 
     /**
@@ -69,7 +134,92 @@ public class ClaimManager {
      * @return true if claimed, false otherwise
      */
     public boolean isClaimed(Chunk chunk) {
-        return locationToClaimId.containsKey(Claim.getLocationKey(chunk));
+        return getClaimAt(chunk) != null;
+    }
+
+    /**
+     * Check if block coordinates are claimed
+     *
+     * @param world The world
+     * @param blockX Block X
+     * @param blockZ Block Z
+     * @return true if claimed, false otherwise
+     */
+    public boolean isClaimed(World world, int blockX, int blockZ) {
+        return getClaimAt(world, blockX, blockZ) != null;
+    }
+
+    /**
+     * Check if any chunk inside a box of chunk coordinates is claimed
+     *
+     * @param worldName World name
+     * @param minChunkX Minimum chunk X (inclusive)
+     * @param minChunkZ Minimum chunk Z (inclusive)
+     * @param maxChunkX Maximum chunk X (inclusive)
+     * @param maxChunkZ Maximum chunk Z (inclusive)
+     * @return true if at least one chunk in the box is claimed
+     */
+    public boolean hasClaimInChunkBox(String worldName, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+        WorldClaimIndex index = getWorldIndex(worldName);
+        return index != null && index.containsAny(minChunkX, minChunkZ, maxChunkX, maxChunkZ);
+    }
+
+    /**
+     * Get every claim inside a box of chunk coordinates
+     *
+     * @param worldName World name
+     * @param minChunkX Minimum chunk X (inclusive)
+     * @param minChunkZ Minimum chunk Z (inclusive)
+     * @param maxChunkX Maximum chunk X (inclusive)
+     * @param maxChunkZ Maximum chunk Z (inclusive)
+     * @return A new list of claims
+     */
+    public List<Claim> claimsInBox(String worldName, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+        WorldClaimIndex index = getWorldIndex(worldName);
+        return index != null ? index.claimsInBox(minChunkX, minChunkZ, maxChunkX, maxChunkZ) : new ArrayList<>();
+    }
+
+    /**
+     * Get the towns with at least one claim within a square radius of a chunk
+     *
+     * @param worldName World name
+     * @param chunkX Center chunk X
+     * @param chunkZ Center chunk Z
+     * @param radius Radius in chunks
+     * @return A new set of town IDs
+     */
+    public Set<UUID> townsWithinRadius(String worldName, int chunkX, int chunkZ, int radius) {
+        WorldClaimIndex index = getWorldIndex(worldName);
+        return index != null ? index.townsWithinRadius(chunkX, chunkZ, radius) : new HashSet<>();
+    }
+
+    /**
+     * Get the town with the claim closest to a chunk
+     *
+     * @param worldName World name
+     * @param chunkX Center chunk X
+     * @param chunkZ Center chunk Z
+     * @param maxRadius Maximum distance in chunks
+     * @return Town UUID or null if no claim is within the radius
+     */
+    public UUID nearestTown(String worldName, int chunkX, int chunkZ, int maxRadius) {
+        return nearestTown(worldName, chunkX, chunkZ, maxRadius, null);
+    }
+
+    /**
+     * Get the town with the claim closest to a chunk, ignoring one town
+     *
+     * @param worldName World name
+     * @param chunkX Center chunk X
+     * @param chunkZ Center chunk Z
+     * @param maxRadius Maximum distance in chunks
+     * @param excludeTownId Town to ignore, or null
+     * @return Town UUID or null if no claim is within the radius
+     */
+    public UUID nearestTown(String worldName, int chunkX, int chunkZ, int maxRadius, UUID excludeTownId) {
+        WorldClaimIndex index = getWorldIndex(worldName);
+        Claim claim = index != null ? index.nearestClaim(chunkX, chunkZ, maxRadius, excludeTownId) : null;
+        return claim != null ? claim.getTownId() : null;
     }
 
     /**
@@ -83,6 +233,19 @@ public class ClaimManager {
         return claim != null ? claim.getTownId() : null;
     }
 
+    /**
+     * Get the town that owns a claim at block coordinates
+     *
+     * @param world The world
+     * @param blockX Block X
+     * @param blockZ Block Z
+     * @return Town UUID or null if not claimed
+     */
+    public UUID getTownAt(World world, int blockX, int blockZ) {
+        Claim claim = getClaimAt(world, blockX, blockZ);
+        return claim != null ? claim.getTownId() : null;
+    }
+
     /**
      * Check if a chunk is claimed by a specific town
      *
@@ -95,6 +258,20 @@ public class ClaimManager {
         return claimTownId != null && claimTownId.equals(townId);
     }
 
+    /**
+     * Check if block coordinates are claimed by a specific town
+     *
+     * @param world The world
+     * @param blockX Block X
+     * @param blockZ Block Z
+     * @param townId Town UUID
+     * @return true if claimed by the town, false otherwise
+     */
+    public boolean isTownClaim(World world, int blockX, int blockZ, UUID townId) {
+        UUID claimTownId = getTownAt(world, blockX, blockZ);
+        return claimTownId != null && claimTownId.equals(townId);
+    }
+
     /**
      * Claim a chunk for a town
      *
@@ -121,6 +298,16 @@ public class ClaimManager {
             return null;
         }
 
+        // Check the contiguity rule
+        if (!isContiguousClaim(chunk.getWorld().getName(), chunk.getX(), chunk.getZ(), townId)) {
+            return null;
+        }
+
+        // Check the buffer zone around other towns
+        if (isInBufferZone(chunk.getWorld().getName(), chunk.getX(), chunk.getZ(), townId)) {
+            return null;
+        }
+
         // Check player permissions
         ResidentManager residentManager = ResidentManager.getInstance();
         Resident resident = residentManager.getResident(player.getUniqueId());
@@ -135,8 +322,7 @@ public class ClaimManager {
         Claim claim = new Claim(claimId, chunk.getWorld().getName(), chunk.getX(), chunk.getZ(), townId);
 
         // Register the claim
-        claims.put(claimId, claim);
-        locationToClaimId.put(claim.getLocationKey(), claimId);
+        registerClaim(claim);
 
         // Add to town
         town.addClaim(claimId);
@@ -179,10 +365,22 @@ public class ClaimManager {
             return null;
         }
 
+        // Check the contiguity rule before anything is charged
+        if (!isContiguousClaim(chunk.getWorld().getName(), chunk.getX(), chunk.getZ(), townId)) {
+            player.sendMessage(plugin.getConfigManager().getMessage("claims.not-adjacent",
+                    "&cYou can only claim chunks that border your town's territory."));
+            return null;
+        }
+
+        // Check the buffer zone around other towns
+        if (isInBufferZone(chunk.getWorld().getName(), chunk.getX(), chunk.getZ(), townId)) {
+            sendBufferZoneMessage(player);
+            return null;
+        }
+
         // Calculate claim cost
         int freeChunks = plugin.getConfigManager().getConfig().getInt("chunk-claim.free-chunks", 10);
         double claimCost = plugin.getConfigManager().getConfig().getDouble("chunk-claim.claim-cost", 50.0);
-        String payPriority = plugin.getConfigManager().getConfig().getString("chunk-claim.pay-priority", "town-first");
 
         // Check if this is a free chunk
         if (town.getClaims().size() < freeChunks) {
@@ -191,33 +389,7 @@ public class ClaimManager {
         }
 
         // This is a paid chunk - check if player/town can afford it
-        boolean canAfford = false;
-
-        if ("town-first".equals(payPriority)) {
-            // Try town bank first
-            if (town.getBankAccount().getBalance() >= claimCost) {
-                town.getBankAccount().withdraw(claimCost);
-                canAfford = true;
-            } else {
-                // Try player balance
-                if (plugin.getVaultIntegration().has(player, claimCost)) {
-                    plugin.getVaultIntegration().withdraw(player, claimCost);
-                    canAfford = true;
-                }
-            }
-        } else {
-            // Try player balance first
-            if (plugin.getVaultIntegration().has(player, claimCost)) {
-                plugin.getVaultIntegration().withdraw(player, claimCost);
-                canAfford = true;
-            } else {
-                // Try town bank
-                if (town.getBankAccount().getBalance() >= claimCost) {
-                    town.getBankAccount().withdraw(claimCost);
-                    canAfford = true;
-                }
-            }
-        }
+        boolean canAfford = chargeClaimCost(town, player, claimCost) != null;
 
         if (!canAfford) {
             player.sendMessage(plugin.getConfigManager().getMessage("claims.cannot-afford",
@@ -231,8 +403,7 @@ public class ClaimManager {
         Claim claim = new Claim(claimId, chunk.getWorld().getName(), chunk.getX(), chunk.getZ(), townId);
 
         // Register the claim
-        claims.put(claimId, claim);
-        locationToClaimId.put(claim.getLocationKey(), claimId);
+        registerClaim(claim);
 
         // Add to town
         town.addClaim(claimId);
@@ -269,6 +440,11 @@ public class ClaimManager {
             return false;
         }
 
+        // Check the contiguity rule
+        if (wouldSplitTerritory(claim)) {
+            return false;
+        }
+
         return unclaimChunk(claim.getId());
     }
 
@@ -294,248 +470,1009 @@ public class ClaimManager {
         }
 
         // Remove the claim
-        locationToClaimId.remove(claim.getLocationKey());
-        claims.remove(claimId);
+        unregisterClaim(claim);
 
         return true;
     }
 
     /**
-     * Set a claim flag
+     * Claim every unclaimed chunk of a region for a town, without loading any chunk
      *
-     * @param claimId Claim UUID
-     * @param flag The flag to set
-     * @param value The value to set
-     * @return true if successful, false otherwise
+     * @param world The world
+     * @param centerChunkX Center chunk X
+     * @param centerChunkZ Center chunk Z
+     * @param radius Region radius in chunks
+     * @param shape Region shape
+     * @param townId The town claiming it
+     * @param player The player making the claim
+     * @return The new claims (empty if nothing was left to claim) or null if unsuccessful
      */
-    public boolean setFlag(UUID claimId, ClaimFlag flag, boolean value) {
-        Claim claim = getClaim(claimId);
-
-        if (claim == null) {
-            return false;
-        }
-
-        claim.setFlag(flag, value);
-        return true;
+    public List<Claim> claimRegion(World world, int centerChunkX, int centerChunkZ, int radius,
+                                   RegionShape shape, UUID townId, Player player) {
+        return claimRegion(world, centerChunkX, centerChunkZ, radius, shape, townId, player, false);
     }
 
     /**
-     * Check if a player can build in a chunk
+     * Claim every unclaimed chunk of a region for a town, charging once for all paid chunks
      *
-     * @param chunk The chunk
-     * @param playerId Player UUID
-     * @return true if allowed, false otherwise
+     * @param world The world
+     * @param centerChunkX Center chunk X
+     * @param centerChunkZ Center chunk Z
+     * @param radius Region radius in chunks
+     * @param shape Region shape
+     * @param townId The town claiming it
+     * @param player The player making the claim
+     * @return The new claims (empty if nothing was left to claim) or null if unsuccessful
      */
-    public boolean canBuild(Chunk chunk, UUID playerId) {
-        Claim claim = getClaimAt(chunk);
+    public List<Claim> claimRegionWithCost(World world, int centerChunkX, int centerChunkZ, int radius,
+                                           RegionShape shape, UUID townId, Player player) {
+        return claimRegion(world, centerChunkX, centerChunkZ, radius, shape, townId, player, true);
+    }
 
-        if (claim == null) {
-            return true; // Unclaimed chunks are buildable by anyone
+    private List<Claim> claimRegion(World world, int centerChunkX, int centerChunkZ, int radius,
+                                    RegionShape shape, UUID townId, Player player, boolean withCost) {
+        if (radius < 0) {
+            return null;
         }
 
-        // Get player's town and role
+        TownManager townManager = TownManager.getInstance();
+        Town town = townManager.getTown(townId);
+
+        if (town == null) {
+            return null;
+        }
+
+        // Check player permissions
         ResidentManager residentManager = ResidentManager.getInstance();
-        Resident resident = residentManager.getResident(playerId);
+        Resident resident = residentManager.getResident(player.getUniqueId());
 
-        if (resident == null) {
-            return false;
+        if (resident == null || !resident.hasTown() || !resident.getTownId().equals(townId) ||
+                !resident.hasTownPermission(TownRole.KNIGHT)) {
+            return null;
         }
 
-        // Town members can build in their own town
-        if (resident.hasTown() && resident.getTownId().equals(claim.getTownId())) {
-            return true;
+        // Collect the unclaimed chunks of the region from coordinates only
+        String worldName = world.getName();
+        WorldClaimIndex index = getWorldIndex(worldName);
+        List<Claim> newClaims = new ArrayList<>();
+
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dz = -radius; dz <= radius; dz++) {
+                if (!shape.contains(dx, dz, radius)) {
+                    continue;
+                }
+
+                int chunkX = centerChunkX + dx;
+                int chunkZ = centerChunkZ + dz;
+                if (index != null && index.contains(chunkX, chunkZ)) {
+                    continue;
+                }
+
+                newClaims.add(new Claim(UUID.randomUUID(), worldName, chunkX, chunkZ, townId));
+            }
         }
 
-        // Check the BUILD flag for non-members
-        return claim.getFlag(ClaimFlag.BUILD);
-    }
+        if (newClaims.isEmpty()) {
+            return newClaims;
+        }
 
-    /**
-     * Check if a player can interact with blocks in a chunk
-     *
-     * @param chunk The chunk
-     * @param playerId Player UUID
-     * @return true if allowed, false otherwise
-     */
-    public boolean canInteract(Chunk chunk, UUID playerId) {
-        Claim claim = getClaimAt(chunk);
+        // Check the contiguity rule once for the whole batch
+        if (!isContiguousRegion(worldName, newClaims, townId)) {
+            if (withCost) {
+                player.sendMessage(plugin.getConfigManager().getMessage("claims.not-adjacent",
+                        "&cYou can only claim chunks that border your town's territory."));
+            }
+            return null;
+        }
 
-        if (claim == null) {
-            return true; // Unclaimed chunks are interactive by anyone
+        // Check the buffer zone around other towns once for the whole batch
+        if (isRegionInBufferZone(worldName, newClaims, townId)) {
+            if (withCost) {
+                sendBufferZoneMessage(player);
+            }
+            return null;
         }
 
-        // Get player's town and role
-        ResidentManager residentManager = ResidentManager.getInstance();
-        Resident resident = residentManager.getResident(playerId);
+        // Check the claim limit once for the whole batch
+        int currentClaims = town.getClaims().size();
+        if (currentClaims + newClaims.size() > town.getMaxClaims()) {
+            if (withCost) {
+                player.sendMessage(plugin.getConfigManager().getMessage("claims.region-too-large",
+                                "&cThis region has &e{0} &cunclaimed chunks but your town can only claim &e{1} &cmore.")
+                        .replace("{0}", String.valueOf(newClaims.size()))
+                        .replace("{1}", String.valueOf(Math.max(0, town.getMaxClaims() - currentClaims))));
+            }
+            return null;
+        }
 
-        if (resident == null) {
-            return false;
+        double totalCost = withCost ? getRegionClaimCost(town, newClaims.size()) : 0.0;
+
+        // Charge once for every paid chunk, so listeners only hear about claims that can happen
+        ClaimPayer payer = null;
+        if (totalCost > 0) {
+            payer = chargeClaimCost(town, player, totalCost);
+            if (payer == null) {
+                player.sendMessage(plugin.getConfigManager().getMessage("claims.cannot-afford",
+                                "&cYou cannot afford to claim this chunk. Cost: &e${0}")
+                        .replace("{0}", String.valueOf(totalCost)));
+                return null;
+            }
         }
 
-        // Town members can interact in their own town
-        if (resident.hasTown() && resident.getTownId().equals(claim.getTownId())) {
-            return true;
+        if (!addClaims(town, newClaims, player)) {
+            if (payer != null) {
+                refundClaimCost(town, player, totalCost, payer);
+            }
+            return null;
         }
 
-        // Check the INTERACT flag for non-members
-        return claim.getFlag(ClaimFlag.INTERACT);
+        if (totalCost > 0) {
+            player.sendMessage(plugin.getConfigManager().getMessage("claims.region-claimed-paid",
+                            "&aClaimed &e{0} &achunks for town: &e{1} &a(Cost: &e${2}&a)")
+                    .replace("{0}", String.valueOf(newClaims.size()))
+                    .replace("{1}", town.getName())
+                    .replace("{2}", String.valueOf(totalCost)));
+        }
+
+        return newClaims;
     }
 
     /**
-     * Check if PvP is allowed in a chunk
+     * Claim whichever of the 8 chunks around a chunk can be claimed, in one batch with one event
+     * and one write. Chunks that are taken, in another town's buffer zone, beyond the claim limit
+     * or not connected to the territory are skipped instead of failing the batch.
      *
-     * @param chunk The chunk
-     * @return true if PvP allowed, false otherwise
+     * @param world The world
+     * @param centerChunkX Center chunk X
+     * @param centerChunkZ Center chunk Z
+     * @param townId The town claiming them
+     * @param player The player making the claim
+     * @return The new claims (empty if none could be claimed) or null if unsuccessful
      */
-    public boolean isPvPAllowed(Chunk chunk) {
-        Claim claim = getClaimAt(chunk);
+    public List<Claim> claimSurrounding(World world, int centerChunkX, int centerChunkZ, UUID townId, Player player) {
+        Town town = TownManager.getInstance().getTown(townId);
+        if (town == null) {
+            return null;
+        }
 
-        if (claim == null) {
-            return true; // Unclaimed chunks allow PvP
+        Resident resident = ResidentManager.getInstance().getResident(player.getUniqueId());
+        if (resident == null || !resident.hasTown() || !resident.getTownId().equals(townId) ||
+                !resident.hasTownPermission(TownRole.KNIGHT)) {
+            return null;
+        }
+
+        String worldName = world.getName();
+        WorldClaimIndex index = getWorldIndex(worldName);
+        int room = town.getMaxClaims() - town.getClaims().size();
+        List<Claim> newClaims = new ArrayList<>();
+
+        // Edges come first, so the claim limit cuts corners before the chunks they connect through
+        for (int[] offset : SURROUNDING) {
+            if (newClaims.size() >= room) {
+                break;
+            }
+
+            int chunkX = centerChunkX + offset[0];
+            int chunkZ = centerChunkZ + offset[1];
+            if ((index != null && index.contains(chunkX, chunkZ)) || isInBufferZone(worldName, chunkX, chunkZ, townId)) {
+                continue;
+            }
+
+            newClaims.add(new Claim(UUID.randomUUID(), worldName, chunkX, chunkZ, townId));
         }
 
-        return claim.getFlag(ClaimFlag.PVP);
+        newClaims = connectedClaims(worldName, newClaims, townId);
+        if (newClaims.isEmpty()) {
+            return newClaims;
+        }
+
+        return addClaims(town, newClaims, player) ? newClaims : null;
     }
 
     /**
-     * Check if explosions are allowed in a chunk
+     * Fire one event for a batch of new claims, then register them and persist them in one transaction
      *
-     * @param chunk The chunk
-     * @return true if explosions allowed, false otherwise
+     * @param town The town
+     * @param newClaims The new claims
+     * @param player The player making the claim
+     * @return false if a listener cancelled the event
      */
-    public boolean areExplosionsAllowed(Chunk chunk) {
-        Claim claim = getClaimAt(chunk);
+    private boolean addClaims(Town town, List<Claim> newClaims, Player player) {
+        ClaimRegionAddedEvent event = new ClaimRegionAddedEvent(newClaims, town, player);
+        Bukkit.getPluginManager().callEvent(event);
 
-        if (claim == null) {
-            return true; // Unclaimed chunks allow explosions
+        if (event.isCancelled()) {
+            return false;
+        }
+
+        for (Claim claim : newClaims) {
+            registerClaim(claim);
+            town.addClaim(claim.getId());
         }
 
-        return claim.getFlag(ClaimFlag.EXPLOSIONS);
+        // Persist the whole batch now instead of with the next save
+        if (plugin != null) {
+            for (Claim claim : newClaims) {
+                claim.clearDirty();
+            }
+            plugin.getStorage().saveClaims(newClaims);
+        }
+        return true;
     }
 
     /**
-     * Check if mob spawning is allowed in a chunk
+     * Get the cost of claiming a number of chunks at once, after the town's free chunks
      *
-     * @param chunk The chunk
-     * @return true if mob spawning allowed, false otherwise
+     * @param town The town
+     * @param chunkCount Number of chunks to claim
+     * @return The total cost
      */
-    public boolean isMobSpawningAllowed(Chunk chunk) {
-        Claim claim = getClaimAt(chunk);
-
-        if (claim == null) {
-            return true; // Unclaimed chunks allow mob spawning
-        }
+    public double getRegionClaimCost(Town town, int chunkCount) {
+        int freeChunks = plugin.getConfigManager().getConfig().getInt("chunk-claim.free-chunks", 10);
+        double claimCost = plugin.getConfigManager().getConfig().getDouble("chunk-claim.claim-cost", 50.0);
 
-        return claim.getFlag(ClaimFlag.MOB_SPAWNING);
+        int freeLeft = Math.max(0, freeChunks - town.getClaims().size());
+        int paidChunks = Math.max(0, chunkCount - freeLeft);
+        return paidChunks * claimCost;
     }
 
     /**
-     * Check if fire spread is allowed in a chunk
+     * Withdraw a claim cost from the town bank or the player, following the configured pay priority
      *
-     * @param chunk The chunk
-     * @return true if fire spread allowed, false otherwise
+     * @param town The town
+     * @param player The player
+     * @param cost The cost
+     * @return Who paid, or null if neither could afford it
      */
-    public boolean isFireSpreadAllowed(Chunk chunk) {
-        Claim claim = getClaimAt(chunk);
+    private ClaimPayer chargeClaimCost(Town town, Player player, double cost) {
+        String payPriority = plugin.getConfigManager().getConfig().getString("chunk-claim.pay-priority", "town-first");
 
-        if (claim == null) {
-            return true; // Unclaimed chunks allow fire spread
+        if ("town-first".equals(payPriority)) {
+            // Try town bank first
+            if (town.getBankAccount().getBalance() >= cost) {
+                town.getBankAccount().withdraw(cost);
+                TownManager.getInstance().journalBalance(town);
+                return ClaimPayer.TOWN;
+            }
+            // Try player balance
+            if (plugin.getVaultIntegration().has(player, cost)) {
+                plugin.getVaultIntegration().withdraw(player, cost);
+                return ClaimPayer.PLAYER;
+            }
+        } else {
+            // Try player balance first
+            if (plugin.getVaultIntegration().has(player, cost)) {
+                plugin.getVaultIntegration().withdraw(player, cost);
+                return ClaimPayer.PLAYER;
+            }
+            // Try town bank
+            if (town.getBankAccount().getBalance() >= cost) {
+                town.getBankAccount().withdraw(cost);
+                TownManager.getInstance().journalBalance(town);
+                return ClaimPayer.TOWN;
+            }
         }
 
-        return claim.getFlag(ClaimFlag.FIRE_SPREAD);
+        return null;
     }
 
     /**
-     * Get all claims
+     * Give a claim cost back to whoever paid it
      *
-     * @return Map of all claims
+     * @param town The town
+     * @param player The player
+     * @param cost The cost
+     * @param payer Who paid
      */
-    public Map<UUID, Claim> getAllClaims() {
-        return new HashMap<>(claims);
+    private void refundClaimCost(Town town, Player player, double cost, ClaimPayer payer) {
+        if (payer == ClaimPayer.TOWN) {
+            town.getBankAccount().deposit(cost);
+            TownManager.getInstance().journalBalance(town);
+        } else {
+            plugin.getVaultIntegration().deposit(player, cost);
+        }
     }
 
     /**
-     * Visualize claim borders with particles
+     * Unclaim every chunk of a region owned by the player's town, without loading any chunk
      *
-     * @param chunk The chunk to visualize
+     * @param world The world
+     * @param centerChunkX Center chunk X
+     * @param centerChunkZ Center chunk Z
+     * @param radius Region radius in chunks
+     * @param shape Region shape
+     * @param player The player doing the unclaiming
+     * @return The removed claims (empty if the town owned none of the region) or null if unsuccessful
      */
-    public void visualizeClaim(Chunk chunk) {
-        if (plugin == null) {
-            return;
+    public List<Claim> unclaimRegion(World world, int centerChunkX, int centerChunkZ, int radius,
+                                     RegionShape shape, Player player) {
+        if (radius < 0) {
+            return null;
         }
 
-        // Check if visualization is enabled
-        if (!plugin.getConfigManager().getConfig().getBoolean("claims.visualization.enabled", true)) {
-            return;
-        }
+        // Check player permissions
+        ResidentManager residentManager = ResidentManager.getInstance();
+        Resident resident = residentManager.getResident(player.getUniqueId());
 
-        Claim claim = getClaimAt(chunk);
-        if (claim == null) {
-            return;
+        if (resident == null || !resident.hasTown() || !resident.hasTownPermission(TownRole.KNIGHT)) {
+            return null;
         }
 
-        int duration = plugin.getConfigManager().getConfig().getInt("claims.visualization.duration", 10);
+        Town town = TownManager.getInstance().getTown(resident.getTownId());
+        if (town == null) {
+            return null;
+        }
 
-        // Schedule particle display
-        Bukkit.getScheduler().runTaskTimer(plugin, new Runnable() {
-            int ticks = 0;
-            final int maxTicks = duration * 4; // Convert seconds to ticks (we run every 5 ticks)
+        List<Claim> removed = new ArrayList<>();
+        WorldClaimIndex index = getWorldIndex(world.getName());
+        if (index == null) {
+            return removed;
+        }
 
-            @Override
-            public void run() {
-                if (ticks >= maxTicks) {
-                    // Cancel the task
-                    return;
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dz = -radius; dz <= radius; dz++) {
+                if (!shape.contains(dx, dz, radius)) {
+                    continue;
                 }
 
-                displayClaimParticles(chunk);
-                ticks++;
+                Claim claim = index.get(centerChunkX + dx, centerChunkZ + dz);
+                if (claim != null && claim.getTownId().equals(town.getId())) {
+                    removed.add(claim);
+                }
             }
-        }, 0L, 5L); // Run every 5 ticks (0.25 seconds)
+        }
+
+        if (removed.isEmpty()) {
+            return removed;
+        }
+
+        // Check the contiguity rule once for the whole batch
+        if (wouldSplitTerritory(town.getId(), world.getName(), removed)) {
+            player.sendMessage(plugin.getConfigManager().getMessage("claims.would-split",
+                    "&cUnclaiming this would split your town's territory."));
+            return null;
+        }
+
+        // Fire one event for the whole region
+        ClaimRegionRemovedEvent event = new ClaimRegionRemovedEvent(removed, town, player);
+        Bukkit.getPluginManager().callEvent(event);
+
+        if (event.isCancelled()) {
+            return null;
+        }
+
+        for (Claim claim : removed) {
+            town.removeClaim(claim.getId());
+            unregisterClaim(claim);
+        }
+
+        if (plugin != null) {
+            for (Claim claim : removed) {
+                deletedClaims.remove(claim.getId());
+            }
+            plugin.getStorage().deleteClaims(removed);
+        }
+
+        return removed;
     }
 
     /**
-     * Display particles around claim borders
+     * Get the configured contiguity rule
      *
-     * @param chunk The chunk to display particles for
+     * @return The rule
      */
-    private void displayClaimParticles(Chunk chunk) {
-        World world = chunk.getWorld();
-        int chunkX = chunk.getX() << 4;
-        int chunkZ = chunk.getZ() << 4;
-        int minY = world.getMinHeight();
-        int maxY = world.getMaxHeight();
+    public ContiguityRule getContiguityRule() {
+        if (plugin == null) {
+            return ContiguityRule.NONE;
+        }
+        return ContiguityRule.getById(plugin.getConfigManager().getConfig().getString("chunk-claim.contiguity", "none"));
+    }
 
-        // Get particle type from config
-        String particleName = plugin != null ?
-                plugin.getConfigManager().getConfig().getString("claims.visualization.particle-type", "FLAME") :
-                "FLAME";
-        Particle particleType;
-        try {
-            particleType = Particle.valueOf(particleName);
-        } catch (IllegalArgumentException e) {
-            particleType = Particle.FLAME;
+    /**
+     * Check if claiming a chunk keeps a town's territory contiguous under the configured rule.
+     * A town's first claim in a world is always allowed.
+     *
+     * @param worldName World name
+     * @param chunkX Chunk X
+     * @param chunkZ Chunk Z
+     * @param townId Town UUID
+     * @return true if the claim is allowed by the rule
+     */
+    public boolean isContiguousClaim(String worldName, int chunkX, int chunkZ, UUID townId) {
+        if (getContiguityRule() == ContiguityRule.NONE) {
+            return true;
         }
 
-        // Display particles at the four corners
-        for (int y = minY; y <= maxY; y += 2) {
-            // Corner particles
-            world.spawnParticle(particleType, chunkX, y, chunkZ, 1, 0, 0, 0, 0);
-            world.spawnParticle(particleType, chunkX + 16, y, chunkZ, 1, 0, 0, 0, 0);
-            world.spawnParticle(particleType, chunkX, y, chunkZ + 16, 1, 0, 0, 0, 0);
-            world.spawnParticle(particleType, chunkX + 16, y, chunkZ + 16, 1, 0, 0, 0, 0);
+        TownTerritory territory = territories.get(townId);
+        return territory == null || !territory.hasClaimsIn(worldName) || territory.isAdjacent(worldName, chunkX, chunkZ);
+    }
+
+    /**
+     * Check if a batch of new claims keeps a town's territory contiguous: every new chunk must be
+     * reachable from the existing territory through other new chunks
+     */
+    private boolean isContiguousRegion(String worldName, List<Claim> newClaims, UUID townId) {
+        return getContiguityRule() == ContiguityRule.NONE || unreachableClaims(worldName, newClaims, townId).isEmpty();
+    }
+
+    /**
+     * Drop the new claims the contiguity rule would reject from a batch
+     *
+     * @return The claims that can be added together
+     */
+    private List<Claim> connectedClaims(String worldName, List<Claim> newClaims, UUID townId) {
+        if (getContiguityRule() == ContiguityRule.NONE || newClaims.isEmpty()) {
+            return newClaims;
+        }
 
-            // Border particles (every 4 blocks)
-            for (int x = 0; x <= 16; x += 4) {
-                world.spawnParticle(particleType, chunkX + x, y, chunkZ, 1, 0, 0, 0, 0);
-                world.spawnParticle(particleType, chunkX + x, y, chunkZ + 16, 1, 0, 0, 0, 0);
+        LongObjectMap<Claim> unreachable = unreachableClaims(worldName, newClaims, townId);
+        List<Claim> connected = new ArrayList<>(newClaims.size());
+        for (Claim claim : newClaims) {
+            if (!unreachable.containsKey(claim.getChunkKey())) {
+                connected.add(claim);
             }
+        }
+        return connected;
+    }
+
+    /**
+     * Get the new claims of a batch that cannot be reached from the existing territory through
+     * other new chunks
+     */
+    private LongObjectMap<Claim> unreachableClaims(String worldName, List<Claim> newClaims, UUID townId) {
+        TownTerritory territory = territories.get(townId);
+        boolean anchored = territory != null && territory.hasClaimsIn(worldName);
+
+        LongObjectMap<Claim> pending = new LongObjectMap<>(newClaims.size());
+        for (Claim claim : newClaims) {
+            pending.put(claim.getChunkKey(), claim);
+        }
 
-            for (int z = 0; z <= 16; z += 4) {
-                world.spawnParticle(particleType, chunkX, y, chunkZ + z, 1, 0, 0, 0, 0);
-                world.spawnParticle(particleType, chunkX + 16, y, chunkZ + z, 1, 0, 0, 0, 0);
+        // Start from the chunks touching the territory, or from any chunk for a town's first claims in this world
+        ArrayDeque<Claim> queue = new ArrayDeque<>();
+        for (Claim claim : newClaims) {
+            if (!anchored || territory.isAdjacent(worldName, claim.getX(), claim.getZ())) {
+                queue.add(pending.remove(claim.getChunkKey()));
+                if (!anchored) {
+                    break;
+                }
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            Claim claim = queue.poll();
+            int x = claim.getX();
+            int z = claim.getZ();
+            long[] neighbours = {Claim.chunkKey(x + 1, z), Claim.chunkKey(x - 1, z),
+                    Claim.chunkKey(x, z + 1), Claim.chunkKey(x, z - 1)};
+            for (long key : neighbours) {
+                Claim next = pending.remove(key);
+                if (next != null) {
+                    queue.add(next);
+                }
+            }
+        }
+
+        return pending;
+    }
+
+    /**
+     * Get the configured buffer zone around towns
+     *
+     * @return Minimum distance in chunks between claims of different towns (0 when disabled)
+     */
+    public int getBufferZone() {
+        if (plugin == null) {
+            return 0;
+        }
+        return Math.max(0, plugin.getConfigManager().getConfig().getInt("chunk-claim.buffer-zone", 0));
+    }
+
+    /**
+     * Check if a chunk lies within the buffer zone of another town's claims
+     *
+     * @param worldName World name
+     * @param chunkX Chunk X
+     * @param chunkZ Chunk Z
+     * @param townId The town that wants to claim it
+     * @return true if another town has a claim within the buffer distance
+     */
+    public boolean isInBufferZone(String worldName, int chunkX, int chunkZ, UUID townId) {
+        int buffer = getBufferZone();
+        if (buffer == 0) {
+            return false;
+        }
+
+        WorldClaimIndex index = getWorldIndex(worldName);
+        return index != null && index.containsForeign(chunkX - buffer, chunkZ - buffer,
+                chunkX + buffer, chunkZ + buffer, townId);
+    }
+
+    /**
+     * Check if any chunk of a batch of new claims lies within the buffer zone of another town
+     */
+    private boolean isRegionInBufferZone(String worldName, List<Claim> newClaims, UUID townId) {
+        int buffer = getBufferZone();
+        WorldClaimIndex index = getWorldIndex(worldName);
+        if (buffer == 0 || index == null) {
+            return false;
+        }
+
+        int minX = Integer.MAX_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+        for (Claim claim : newClaims) {
+            minX = Math.min(minX, claim.getX());
+            minZ = Math.min(minZ, claim.getZ());
+            maxX = Math.max(maxX, claim.getX());
+            maxZ = Math.max(maxZ, claim.getZ());
+        }
+
+        // Nothing foreign around the whole batch, no need to test chunk by chunk
+        if (!index.containsForeign(minX - buffer, minZ - buffer, maxX + buffer, maxZ + buffer, townId)) {
+            return false;
+        }
+
+        for (Claim claim : newClaims) {
+            if (index.containsForeign(claim.getX() - buffer, claim.getZ() - buffer,
+                    claim.getX() + buffer, claim.getZ() + buffer, townId)) {
+                return true;
             }
         }
+        return false;
+    }
+
+    private void sendBufferZoneMessage(Player player) {
+        player.sendMessage(plugin.getConfigManager().getMessage("claims.buffer-zone",
+                        "&cYou cannot claim within &e{0} &cchunks of another town.")
+                .replace("{0}", String.valueOf(getBufferZone())));
+    }
+
+    /**
+     * Check if unclaiming a chunk would split its town's territory while the connected rule is active
+     *
+     * @param claim The claim
+     * @return true if the unclaim is refused by the rule
+     */
+    public boolean wouldSplitTerritory(Claim claim) {
+        if (getContiguityRule() != ContiguityRule.CONNECTED) {
+            return false;
+        }
+
+        TownTerritory territory = territories.get(claim.getTownId());
+        return territory != null && territory.wouldSplit(claim.getWorldName(), claim.getX(), claim.getZ());
+    }
+
+    /**
+     * Check if unclaiming a batch of chunks would split any of a town's parcels in a world, while
+     * the connected rule is active. Parcels the batch removes entirely are allowed to go; every
+     * other parcel it touches has to stay in one piece. The batch is removed from the territory
+     * and put back.
+     */
+    private boolean wouldSplitTerritory(UUID townId, String worldName, List<Claim> removed) {
+        if (getContiguityRule() != ContiguityRule.CONNECTED) {
+            return false;
+        }
+
+        TownTerritory territory = territories.get(townId);
+        if (territory == null) {
+            return false;
+        }
+
+        Set<Long> removedKeys = new HashSet<>();
+        for (Claim claim : removed) {
+            removedKeys.add(claim.getChunkKey());
+        }
+
+        // The chunks left next to the batch, grouped by the parcel they belong to now
+        int[] edgeX = {1, -1, 0, 0};
+        int[] edgeZ = {0, 0, 1, -1};
+        Set<Long> seen = new HashSet<>();
+        List<List<Long>> parcels = new ArrayList<>();
+        for (Claim claim : removed) {
+            for (int i = 0; i < 4; i++) {
+                int x = claim.getX() + edgeX[i];
+                int z = claim.getZ() + edgeZ[i];
+                long key = Claim.chunkKey(x, z);
+                if (removedKeys.contains(key) || !territory.contains(worldName, x, z) || !seen.add(key)) {
+                    continue;
+                }
+
+                List<Long> parcel = null;
+                for (List<Long> candidate : parcels) {
+                    long first = candidate.get(0);
+                    if (territory.isConnected(worldName, (int) (first >> 32), (int) first, x, z)) {
+                        parcel = candidate;
+                        break;
+                    }
+                }
+                if (parcel == null) {
+                    parcel = new ArrayList<>();
+                    parcels.add(parcel);
+                }
+                parcel.add(key);
+            }
+        }
+
+        for (Claim claim : removed) {
+            territory.remove(claim);
+        }
+        boolean split = false;
+        for (List<Long> parcel : parcels) {
+            long first = parcel.get(0);
+            for (int i = 1; i < parcel.size() && !split; i++) {
+                long key = parcel.get(i);
+                split = !territory.isConnected(worldName, (int) (first >> 32), (int) first, (int) (key >> 32), (int) key);
+            }
+            if (split) {
+                break;
+            }
+        }
+        for (Claim claim : removed) {
+            territory.add(claim);
+        }
+        return split;
+    }
+
+    /**
+     * Get the connectivity index of a town's claims
+     *
+     * @param townId Town UUID
+     * @return The territory, or null if the town has no claims
+     */
+    public TownTerritory getTerritory(UUID townId) {
+        return territories.get(townId);
+    }
+
+    /**
+     * Set a claim flag
+     *
+     * @param claimId Claim UUID
+     * @param flag The flag to set
+     * @param value The value to set
+     * @return true if successful, false otherwise
+     */
+    public boolean setFlag(UUID claimId, ClaimFlag flag, boolean value) {
+        Claim claim = getClaim(claimId);
+
+        if (claim == null) {
+            return false;
+        }
+
+        claim.setFlag(flag, value);
+        markTileDirty(claim);
+        journalClaim(claim);
+        PermissionManager.getInstance().invalidate();
+        return true;
+    }
+
+    /**
+     * Check if a player can build in a chunk
+     *
+     * @param chunk The chunk
+     * @param playerId Player UUID
+     * @return true if allowed, false otherwise
+     * @deprecated Ignores plots and answers with the claim's own rules; plots are per block, so use
+     * {@link #canBuild(World, int, int, UUID)}
+     */
+    @Deprecated
+    public boolean canBuild(Chunk chunk, UUID playerId) {
+        return canBuild(getClaimAt(chunk), playerId);
+    }
+
+    /**
+     * Check if a player can build at block coordinates
+     *
+     * @param world The world
+     * @param blockX Block X
+     * @param blockZ Block Z
+     * @param playerId Player UUID
+     * @return true if allowed, false otherwise
+     */
+    public boolean canBuild(World world, int blockX, int blockZ, UUID playerId) {
+        Claim claim = getClaimAt(world, blockX, blockZ);
+        if (claim != null && claim.hasPlots()) {
+            Plot plot = claim.getPlotAt(blockX, blockZ);
+            if (plot != null) {
+                return resolvePlotAccess(claim, plot, playerId, ClaimFlag.BUILD);
+            }
+        }
+        return canBuild(claim, playerId);
+    }
+
+    private boolean canBuild(Claim claim, UUID playerId) {
+        if (claim == null) {
+            return true; // Unclaimed chunks are buildable by anyone
+        }
+
+        PermissionManager permissionManager = PermissionManager.getInstance();
+        byte cached = permissionManager.getCachedDecision(playerId, claim, PermissionManager.Action.BUILD);
+        if (cached != PermissionManager.UNKNOWN) {
+            return cached == PermissionManager.ALLOW;
+        }
+
+        boolean allowed = resolveBuild(claim, playerId);
+        permissionManager.cacheDecision(playerId, claim, PermissionManager.Action.BUILD, allowed);
+        return allowed;
+    }
+
+    private boolean resolveBuild(Claim claim, UUID playerId) {
+        // Get player's town and role
+        ResidentManager residentManager = ResidentManager.getInstance();
+        Resident resident = residentManager.getResident(playerId);
+
+        if (resident == null) {
+            return false;
+        }
+
+        // Town members can build in their own town
+        if (resident.hasTown() && resident.getTownId().equals(claim.getTownId())) {
+            return true;
+        }
+
+        // Check the BUILD flag for non-members
+        return claim.getFlag(ClaimFlag.BUILD);
+    }
+
+    /**
+     * Check if a player can interact with blocks in a chunk
+     *
+     * @param chunk The chunk
+     * @param playerId Player UUID
+     * @return true if allowed, false otherwise
+     * @deprecated Ignores plots and answers with the claim's own rules; plots are per block, so use
+     * {@link #canInteract(World, int, int, UUID)}
+     */
+    @Deprecated
+    public boolean canInteract(Chunk chunk, UUID playerId) {
+        return canInteract(getClaimAt(chunk), playerId);
+    }
+
+    /**
+     * Check if a player can interact with blocks at block coordinates
+     *
+     * @param world The world
+     * @param blockX Block X
+     * @param blockZ Block Z
+     * @param playerId Player UUID
+     * @return true if allowed, false otherwise
+     */
+    public boolean canInteract(World world, int blockX, int blockZ, UUID playerId) {
+        Claim claim = getClaimAt(world, blockX, blockZ);
+        if (claim != null && claim.hasPlots()) {
+            Plot plot = claim.getPlotAt(blockX, blockZ);
+            if (plot != null) {
+                return resolvePlotAccess(claim, plot, playerId, ClaimFlag.INTERACT);
+            }
+        }
+        return canInteract(claim, playerId);
+    }
+
+    private boolean canInteract(Claim claim, UUID playerId) {
+        if (claim == null) {
+            return true; // Unclaimed chunks are interactive by anyone
+        }
+
+        PermissionManager permissionManager = PermissionManager.getInstance();
+        byte cached = permissionManager.getCachedDecision(playerId, claim, PermissionManager.Action.INTERACT);
+        if (cached != PermissionManager.UNKNOWN) {
+            return cached == PermissionManager.ALLOW;
+        }
+
+        boolean allowed = resolveInteract(claim, playerId);
+        permissionManager.cacheDecision(playerId, claim, PermissionManager.Action.INTERACT, allowed);
+        return allowed;
+    }
+
+    private boolean resolveInteract(Claim claim, UUID playerId) {
+        // Get player's town and role
+        ResidentManager residentManager = ResidentManager.getInstance();
+        Resident resident = residentManager.getResident(playerId);
+
+        if (resident == null) {
+            return false;
+        }
+
+        // Town members can interact in their own town
+        if (resident.hasTown() && resident.getTownId().equals(claim.getTownId())) {
+            return true;
+        }
+
+        // Check the INTERACT flag for non-members
+        return claim.getFlag(ClaimFlag.INTERACT);
+    }
+
+    /**
+     * Resolve access to a plot: its owner always has access, and so do town members for unowned
+     * plots and Knights and above for owned ones. Everyone else is governed by the plot's flag.
+     */
+    private boolean resolvePlotAccess(Claim claim, Plot plot, UUID playerId, ClaimFlag flag) {
+        if (playerId.equals(plot.getOwnerId())) {
+            return true;
+        }
+
+        ResidentManager residentManager = ResidentManager.getInstance();
+        Resident resident = residentManager.getResident(playerId);
+
+        if (resident == null) {
+            return false;
+        }
+
+        if (resident.hasTown() && resident.getTownId().equals(claim.getTownId()) &&
+                (!plot.hasOwner() || resident.hasTownPermission(TownRole.KNIGHT))) {
+            return true;
+        }
+
+        return plot.getFlag(flag);
+    }
+
+    /**
+     * Create a plot inside a claim
+     *
+     * @param claim The claim
+     * @param minX Minimum local block X (0-15)
+     * @param minZ Minimum local block Z (0-15)
+     * @param maxX Maximum local block X (0-15)
+     * @param maxZ Maximum local block Z (0-15)
+     * @return The new plot, or null if it overlaps another plot
+     */
+    public Plot createPlot(Claim claim, int minX, int minZ, int maxX, int maxZ) {
+        Plot plot = new Plot(UUID.randomUUID(), claim.getId(), minX, minZ, maxX, maxZ);
+        if (!claim.addPlot(plot)) {
+            return null;
+        }
+        return plot;
+    }
+
+    /**
+     * Remove a plot from its claim
+     *
+     * @param claim The claim
+     * @param plotId Plot UUID
+     * @return true if removed
+     */
+    public boolean removePlot(Claim claim, UUID plotId) {
+        if (claim.removePlot(plotId) == null) {
+            return false;
+        }
+
+        deletedPlots.add(plotId);
+        return true;
+    }
+
+    /**
+     * Set the owner of a plot
+     *
+     * @param plot The plot
+     * @param ownerId Owner UUID, or null to return the plot to the town
+     */
+    public void setPlotOwner(Plot plot, UUID ownerId) {
+        plot.setOwnerId(ownerId);
+    }
+
+    /**
+     * Set a plot flag
+     *
+     * @param plot The plot
+     * @param flag The flag to set
+     * @param value The value to set
+     */
+    public void setPlotFlag(Plot plot, ClaimFlag flag, boolean value) {
+        plot.setFlag(flag, value);
+    }
+
+    /**
+     * Check if PvP is allowed in a chunk
+     *
+     * @param chunk The chunk
+     * @return true if PvP allowed, false otherwise
+     */
+    public boolean isPvPAllowed(Chunk chunk) {
+        return isFlagAllowed(getClaimAt(chunk), ClaimFlag.PVP);
+    }
+
+    /**
+     * Check if PvP is allowed at block coordinates
+     *
+     * @param world The world
+     * @param blockX Block X
+     * @param blockZ Block Z
+     * @return true if PvP allowed, false otherwise
+     */
+    public boolean isPvPAllowed(World world, int blockX, int blockZ) {
+        return isFlagAllowed(getClaimAt(world, blockX, blockZ), ClaimFlag.PVP);
+    }
+
+    /**
+     * Check if explosions are allowed in a chunk
+     *
+     * @param chunk The chunk
+     * @return true if explosions allowed, false otherwise
+     */
+    public boolean areExplosionsAllowed(Chunk chunk) {
+        return isFlagAllowed(getClaimAt(chunk), ClaimFlag.EXPLOSIONS);
+    }
+
+    /**
+     * Check if explosions are allowed at block coordinates
+     *
+     * @param world The world
+     * @param blockX Block X
+     * @param blockZ Block Z
+     * @return true if explosions allowed, false otherwise
+     */
+    public boolean areExplosionsAllowed(World world, int blockX, int blockZ) {
+        return isFlagAllowed(getClaimAt(world, blockX, blockZ), ClaimFlag.EXPLOSIONS);
+    }
+
+    /**
+     * Check if mob spawning is allowed in a chunk
+     *
+     * @param chunk The chunk
+     * @return true if mob spawning allowed, false otherwise
+     */
+    public boolean isMobSpawningAllowed(Chunk chunk) {
+        return isFlagAllowed(getClaimAt(chunk), ClaimFlag.MOB_SPAWNING);
+    }
+
+    /**
+     * Check if mob spawning is allowed at block coordinates
+     *
+     * @param world The world
+     * @param blockX Block X
+     * @param blockZ Block Z
+     * @return true if mob spawning allowed, false otherwise
+     */
+    public boolean isMobSpawningAllowed(World world, int blockX, int blockZ) {
+        return isFlagAllowed(getClaimAt(world, blockX, blockZ), ClaimFlag.MOB_SPAWNING);
+    }
+
+    /**
+     * Check if fire spread is allowed in a chunk
+     *
+     * @param chunk The chunk
+     * @return true if fire spread allowed, false otherwise
+     */
+    public boolean isFireSpreadAllowed(Chunk chunk) {
+        return isFlagAllowed(getClaimAt(chunk), ClaimFlag.FIRE_SPREAD);
+    }
+
+    /**
+     * Check if fire spread is allowed at block coordinates
+     *
+     * @param world The world
+     * @param blockX Block X
+     * @param blockZ Block Z
+     * @return true if fire spread allowed, false otherwise
+     */
+    public boolean isFireSpreadAllowed(World world, int blockX, int blockZ) {
+        return isFlagAllowed(getClaimAt(world, blockX, blockZ), ClaimFlag.FIRE_SPREAD);
+    }
+
+    private boolean isFlagAllowed(Claim claim, ClaimFlag flag) {
+        return claim == null || claim.getFlag(flag); // Unclaimed chunks allow everything
+    }
+
+    private void journalClaim(Claim claim) {
+        if (plugin != null) {
+            plugin.getJournal().claim(claim);
+        }
+    }
+
+    private void journalUnclaim(UUID claimId) {
+        if (plugin != null) {
+            plugin.getJournal().unclaim(claimId);
+        }
+    }
+
+    /**
+     * Get all claims
+     *
+     * @return Map of all claims
+     */
+    public Map<UUID, Claim> getAllClaims() {
+        return new HashMap<>(claims);
     }
 
     /**
@@ -548,11 +1485,150 @@ public class ClaimManager {
     }
 
     /**
-     * Get the internal location to claim ID map (for database access)
+     * Add a claim to the claim map and its world's chunk index
+     *
+     * @param claim The claim to register
+     */
+    public void registerClaim(Claim claim) {
+        claims.put(claim.getId(), claim);
+        WorldClaimIndex index = getWorldIndex(claim.getWorldName());
+        if (index == null) {
+            index = new WorldClaimIndex(claim.getWorldName());
+            worldIndexes.put(claim.getWorldName(), index);
+        }
+        index.put(claim);
+        territories.computeIfAbsent(claim.getTownId(), TownTerritory::new).add(claim);
+        version++;
+        markTileDirty(claim);
+        journalClaim(claim);
+        PermissionManager.getInstance().invalidate();
+    }
+
+    /**
+     * Remove a claim from the claim map and its world's chunk index
+     *
+     * @param claim The claim to unregister
+     */
+    private void unregisterClaim(Claim claim) {
+        claims.remove(claim.getId());
+        WorldClaimIndex index = getWorldIndex(claim.getWorldName());
+        if (index != null) {
+            index.remove(claim);
+        }
+        TownTerritory territory = territories.get(claim.getTownId());
+        if (territory != null) {
+            territory.remove(claim);
+            if (territory.isEmpty()) {
+                territories.remove(claim.getTownId());
+            }
+        }
+        version++;
+        markTileDirty(claim);
+        deletedClaims.put(claim.getId(), claim);
+        journalUnclaim(claim.getId());
+        PermissionManager.getInstance().invalidate();
+    }
+
+    /**
+     * Take the claims unclaimed since the last save
+     *
+     * @return The deleted claims
+     */
+    public List<Claim> drainDeletedClaims() {
+        List<Claim> drained = new ArrayList<>(deletedClaims.values());
+        for (Claim claim : drained) {
+            deletedClaims.remove(claim.getId());
+        }
+        return drained;
+    }
+
+    /**
+     * Take the IDs of the plots removed since the last save
+     *
+     * @return The deleted plot IDs
+     */
+    public Set<UUID> drainDeletedPlots() {
+        Set<UUID> drained = new HashSet<>(deletedPlots);
+        deletedPlots.removeAll(drained);
+        return drained;
+    }
+
+    /**
+     * Get the latest published claim snapshot. Safe to call from any thread.
+     *
+     * @return The snapshot
+     */
+    public ClaimSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Build and publish a new snapshot from the changes made since the last one
+     */
+    public void publishSnapshot() {
+        publishScheduled = false;
+        if (dirtyTiles.isEmpty()) {
+            return;
+        }
+
+        snapshot = snapshot.withChanges(worldIndexes, dirtyTiles, version);
+        dirtyTiles.clear();
+    }
+
+    /**
+     * Record that a claim's region tile changed and publish a new snapshot at the next tick,
+     * so a batch of changes made in one tick is published once
+     */
+    private void markTileDirty(Claim claim) {
+        dirtyTiles.computeIfAbsent(claim.getWorldName(), world -> new LongObjectMap<>())
+                .put(Claim.chunkKey(claim.getX() >> RegionTile.SHIFT, claim.getZ() >> RegionTile.SHIFT), Boolean.TRUE);
+
+        if (publishScheduled) {
+            return;
+        }
+
+        if (plugin == null || !plugin.isEnabled()) {
+            publishSnapshot();
+            return;
+        }
+
+        publishScheduled = true;
+        Bukkit.getScheduler().runTask(plugin, this::publishSnapshot);
+    }
+
+    /**
+     * Get the claim version, which changes whenever a chunk is claimed or unclaimed
      *
-     * @return The location to claim ID map
+     * @return The version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the chunk index of a world
+     *
+     * @param worldName World name
+     * @return The index, or null if the world has no claims yet
+     */
+    public WorldClaimIndex getWorldIndex(String worldName) {
+        WorldClaimIndex index = lastIndex;
+        if (index != null && index.getWorldName().equals(worldName)) {
+            return index;
+        }
+
+        index = worldIndexes.get(worldName);
+        if (index != null) {
+            lastIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Where a claim cost was taken from
      */
-    public Map<String, UUID> getLocationToClaimId() {
-        return locationToClaimId;
+    private enum ClaimPayer {
+        TOWN,
+        PLAYER
     }
-}
\ No newline at end of file
+}
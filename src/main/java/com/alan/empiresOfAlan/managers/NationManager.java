@@ -9,16 +9,19 @@ import org.bukkit.Location;
 import org.bukkit.entity.Player;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class NationManager {
     private static NationManager instance;
     private final Map<UUID, Nation> nations;
     private final Map<String, UUID> nationNameToId;
+    private final Set<UUID> deletedNations; // Deleted since the last save
     private EmpiresOfAlan plugin;
 
     private NationManager() {
-        this.nations = new HashMap<>();
-        this.nationNameToId = new HashMap<>();
+        this.nations = new ConcurrentHashMap<>();
+        this.nationNameToId = new ConcurrentHashMap<>();
+        this.deletedNations = ConcurrentHashMap.newKeySet();
     }
 
     public static NationManager getInstance() {
@@ -44,7 +47,7 @@ public class NationManager {
      * @return Nation object or null if not found
      */
     public Nation getNation(UUID nationId) {
-        return nations.get(nationId);
+        return nationId != null ? nations.get(nationId) : null;
     }
 
     /**
@@ -119,12 +122,15 @@ public class NationManager {
                 } else {
                     resident.setNationRole(NationRole.MEMBER);
                 }
+                residentManager.journal(resident);
             }
         }
 
         // Register the nation
         nations.put(nationId, nation);
         nationNameToId.put(name.toLowerCase(), nationId);
+        townManager.saveNow(capitalTown);
+        saveNow(nation);
 
         return nation;
     }
@@ -181,12 +187,15 @@ public class NationManager {
                 } else {
                     resident.setNationRole(NationRole.MEMBER);
                 }
+                residentManager.journal(resident);
             }
         }
 
         // Register the nation
         nations.put(nationId, nation);
         nationNameToId.put(name.toLowerCase(), nationId);
+        townManager.saveNow(capitalTown);
+        saveNow(nation);
 
         return nation;
     }
@@ -217,14 +226,17 @@ public class NationManager {
                     Resident resident = residentManager.getResident(residentId);
                     if (resident != null) {
                         resident.leaveNation();
+                        residentManager.journal(resident);
                     }
                 }
+                townManager.saveNow(town);
             }
         }
 
         // Remove the nation
         nationNameToId.remove(nation.getName().toLowerCase());
         nations.remove(nationId);
+        deleteNow(nationId);
 
         return true;
     }
@@ -256,14 +268,17 @@ public class NationManager {
                     Resident resident = residentManager.getResident(residentId);
                     if (resident != null) {
                         resident.leaveNation();
+                        residentManager.journal(resident);
                     }
                 }
+                townManager.saveNow(town);
             }
         }
 
         // Remove the nation
         nationNameToId.remove(nation.getName().toLowerCase());
         nations.remove(nationId);
+        deleteNow(nationId);
 
         return true;
     }
@@ -300,8 +315,11 @@ public class NationManager {
             if (resident != null) {
                 resident.setNationId(nationId);
                 resident.setNationRole(NationRole.MEMBER);
+                residentManager.journal(resident);
             }
         }
+        townManager.saveNow(town);
+        saveNow(nation);
 
         return true;
     }
@@ -342,8 +360,11 @@ public class NationManager {
             Resident resident = residentManager.getResident(residentId);
             if (resident != null) {
                 resident.leaveNation();
+                residentManager.journal(resident);
             }
         }
+        townManager.saveNow(town);
+        saveNow(nation);
 
         return true;
     }
@@ -557,6 +578,9 @@ public class NationManager {
         nation.setLeaderId(newLeaderId);
         currentLeader.setNationRole(NationRole.OFFICER); // Demote current leader to Officer
         newLeader.setNationRole(NationRole.KING);        // Promote new leader to King
+        residentManager.journal(currentLeader);
+        residentManager.journal(newLeader);
+        saveNow(nation);
 
         return true;
     }
@@ -582,7 +606,11 @@ public class NationManager {
             return false;
         }
 
-        return nation.changeCapital(newCapitalId);
+        if (!nation.changeCapital(newCapitalId)) {
+            return false;
+        }
+        saveNow(nation);
+        return true;
     }
 
     /**
@@ -598,7 +626,11 @@ public class NationManager {
             return false;
         }
 
-        return nation.getBankAccount().deposit(amount);
+        if (!nation.getBankAccount().deposit(amount)) {
+            return false;
+        }
+        journalBalance(nation);
+        return true;
     }
 
     /**
@@ -614,7 +646,22 @@ public class NationManager {
             return false;
         }
 
-        return nation.getBankAccount().withdraw(amount);
+        if (!nation.getBankAccount().withdraw(amount)) {
+            return false;
+        }
+        journalBalance(nation);
+        return true;
+    }
+
+    /**
+     * Write a nation's bank balance to the mutation journal
+     *
+     * @param nation The nation
+     */
+    public void journalBalance(Nation nation) {
+        if (plugin != null) {
+            plugin.getJournal().balance(nation.getBankAccount());
+        }
     }
 
     /**
@@ -634,6 +681,43 @@ public class NationManager {
         return true;
     }
 
+    /**
+     * Write a nation right away instead of at the next save. The journal only records member roles,
+     * so the nation row and its town links have to match them when it is replayed.
+     *
+     * @param nation The nation
+     */
+    private void saveNow(Nation nation) {
+        if (plugin != null) {
+            nation.clearDirty();
+            plugin.getStorage().saveNation(nation, true);
+        }
+    }
+
+    /**
+     * Delete a nation's rows right away instead of at the next save, since a deletion cannot be journaled
+     *
+     * @param nationId Nation UUID
+     */
+    private void deleteNow(UUID nationId) {
+        if (plugin != null) {
+            plugin.getStorage().deleteNation(nationId);
+        } else {
+            deletedNations.add(nationId);
+        }
+    }
+
+    /**
+     * Take the IDs of the nations deleted since the last save
+     *
+     * @return The deleted nation IDs
+     */
+    public Set<UUID> drainDeletedNations() {
+        Set<UUID> drained = new HashSet<>(deletedNations);
+        deletedNations.removeAll(drained);
+        return drained;
+    }
+
     /**
      * Get all nations
      *
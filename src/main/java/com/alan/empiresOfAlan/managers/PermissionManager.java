@@ -1,4 +1,186 @@
 package com.alan.empiresOfAlan.managers;
 
+import com.alan.empiresOfAlan.model.Claim;
+import org.bukkit.Bukkit;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Caches build/interact decisions per (player, claim).
+ * Every cached decision is stamped with a global epoch; any claim, flag or
+ * membership change bumps the epoch, which invalidates all decisions at once.
+ */
 public class PermissionManager {
+    public static final byte UNKNOWN = 0;
+    public static final byte DENY = 1;
+    public static final byte ALLOW = 2;
+
+    private static PermissionManager instance;
+    private final Map<UUID, PlayerDecisions> decisions;
+    private long epoch;
+    private long hits;
+    private long misses;
+
+    private PermissionManager() {
+        this.decisions = new HashMap<>();
+    }
+
+    public static PermissionManager getInstance() {
+        if (instance == null) {
+            instance = new PermissionManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Permission checks that can be cached
+     */
+    public enum Action {
+        BUILD,
+        INTERACT
+    }
+
+    /**
+     * Get a cached decision
+     *
+     * @param playerId Player UUID
+     * @param claim The claim being checked
+     * @param action The action
+     * @return ALLOW, DENY or UNKNOWN if no current decision is cached
+     */
+    public byte getCachedDecision(UUID playerId, Claim claim, Action action) {
+        // The cache is main-thread only; async API callers always resolve directly
+        if (!Bukkit.isPrimaryThread()) {
+            return UNKNOWN;
+        }
+
+        PlayerDecisions playerDecisions = decisions.get(playerId);
+        byte decision = playerDecisions != null ? playerDecisions.get(claim, action, epoch) : UNKNOWN;
+        if (decision == UNKNOWN) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return decision;
+    }
+
+    /**
+     * Cache a decision for the current epoch
+     *
+     * @param playerId Player UUID
+     * @param claim The claim that was checked
+     * @param action The action
+     * @param allowed The decision
+     */
+    public void cacheDecision(UUID playerId, Claim claim, Action action, boolean allowed) {
+        if (!Bukkit.isPrimaryThread()) {
+            return;
+        }
+
+        decisions.computeIfAbsent(playerId, id -> new PlayerDecisions()).put(claim, action, allowed, epoch);
+    }
+
+    /**
+     * Invalidate every cached decision. Called on claim, unclaim, flag and membership changes.
+     */
+    public void invalidate() {
+        epoch++;
+    }
+
+    /**
+     * Drop the cached decisions of a player
+     *
+     * @param playerId Player UUID
+     */
+    public void forget(UUID playerId) {
+        decisions.remove(playerId);
+    }
+
+    /**
+     * Get the current epoch
+     *
+     * @return The epoch
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the fraction of lookups answered from the cache
+     *
+     * @return Hit ratio between 0 and 1
+     */
+    public double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    /**
+     * Reset the hit/miss counters
+     */
+    public void resetStats() {
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * The last few claims a player was checked against, with one known/allowed bit pair per action
+     */
+    private static final class PlayerDecisions {
+        private static final int SLOTS = 4;
+
+        private final Claim[] claims = new Claim[SLOTS];
+        private final long[] epochs = new long[SLOTS];
+        private final int[] bits = new int[SLOTS];
+        private int next;
+
+        byte get(Claim claim, Action action, long epoch) {
+            for (int i = 0; i < SLOTS; i++) {
+                if (claims[i] == claim && epochs[i] == epoch) {
+                    int shift = action.ordinal() << 1;
+                    int value = bits[i] >>> shift;
+                    if ((value & 1) == 0) {
+                        return UNKNOWN;
+                    }
+                    return (value & 2) != 0 ? ALLOW : DENY;
+                }
+            }
+            return UNKNOWN;
+        }
+
+        void put(Claim claim, Action action, boolean allowed, long epoch) {
+            int slot = -1;
+            for (int i = 0; i < SLOTS; i++) {
+                if (claims[i] == claim) {
+                    slot = i;
+                    break;
+                }
+            }
+
+            if (slot < 0) {
+                slot = next;
+                next = (next + 1) % SLOTS;
+                claims[slot] = claim;
+                bits[slot] = 0;
+            }
+
+            if (epochs[slot] != epoch) {
+                epochs[slot] = epoch;
+                bits[slot] = 0; // Decisions from an older epoch are stale
+            }
+
+            int shift = action.ordinal() << 1;
+            bits[slot] = (bits[slot] & ~(3 << shift)) | ((allowed ? 3 : 1) << shift);
+        }
+    }
 }
@@ -1,21 +1,43 @@
 package com.alan.empiresOfAlan.managers;
 
+import com.alan.empiresOfAlan.EmpiresOfAlan;
+import com.alan.empiresOfAlan.database.StorageException;
 import com.alan.empiresOfAlan.model.Resident;
 import com.alan.empiresOfAlan.model.enums.NationRole;
 import com.alan.empiresOfAlan.model.enums.TownRole;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the residents that are online or belong to a town in memory, plus a bounded LRU of
+ * other offline residents. Everyone else stays in the database until they join or are looked up
+ * through {@link #getResidentAsync(UUID)} or {@link #getResidentAsync(String)}.
+ */
 public class ResidentManager {
     private static ResidentManager instance;
     private final Map<UUID, Resident> residents;
+    private final LinkedHashMap<UUID, Boolean> evictable; // Offline residents without a town, eldest access first
+    private final Set<UUID> pinned; // Preloaded for a login that has not joined or quit yet
+    private EmpiresOfAlan plugin;
+    private int cacheSize;
 
     private ResidentManager() {
-        this.residents = new HashMap<>();
+        this.residents = new ConcurrentHashMap<>();
+        this.evictable = new LinkedHashMap<>(16, 0.75f, true);
+        this.pinned = ConcurrentHashMap.newKeySet();
+        this.cacheSize = 1000;
     }
 
     public static ResidentManager getInstance() {
@@ -26,20 +48,217 @@ public class ResidentManager {
     }
 
     /**
-     * Get a resident by UUID
+     * Set the plugin instance
+     *
+     * @param plugin The plugin instance
+     */
+    public void setPlugin(EmpiresOfAlan plugin) {
+        this.plugin = plugin;
+        this.cacheSize = Math.max(0, plugin.getConfigManager().getConfig().getInt("residents.cache-size", 1000));
+    }
+
+    /**
+     * Get a resident that is in memory.
+     * Online players and town members are always in memory; other offline residents may only be
+     * in the database, use {@link #getResidentAsync(UUID)} for those.
      *
      * @param uuid Player UUID
-     * @return Resident object or null if not found
+     * @return Resident object or null if not in memory
      */
     public Resident getResident(UUID uuid) {
-        return residents.get(uuid);
+        if (uuid == null) {
+            return null;
+        }
+
+        Resident resident = residents.get(uuid);
+        if (resident != null && !resident.hasTown()) {
+            // Refresh its place in the LRU
+            synchronized (evictable) {
+                evictable.get(uuid);
+            }
+        }
+        return resident;
     }
 
     /**
-     * Get a resident by player name
+     * Get a resident, loading it from the database if it is not in memory.
+     * The future completes on the main thread when a database fetch was needed.
+     *
+     * @param uuid Player UUID
+     * @return CompletableFuture with the resident, or null if it does not exist
+     */
+    public CompletableFuture<Resident> getResidentAsync(UUID uuid) {
+        Resident cached = getResident(uuid);
+        if (cached != null || uuid == null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return plugin.getAsyncExecutor().runAsync(() -> {
+            try {
+                return plugin.getStorage().loadResident(uuid);
+            } catch (StorageException e) {
+                throw new CompletionException(e);
+            }
+        }).thenCompose(loaded -> plugin.getAsyncExecutor().runSync(() -> cacheLoaded(loaded)));
+    }
+
+    /**
+     * Get a resident by player name, loading it from the database if it is not in memory.
+     * The future completes on the main thread when a database fetch was needed.
      *
      * @param playerName Player name
-     * @return Resident object or null if not found
+     * @return CompletableFuture with the resident, or null if it does not exist
+     */
+    public CompletableFuture<Resident> getResidentAsync(String playerName) {
+        Resident cached = getResident(playerName);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return plugin.getAsyncExecutor().runAsync(() -> {
+            try {
+                return plugin.getStorage().loadResidentByName(playerName);
+            } catch (StorageException e) {
+                throw new CompletionException(e);
+            }
+        }).thenCompose(loaded -> plugin.getAsyncExecutor().runSync(() -> cacheLoaded(loaded)));
+    }
+
+    /**
+     * Get the resident of a player who is online, loading it or creating a new one as needed
+     *
+     * @param player The player
+     * @return CompletableFuture with the resident
+     */
+    public CompletableFuture<Resident> loadOrCreateResident(Player player) {
+        return getResidentAsync(player.getUniqueId()).thenApply(resident -> {
+            if (resident == null) {
+                return createResident(player);
+            }
+            if (!resident.getName().equals(player.getName())) {
+                resident.setName(player.getName());
+            }
+            return resident;
+        });
+    }
+
+    /**
+     * Keep a resident loaded for a player who is logging in (async login thread).
+     * It is pinned until {@link #unpin(UUID)} so it cannot be evicted before the join completes.
+     *
+     * @param uuid Player UUID
+     * @return false if the resident could not be read from the database
+     */
+    public boolean preloadResident(UUID uuid) {
+        pinned.add(uuid);
+        synchronized (evictable) {
+            evictable.remove(uuid);
+        }
+        if (residents.containsKey(uuid)) {
+            return true;
+        }
+
+        try {
+            Resident loaded = plugin.getStorage().loadResident(uuid);
+            if (loaded != null) {
+                loaded.clearDirty();
+                residents.putIfAbsent(uuid, loaded);
+            }
+            return true;
+        } catch (StorageException e) {
+            plugin.getLogger().severe("Failed to load resident " + uuid + ": " + e.getMessage());
+            pinned.remove(uuid);
+            return false;
+        }
+    }
+
+    /**
+     * End the pin taken by {@link #preloadResident(UUID)} once the player joined, quit or was refused
+     *
+     * @param uuid Player UUID
+     */
+    public void unpin(UUID uuid) {
+        pinned.remove(uuid);
+    }
+
+    /**
+     * Let a resident be evicted once it is offline and not in a town (main thread).
+     * Residents that are online or in a town again by the time they reach the end of the LRU are kept.
+     *
+     * @param uuid Player UUID
+     */
+    public void release(UUID uuid) {
+        Resident resident = residents.get(uuid);
+        if (resident == null || resident.hasTown() || Bukkit.getPlayer(uuid) != null || pinned.contains(uuid)) {
+            return;
+        }
+
+        synchronized (evictable) {
+            evictable.put(uuid, Boolean.TRUE);
+        }
+        trimCache();
+    }
+
+    /**
+     * Number of residents currently in memory
+     *
+     * @return The resident count
+     */
+    public int getLoadedCount() {
+        return residents.size();
+    }
+
+    /**
+     * Add a resident fetched from the database unless a copy is already in memory (main thread)
+     */
+    private Resident cacheLoaded(Resident loaded) {
+        if (loaded == null) {
+            return null;
+        }
+
+        Resident existing = residents.putIfAbsent(loaded.getUuid(), loaded);
+        if (existing != null) {
+            return existing;
+        }
+
+        loaded.clearDirty();
+        release(loaded.getUuid());
+        return loaded;
+    }
+
+    /**
+     * Evict the least recently used offline residents beyond the cache size (main thread).
+     * Unsaved changes are queued for writing before a resident is dropped.
+     */
+    private void trimCache() {
+        List<UUID> victims = new ArrayList<>();
+        synchronized (evictable) {
+            Iterator<UUID> iterator = evictable.keySet().iterator();
+            while (evictable.size() > cacheSize && iterator.hasNext()) {
+                victims.add(iterator.next());
+                iterator.remove();
+            }
+        }
+
+        for (UUID uuid : victims) {
+            Resident resident = residents.get(uuid);
+            if (resident == null || resident.hasTown() || Bukkit.getPlayer(uuid) != null || pinned.contains(uuid)) {
+                continue;
+            }
+
+            if (resident.isDirty()) {
+                resident.clearDirty();
+                plugin.getStorage().saveResident(resident);
+            }
+            residents.remove(uuid);
+        }
+    }
+
+    /**
+     * Get a resident in memory by player name
+     *
+     * @param playerName Player name
+     * @return Resident object or null if not in memory
      */
     public Resident getResident(String playerName) {
         Player player = Bukkit.getPlayer(playerName);
@@ -67,6 +286,7 @@ public class ResidentManager {
         UUID uuid = player.getUniqueId();
         Resident resident = new Resident(uuid, player.getName());
         residents.put(uuid, resident);
+        PermissionManager.getInstance().invalidate();
         return resident;
     }
 
@@ -117,6 +337,8 @@ public class ResidentManager {
 
         resident.setTownId(townId);
         resident.setTownRole(role);
+        journal(resident);
+        PermissionManager.getInstance().invalidate();
         return true;
     }
 
@@ -133,6 +355,9 @@ public class ResidentManager {
         }
 
         resident.leaveTown();
+        journal(resident);
+        PermissionManager.getInstance().invalidate();
+        release(residentId);
         return true;
     }
 
@@ -152,6 +377,7 @@ public class ResidentManager {
 
         resident.setNationId(nationId);
         resident.setNationRole(role);
+        journal(resident);
         return true;
     }
 
@@ -168,6 +394,7 @@ public class ResidentManager {
         }
 
         resident.leaveNation();
+        journal(resident);
         return true;
     }
 
@@ -191,6 +418,8 @@ public class ResidentManager {
         }
 
         resident.setTownRole(TownRole.getByLevel(nextLevel));
+        journal(resident);
+        PermissionManager.getInstance().invalidate();
         return true;
     }
 
@@ -214,6 +443,8 @@ public class ResidentManager {
         }
 
         resident.setTownRole(TownRole.getByLevel(prevLevel));
+        journal(resident);
+        PermissionManager.getInstance().invalidate();
         return true;
     }
 
@@ -237,6 +468,7 @@ public class ResidentManager {
         }
 
         resident.setNationRole(NationRole.getByLevel(nextLevel));
+        journal(resident);
         return true;
     }
 
@@ -260,9 +492,22 @@ public class ResidentManager {
         }
 
         resident.setNationRole(NationRole.getByLevel(prevLevel));
+        journal(resident);
         return true;
     }
 
+    /**
+     * Write a resident's town and nation membership to the mutation journal, so it survives a
+     * crash before the next save (main thread)
+     *
+     * @param resident The changed resident
+     */
+    public void journal(Resident resident) {
+        if (plugin != null) {
+            plugin.getJournal().resident(resident);
+        }
+    }
+
     /**
      * Toggle a resident's town chat status
      *
@@ -316,12 +561,16 @@ public class ResidentManager {
      */
     public void removeResident(UUID uuid) {
         residents.remove(uuid);
+        synchronized (evictable) {
+            evictable.remove(uuid);
+        }
+        PermissionManager.getInstance().invalidate();
     }
 
     /**
-     * Get all residents
+     * Get all residents in memory
      *
-     * @return Map of all residents
+     * @return Map of the loaded residents
      */
     public Map<UUID, Resident> getAllResidents() {
         return new HashMap<>(residents);
@@ -146,6 +146,7 @@ public class TaxManager {
 
         // Notify town owner of total taxes collected
         if (totalCollected > 0) {
+            TownManager.getInstance().journalBalance(town);
             Player owner = Bukkit.getPlayer(town.getOwnerId());
             if (owner != null && owner.isOnline()) {
                 owner.sendMessage(plugin.getConfigManager().getMessage("taxes.town-collected",
@@ -190,6 +191,7 @@ public class TaxManager {
                     // Add to nation bank
                     nation.getBankAccount().deposit(taxAmount);
                     totalCollected += taxAmount;
+                    townManager.journalBalance(town);
 
                     // Notify town members
                     notifyTownOfNationTax(town, nation, taxAmount);
@@ -202,6 +204,7 @@ public class TaxManager {
 
         // Notify nation leader of total taxes collected
         if (totalCollected > 0) {
+            NationManager.getInstance().journalBalance(nation);
             Player leader = Bukkit.getPlayer(nation.getLeaderId());
             if (leader != null && leader.isOnline()) {
                 leader.sendMessage(plugin.getConfigManager().getMessage("taxes.nation-collected",
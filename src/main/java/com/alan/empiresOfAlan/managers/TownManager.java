@@ -4,23 +4,26 @@ import com.alan.empiresOfAlan.EmpiresOfAlan;
 import com.alan.empiresOfAlan.model.Nation;
 import com.alan.empiresOfAlan.model.Resident;
 import com.alan.empiresOfAlan.model.Town;
+import com.alan.empiresOfAlan.model.enums.RegionShape;
 import com.alan.empiresOfAlan.model.enums.TownRole;
-import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TownManager {
     private static TownManager instance;
     private final Map<UUID, Town> towns;
     private final Map<String, UUID> townNameToId;
+    private final Set<UUID> deletedTowns; // Deleted since the last save
     private EmpiresOfAlan plugin;
 
     private TownManager() {
-        this.towns = new HashMap<>();
-        this.townNameToId = new HashMap<>();
+        this.towns = new ConcurrentHashMap<>();
+        this.townNameToId = new ConcurrentHashMap<>();
+        this.deletedTowns = ConcurrentHashMap.newKeySet();
     }
 
     public static TownManager getInstance() {
@@ -46,7 +49,7 @@ public class TownManager {
      * @return Town object or null if not found
      */
     public Town getTown(UUID townId) {
-        return towns.get(townId);
+        return townId != null ? towns.get(townId) : null;
     }
 
     /**
@@ -98,47 +101,44 @@ public class TownManager {
         // Add the founder as owner
         resident.setTownId(townId);
         resident.setTownRole(TownRole.OWNER);
+        residentManager.journal(resident);
+        PermissionManager.getInstance().invalidate();
 
         // Register the town
         towns.put(townId, town);
         townNameToId.put(name.toLowerCase(), townId);
 
+        saveNow(town);
+
         // Auto-claim surrounding chunks if enabled
         if (plugin != null && plugin.getConfigManager().getConfig().getBoolean("towns.auto-claim-surrounding", true)) {
-            autoClaimSurroundingChunks(town, founder.getLocation().getChunk(), founder);
+            autoClaimSurroundingChunks(town, founder.getLocation(), founder);
         }
 
         return town;
     }
 
     /**
-     * Auto-claim surrounding chunks when town is created
+     * Auto-claim the chunk a town was founded in, then whichever of the 8 surrounding chunks can be
+     * claimed as one batch, without loading the surrounding chunks
      *
      * @param town The town
-     * @param centerChunk The center chunk
+     * @param center The founding location
      * @param player The player
      */
-    private void autoClaimSurroundingChunks(Town town, Chunk centerChunk, Player player) {
+    private void autoClaimSurroundingChunks(Town town, Location center, Player player) {
         ClaimManager claimManager = ClaimManager.getInstance();
-        World world = centerChunk.getWorld();
+        World world = center.getWorld();
+        int centerX = center.getBlockX() >> 4;
+        int centerZ = center.getBlockZ() >> 4;
 
         // Claim the center chunk first
-        claimManager.claimChunk(centerChunk, town.getId(), player);
-
-        // Claim 8 surrounding chunks
-        int centerX = centerChunk.getX();
-        int centerZ = centerChunk.getZ();
-
-        for (int x = -1; x <= 1; x++) {
-            for (int z = -1; z <= 1; z++) {
-                if (x == 0 && z == 0) continue; // Skip center chunk
-
-                Chunk chunk = world.getChunkAt(centerX + x, centerZ + z);
-                if (!claimManager.isClaimed(chunk) && town.canClaimMore()) {
-                    claimManager.claimChunk(chunk, town.getId(), player);
-                }
-            }
+        if (claimManager.claimRegion(world, centerX, centerZ, 0, RegionShape.RECTANGLE, town.getId(), player) == null) {
+            return;
         }
+
+        // Neighbours in the buffer zone or claimed by another town are left out of the batch
+        claimManager.claimSurrounding(world, centerX, centerZ, town.getId(), player);
     }
 
     /**
@@ -174,6 +174,8 @@ public class TownManager {
             Resident resident = residentManager.getResident(residentId);
             if (resident != null) {
                 resident.leaveTown();
+                residentManager.journal(resident);
+                residentManager.release(residentId);
             }
         }
 
@@ -186,6 +188,8 @@ public class TownManager {
         // Remove the town
         townNameToId.remove(town.getName().toLowerCase());
         towns.remove(townId);
+        deleteNow(townId);
+        PermissionManager.getInstance().invalidate();
 
         return true;
     }
@@ -224,6 +228,8 @@ public class TownManager {
             Resident resident = residentManager.getResident(residentId);
             if (resident != null) {
                 resident.leaveTown();
+                residentManager.journal(resident);
+                residentManager.release(residentId);
             }
         }
 
@@ -236,10 +242,40 @@ public class TownManager {
         // Remove the town
         townNameToId.remove(town.getName().toLowerCase());
         towns.remove(townId);
+        deleteNow(townId);
+        PermissionManager.getInstance().invalidate();
 
         return true;
     }
 
+    /**
+     * Write a town right away instead of at the next save. The journal only records member roles,
+     * so the town row has to match them when it is replayed.
+     *
+     * @param town The town
+     */
+    void saveNow(Town town) {
+        if (plugin != null) {
+            town.clearDirty();
+            plugin.getStorage().saveTown(town, true, false);
+        }
+    }
+
+    /**
+     * Delete a town's rows right away instead of at the next save. A deletion cannot be journaled,
+     * and replaying the departures of its members on top of a town that is still in the database
+     * would bring the town back.
+     *
+     * @param townId Town UUID
+     */
+    private void deleteNow(UUID townId) {
+        if (plugin != null) {
+            plugin.getStorage().deleteTown(townId);
+        } else {
+            deletedTowns.add(townId);
+        }
+    }
+
     /**
      * Add a resident to a town
      *
@@ -265,6 +301,8 @@ public class TownManager {
         town.addResident(residentId);
         resident.setTownId(townId);
         resident.setTownRole(TownRole.MEMBER);
+        residentManager.journal(resident);
+        PermissionManager.getInstance().invalidate();
 
         return true;
     }
@@ -298,6 +336,9 @@ public class TownManager {
         // Remove resident from town
         town.removeResident(residentId);
         resident.leaveTown();
+        residentManager.journal(resident);
+        PermissionManager.getInstance().invalidate();
+        residentManager.release(residentId);
 
         return true;
     }
@@ -503,6 +544,10 @@ public class TownManager {
         town.setOwnerId(newOwnerId);
         currentOwner.setTownRole(TownRole.MAYOR); // Demote current owner to Mayor
         newOwner.setTownRole(TownRole.OWNER);     // Promote new owner to Owner
+        residentManager.journal(currentOwner);
+        residentManager.journal(newOwner);
+        saveNow(town);
+        PermissionManager.getInstance().invalidate();
 
         return true;
     }
@@ -520,7 +565,11 @@ public class TownManager {
             return false;
         }
 
-        return town.getBankAccount().deposit(amount);
+        if (!town.getBankAccount().deposit(amount)) {
+            return false;
+        }
+        journalBalance(town);
+        return true;
     }
 
     /**
@@ -536,7 +585,22 @@ public class TownManager {
             return false;
         }
 
-        return town.getBankAccount().withdraw(amount);
+        if (!town.getBankAccount().withdraw(amount)) {
+            return false;
+        }
+        journalBalance(town);
+        return true;
+    }
+
+    /**
+     * Write a town's bank balance to the mutation journal
+     *
+     * @param town The town
+     */
+    public void journalBalance(Town town) {
+        if (plugin != null) {
+            plugin.getJournal().balance(town.getBankAccount());
+        }
     }
 
     /**
@@ -556,6 +620,17 @@ public class TownManager {
         return true;
     }
 
+    /**
+     * Take the IDs of the towns deleted since the last save
+     *
+     * @return The deleted town IDs
+     */
+    public Set<UUID> drainDeletedTowns() {
+        Set<UUID> drained = new HashSet<>(deletedTowns);
+        deletedTowns.removeAll(drained);
+        return drained;
+    }
+
     /**
      * Get all towns
      *
@@ -0,0 +1,309 @@
+package com.alan.empiresOfAlan.managers;
+
+import com.alan.empiresOfAlan.EmpiresOfAlan;
+import com.alan.empiresOfAlan.model.Claim;
+import com.alan.empiresOfAlan.model.Town;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Shows town borders to players with particles.
+ * One repeating task serves every viewer and stops itself once the last viewer expires.
+ * Only the outer border of the viewer's town is drawn, near the viewer's Y level and
+ * only to the viewer, within a shared particle budget per update.
+ */
+public class VisualizationManager {
+    private static final int SEGMENT_LENGTH = 16;
+    private static final int POINT_SPACING = 2;
+    private static final double[] ROW_OFFSETS = {0.5, 2.0}; // Heights above the player's feet
+    private static final int POINTS_PER_SEGMENT = (SEGMENT_LENGTH / POINT_SPACING + 1) * ROW_OFFSETS.length;
+
+    private static VisualizationManager instance;
+    private final Map<UUID, Viewer> viewers;
+    private EmpiresOfAlan plugin;
+    private BukkitTask task;
+    private long ticks;
+    private int viewerCursor; // First viewer served when the budget cannot cover everyone
+
+    private VisualizationManager() {
+        this.viewers = new LinkedHashMap<>();
+    }
+
+    public static VisualizationManager getInstance() {
+        if (instance == null) {
+            instance = new VisualizationManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Set the plugin reference
+     *
+     * @param plugin The plugin instance
+     */
+    public void setPlugin(EmpiresOfAlan plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Show a town's border to a player for the configured duration.
+     * Calling it again for the same player replaces their current view.
+     *
+     * @param player The player
+     * @param townId Town UUID
+     * @return true if the border is being shown
+     */
+    public boolean show(Player player, UUID townId) {
+        if (plugin == null || !plugin.getConfigManager().getConfig().getBoolean("claims.visualization.enabled", true)) {
+            return false;
+        }
+
+        int duration = plugin.getConfigManager().getConfig().getInt("claims.visualization.duration", 10);
+        String particleName = plugin.getConfigManager().getConfig().getString("claims.visualization.particle-type", "FLAME");
+        Particle particle;
+        try {
+            particle = Particle.valueOf(particleName);
+        } catch (IllegalArgumentException e) {
+            particle = Particle.FLAME;
+        }
+
+        viewers.put(player.getUniqueId(), new Viewer(townId, particle, ticks + duration * 20L));
+        startTask();
+        return true;
+    }
+
+    /**
+     * Stop showing borders to a player
+     *
+     * @param playerId Player UUID
+     */
+    public void hide(UUID playerId) {
+        viewers.remove(playerId);
+    }
+
+    /**
+     * Check if a player is currently viewing a border
+     *
+     * @param playerId Player UUID
+     * @return true if viewing
+     */
+    public boolean isViewing(UUID playerId) {
+        return viewers.containsKey(playerId);
+    }
+
+    /**
+     * Remove every viewer and cancel the task
+     */
+    public void stop() {
+        viewers.clear();
+        cancelTask();
+    }
+
+    private void startTask() {
+        if (task != null) {
+            return;
+        }
+
+        long interval = getInterval();
+        task = Bukkit.getScheduler().runTaskTimer(plugin, () -> tick(interval), 0L, interval);
+    }
+
+    private void cancelTask() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private long getInterval() {
+        return Math.max(1, plugin.getConfigManager().getConfig().getInt("claims.visualization.update-interval", 5));
+    }
+
+    private void tick(long interval) {
+        ticks += interval;
+
+        // Drop expired and offline viewers
+        Iterator<Map.Entry<UUID, Viewer>> iterator = viewers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, Viewer> entry = iterator.next();
+            if (entry.getValue().expiresAt <= ticks || Bukkit.getPlayer(entry.getKey()) == null) {
+                iterator.remove();
+            }
+        }
+
+        if (viewers.isEmpty()) {
+            cancelTask();
+            return;
+        }
+
+        int budget = plugin.getConfigManager().getConfig().getInt("claims.visualization.particle-budget", 300);
+        int radius = plugin.getConfigManager().getConfig().getInt("claims.visualization.radius", 48);
+        int perViewer = budget / viewers.size();
+
+        if (perViewer >= POINTS_PER_SEGMENT) {
+            for (Map.Entry<UUID, Viewer> entry : viewers.entrySet()) {
+                Player player = Bukkit.getPlayer(entry.getKey());
+                render(player, entry.getValue(), perViewer, radius);
+            }
+            return;
+        }
+
+        // Too many viewers for a segment each: they take turns, one segment per update
+        List<UUID> order = new ArrayList<>(viewers.keySet());
+        int turns = Math.min(order.size(), Math.max(1, budget / POINTS_PER_SEGMENT));
+        for (int i = 0; i < turns; i++) {
+            UUID playerId = order.get((viewerCursor + i) % order.size());
+            render(Bukkit.getPlayer(playerId), viewers.get(playerId), POINTS_PER_SEGMENT, radius);
+        }
+        viewerCursor = (viewerCursor + turns) % order.size();
+    }
+
+    /**
+     * Draw the border segments near a player, continuing from where the last update stopped
+     * when the budget does not cover every nearby segment
+     */
+    private void render(Player player, Viewer viewer, int budget, int radius) {
+        Location location = player.getLocation();
+        String worldName = player.getWorld().getName();
+        viewer.refresh(worldName);
+
+        int[] segments = viewer.segments;
+        int count = viewer.segmentCount;
+        if (count == 0) {
+            return;
+        }
+
+        double px = location.getX();
+        double py = location.getY();
+        double pz = location.getZ();
+        double reach = radius + SEGMENT_LENGTH / 2.0;
+        double reachSquared = reach * reach;
+
+        int sent = 0;
+        int index = viewer.cursor % count;
+        for (int visited = 0; visited < count; visited++, index = (index + 1) % count) {
+            if (sent + POINTS_PER_SEGMENT > budget) {
+                break;
+            }
+
+            int x = segments[index * 3];
+            int z = segments[index * 3 + 1];
+            boolean alongX = segments[index * 3 + 2] == 0;
+
+            double midX = alongX ? x + SEGMENT_LENGTH / 2.0 : x;
+            double midZ = alongX ? z : z + SEGMENT_LENGTH / 2.0;
+            double dx = midX - px;
+            double dz = midZ - pz;
+            if (dx * dx + dz * dz > reachSquared) {
+                continue;
+            }
+
+            for (int offset = 0; offset <= SEGMENT_LENGTH; offset += POINT_SPACING) {
+                double pointX = alongX ? x + offset : x;
+                double pointZ = alongX ? z : z + offset;
+                for (double row : ROW_OFFSETS) {
+                    player.spawnParticle(viewer.particle, pointX, py + row, pointZ, 1, 0, 0, 0, 0);
+                }
+            }
+            sent += POINTS_PER_SEGMENT;
+        }
+        viewer.cursor = index;
+    }
+
+    /**
+     * A player viewing a town border, with the border segments of the world they are in
+     */
+    private static final class Viewer {
+        final UUID townId;
+        final Particle particle;
+        final long expiresAt;
+
+        // Segments as (blockX, blockZ, axis) triples, axis 0 runs along X and 1 along Z
+        int[] segments = new int[0];
+        int segmentCount;
+        int cursor;
+        private String worldName;
+        private long version = -1;
+
+        Viewer(UUID townId, Particle particle, long expiresAt) {
+            this.townId = townId;
+            this.particle = particle;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * Rebuild the border when the viewer changed world or any claim changed
+         */
+        void refresh(String worldName) {
+            ClaimManager claimManager = ClaimManager.getInstance();
+            if (version == claimManager.getVersion() && worldName.equals(this.worldName)) {
+                return;
+            }
+
+            this.worldName = worldName;
+            this.version = claimManager.getVersion();
+            this.segmentCount = 0;
+            this.cursor = 0;
+
+            Town town = TownManager.getInstance().getTown(townId);
+            if (town == null) {
+                return;
+            }
+
+            for (UUID claimId : town.getClaims()) {
+                Claim claim = claimManager.getClaim(claimId);
+                if (claim == null || !claim.getWorldName().equals(worldName)) {
+                    continue;
+                }
+
+                int chunkX = claim.getX();
+                int chunkZ = claim.getZ();
+                int blockX = chunkX << 4;
+                int blockZ = chunkZ << 4;
+
+                // An edge is part of the outer border when the chunk across it is not the town's
+                if (!isOwnedBy(claimManager, chunkX, chunkZ - 1)) {
+                    add(blockX, blockZ, 0);
+                }
+                if (!isOwnedBy(claimManager, chunkX, chunkZ + 1)) {
+                    add(blockX, blockZ + SEGMENT_LENGTH, 0);
+                }
+                if (!isOwnedBy(claimManager, chunkX - 1, chunkZ)) {
+                    add(blockX, blockZ, 1);
+                }
+                if (!isOwnedBy(claimManager, chunkX + 1, chunkZ)) {
+                    add(blockX + SEGMENT_LENGTH, blockZ, 1);
+                }
+            }
+        }
+
+        private boolean isOwnedBy(ClaimManager claimManager, int chunkX, int chunkZ) {
+            Claim claim = claimManager.getClaimAtChunk(worldName, chunkX, chunkZ);
+            return claim != null && claim.getTownId().equals(townId);
+        }
+
+        private void add(int x, int z, int axis) {
+            if ((segmentCount + 1) * 3 > segments.length) {
+                int[] grown = new int[Math.max(48, segments.length * 2)];
+                System.arraycopy(segments, 0, grown, 0, segmentCount * 3);
+                segments = grown;
+            }
+
+            int offset = segmentCount * 3;
+            segments[offset] = x;
+            segments[offset + 1] = z;
+            segments[offset + 2] = axis;
+            segmentCount++;
+        }
+    }
+}
@@ -5,7 +5,9 @@ import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
 import org.bukkit.World;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -15,7 +17,10 @@ public class Claim {
     private final int x;
     private final int z;
     private UUID townId;
-    private final Map<ClaimFlag, Boolean> flags;
+    private ClaimFlagSet flags;
+    private volatile boolean dirty = true; // New claims have never been saved
+    private List<Plot> plots; // null until the first plot is added
+    private byte[] plotMap; // Block column (z << 4 | x) -> plot index + 1, 0 for no plot
 
     public Claim(UUID id, String worldName, int x, int z, UUID townId) {
         this.id = id;
@@ -23,12 +28,7 @@ public class Claim {
         this.x = x;
         this.z = z;
         this.townId = townId;
-        this.flags = new HashMap<>();
-
-        // Initialize with default values
-        for (ClaimFlag flag : ClaimFlag.values()) {
-            flags.put(flag, flag.getDefaultValue());
-        }
+        this.flags = ClaimFlagSet.DEFAULTS;
     }
 
     public UUID getId() {
@@ -53,18 +53,161 @@ public class Claim {
 
     public void setTownId(UUID townId) {
         this.townId = townId;
+        this.dirty = true;
     }
 
     public Map<ClaimFlag, Boolean> getFlags() {
-        return new HashMap<>(flags); // Return a copy
+        return flags.toMap(); // Return a copy
     }
 
     public boolean getFlag(ClaimFlag flag) {
-        return flags.getOrDefault(flag, flag.getDefaultValue());
+        return (flags.getMask() & flag.getMask()) != 0;
     }
 
     public void setFlag(ClaimFlag flag, boolean value) {
-        flags.put(flag, value);
+        this.flags = flags.with(flag, value);
+        this.dirty = true;
+    }
+
+    public ClaimFlagSet getFlagSet() {
+        return flags;
+    }
+
+    public int getFlagMask() {
+        return flags.getMask();
+    }
+
+    public void setFlagMask(int mask) {
+        this.flags = ClaimFlagSet.of(mask);
+        this.dirty = true;
+    }
+
+    /**
+     * Check if this claim has any plot
+     *
+     * @return true if at least one plot exists
+     */
+    public boolean hasPlots() {
+        return plots != null;
+    }
+
+    /**
+     * Get the plots of this claim
+     *
+     * @return Unmodifiable list of plots
+     */
+    public List<Plot> getPlots() {
+        return plots != null ? Collections.unmodifiableList(plots) : Collections.emptyList();
+    }
+
+    /**
+     * Get the plot at block coordinates inside this claim's chunk
+     *
+     * @param blockX Block X (world coordinate)
+     * @param blockZ Block Z (world coordinate)
+     * @return The plot, or null if the column is not part of a plot
+     */
+    public Plot getPlotAt(int blockX, int blockZ) {
+        if (plotMap == null) {
+            return null;
+        }
+        int index = plotMap[((blockZ & 15) << 4) | (blockX & 15)] & 0xFF;
+        return index != 0 ? plots.get(index - 1) : null;
+    }
+
+    /**
+     * Get a plot by UUID
+     *
+     * @param plotId Plot UUID
+     * @return The plot, or null if not found
+     */
+    public Plot getPlot(UUID plotId) {
+        if (plots != null) {
+            for (Plot plot : plots) {
+                if (plot.getId().equals(plotId)) {
+                    return plot;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Add a plot to this claim
+     *
+     * @param plot The plot
+     * @return false if it overlaps an existing plot or the chunk already has 255 plots
+     */
+    public boolean addPlot(Plot plot) {
+        if (plots == null) {
+            plots = new ArrayList<>(2);
+            plotMap = new byte[256];
+        }
+
+        if (plots.size() >= 255) {
+            return false;
+        }
+        for (Plot existing : plots) {
+            if (existing.overlaps(plot)) {
+                return false;
+            }
+        }
+
+        plots.add(plot);
+        mapPlot(plot, plots.size());
+        return true;
+    }
+
+    /**
+     * Remove a plot from this claim
+     *
+     * @param plotId Plot UUID
+     * @return The removed plot, or null if not found
+     */
+    public Plot removePlot(UUID plotId) {
+        Plot plot = getPlot(plotId);
+        if (plot == null) {
+            return null;
+        }
+
+        plots.remove(plot);
+        if (plots.isEmpty()) {
+            plots = null;
+            plotMap = null;
+            return plot;
+        }
+
+        // Indexes after the removed plot shifted, rebuild the column map
+        plotMap = new byte[256];
+        for (int i = 0; i < plots.size(); i++) {
+            mapPlot(plots.get(i), i + 1);
+        }
+        return plot;
+    }
+
+    private void mapPlot(Plot plot, int index) {
+        for (int localZ = plot.getMinZ(); localZ <= plot.getMaxZ(); localZ++) {
+            for (int localX = plot.getMinX(); localX <= plot.getMaxX(); localX++) {
+                plotMap[(localZ << 4) | localX] = (byte) index;
+            }
+        }
+    }
+
+    /**
+     * Check if this claim changed since it was last saved
+     *
+     * @return true if it needs saving
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void markDirty() {
+        this.dirty = true;
+    }
+
+    public void clearDirty() {
+        this.dirty = false;
     }
 
     /**
@@ -92,6 +235,26 @@ public class Claim {
                 chunk.getZ() == z;
     }
 
+    /**
+     * Get the packed chunk coordinate key of this claim (unique within its world)
+     *
+     * @return The packed key
+     */
+    public long getChunkKey() {
+        return chunkKey(x, z);
+    }
+
+    /**
+     * Pack chunk coordinates into a single long key
+     *
+     * @param chunkX Chunk X
+     * @param chunkZ Chunk Z
+     * @return The key, with X in the high 32 bits and Z in the low 32 bits
+     */
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
     /**
      * Creates a unique key for this claim's location
      *
@@ -0,0 +1,94 @@
+package com.alan.empiresOfAlan.model;
+
+import com.alan.empiresOfAlan.model.enums.ClaimFlag;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Immutable set of claim flag values backed by a bitmask.
+ * Instances are interned, so every claim with the same flags shares one object.
+ */
+public final class ClaimFlagSet {
+    private static final int ALL_FLAGS = (1 << ClaimFlag.values().length) - 1;
+    private static final ClaimFlagSet[] INTERNED = new ClaimFlagSet[ALL_FLAGS + 1];
+
+    static {
+        for (int mask = 0; mask <= ALL_FLAGS; mask++) {
+            INTERNED[mask] = new ClaimFlagSet(mask);
+        }
+    }
+
+    /**
+     * The flag set used by claims that have not changed any flag
+     */
+    public static final ClaimFlagSet DEFAULTS = of(ClaimFlag.getDefaultMask());
+
+    private final int mask;
+
+    private ClaimFlagSet(int mask) {
+        this.mask = mask;
+    }
+
+    /**
+     * Get the shared flag set for a mask
+     *
+     * @param mask The flag mask (unknown bits are ignored)
+     * @return The interned flag set
+     */
+    public static ClaimFlagSet of(int mask) {
+        return INTERNED[mask & ALL_FLAGS];
+    }
+
+    public int getMask() {
+        return mask;
+    }
+
+    /**
+     * Check if a flag is enabled
+     *
+     * @param flag The flag
+     * @return true if enabled
+     */
+    public boolean has(ClaimFlag flag) {
+        return (mask & flag.getMask()) != 0;
+    }
+
+    /**
+     * Get the flag set with one flag changed
+     *
+     * @param flag The flag
+     * @param value The new value
+     * @return The interned flag set
+     */
+    public ClaimFlagSet with(ClaimFlag flag, boolean value) {
+        return of(value ? mask | flag.getMask() : mask & ~flag.getMask());
+    }
+
+    /**
+     * Check if this is the default flag set
+     *
+     * @return true if every flag has its default value
+     */
+    public boolean isDefault() {
+        return this == DEFAULTS;
+    }
+
+    /**
+     * Expand the mask into a map of every flag
+     *
+     * @return A new map of flag values
+     */
+    public Map<ClaimFlag, Boolean> toMap() {
+        Map<ClaimFlag, Boolean> map = new EnumMap<>(ClaimFlag.class);
+        for (ClaimFlag flag : ClaimFlag.values()) {
+            map.put(flag, has(flag));
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "ClaimFlagSet" + toMap();
+    }
+}
@@ -4,6 +4,7 @@ import com.alan.empiresOfAlan.model.bank.BankAccount;
 import org.bukkit.Location;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Nation {
     private final UUID id;
@@ -16,6 +17,8 @@ public class Nation {
     private double taxRate;
     private long lastTaxCollection;
     private boolean isPublic;
+    private volatile boolean dirty = true; // New nations have never been saved
+    private volatile boolean townsDirty = true;
 
     public Nation(UUID id, String name, UUID capitalId, UUID leaderId) {
         this.id = id;
@@ -23,7 +26,7 @@ public class Nation {
         this.capitalId = capitalId;
         this.leaderId = leaderId;
         this.bankAccount = new BankAccount(id);
-        this.towns = new HashSet<>();
+        this.towns = ConcurrentHashMap.newKeySet();
         this.towns.add(capitalId); // Capital is a member town
         this.taxRate = 0.0;
         this.lastTaxCollection = System.currentTimeMillis();
@@ -40,6 +43,7 @@ public class Nation {
 
     public void setName(String name) {
         this.name = name;
+        this.dirty = true;
     }
 
     public UUID getCapitalId() {
@@ -49,6 +53,7 @@ public class Nation {
     public void setCapitalId(UUID capitalId) {
         if (towns.contains(capitalId)) {
             this.capitalId = capitalId;
+            this.dirty = true;
         }
     }
 
@@ -58,6 +63,7 @@ public class Nation {
 
     public void setLeaderId(UUID leaderId) {
         this.leaderId = leaderId;
+        this.dirty = true;
     }
 
     public BankAccount getBankAccount() {
@@ -69,14 +75,22 @@ public class Nation {
     }
 
     public boolean addTown(UUID townId) {
-        return towns.add(townId);
+        if (towns.add(townId)) {
+            townsDirty = true;
+            return true;
+        }
+        return false;
     }
 
     public boolean removeTown(UUID townId) {
         if (townId.equals(capitalId)) {
             return false; // Cannot remove the capital
         }
-        return towns.remove(townId);
+        if (towns.remove(townId)) {
+            townsDirty = true;
+            return true;
+        }
+        return false;
     }
 
     public boolean hasTown(UUID townId) {
@@ -93,6 +107,7 @@ public class Nation {
 
     public void setSpawn(Location spawn) {
         this.spawn = spawn;
+        this.dirty = true;
     }
 
     public boolean hasSpawn() {
@@ -105,6 +120,7 @@ public class Nation {
 
     public void setTaxRate(double taxRate) {
         this.taxRate = Math.max(0, Math.min(taxRate, 100)); // Cap between 0-100%
+        this.dirty = true;
     }
 
     public long getLastTaxCollection() {
@@ -113,6 +129,7 @@ public class Nation {
 
     public void setLastTaxCollection(long lastTaxCollection) {
         this.lastTaxCollection = lastTaxCollection;
+        this.dirty = true;
     }
 
     public boolean isPublic() {
@@ -121,6 +138,7 @@ public class Nation {
 
     public void setPublic(boolean isPublic) {
         this.isPublic = isPublic;
+        this.dirty = true;
     }
 
     /**
@@ -131,6 +149,7 @@ public class Nation {
      */
     public boolean transferLeadership(UUID newLeaderId) {
         this.leaderId = newLeaderId;
+        this.dirty = true;
         return true;
     }
 
@@ -146,6 +165,36 @@ public class Nation {
         }
 
         this.capitalId = newCapitalId;
+        this.dirty = true;
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Check if the nation row or its bank balance changed since it was last saved
+     *
+     * @return true if the nation needs saving
+     */
+    public boolean isDirty() {
+        return dirty || bankAccount.isDirty();
+    }
+
+    /**
+     * Check if the member towns changed since they were last saved
+     *
+     * @return true if the nation's town links need rewriting
+     */
+    public boolean isTownsDirty() {
+        return townsDirty;
+    }
+
+    public void markDirty() {
+        this.dirty = true;
+        this.townsDirty = true;
+    }
+
+    public void clearDirty() {
+        this.dirty = false;
+        this.townsDirty = false;
+        bankAccount.clearDirty();
+    }
+}
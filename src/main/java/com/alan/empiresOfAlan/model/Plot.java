@@ -0,0 +1,141 @@
+package com.alan.empiresOfAlan.model;
+
+import com.alan.empiresOfAlan.model.enums.ClaimFlag;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A rectangular part of a claimed chunk with its own owner and flags.
+ * Bounds are local block coordinates inside the chunk (0-15, inclusive).
+ */
+public class Plot {
+    private final UUID id;
+    private final UUID claimId;
+    private final int minX;
+    private final int minZ;
+    private final int maxX;
+    private final int maxZ;
+    private UUID ownerId;
+    private ClaimFlagSet flags;
+    private volatile boolean dirty = true; // New plots have never been saved
+
+    public Plot(UUID id, UUID claimId, int minX, int minZ, int maxX, int maxZ) {
+        if (minX < 0 || minZ < 0 || maxX > 15 || maxZ > 15 || minX > maxX || minZ > maxZ) {
+            throw new IllegalArgumentException("Plot bounds must lie inside the chunk");
+        }
+        this.id = id;
+        this.claimId = claimId;
+        this.minX = minX;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxZ = maxZ;
+        this.flags = ClaimFlagSet.DEFAULTS;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public UUID getClaimId() {
+        return claimId;
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinZ() {
+        return minZ;
+    }
+
+    public int getMaxX() {
+        return maxX;
+    }
+
+    public int getMaxZ() {
+        return maxZ;
+    }
+
+    public UUID getOwnerId() {
+        return ownerId;
+    }
+
+    public void setOwnerId(UUID ownerId) {
+        this.ownerId = ownerId;
+        this.dirty = true;
+    }
+
+    public boolean hasOwner() {
+        return ownerId != null;
+    }
+
+    public Map<ClaimFlag, Boolean> getFlags() {
+        return flags.toMap();
+    }
+
+    public boolean getFlag(ClaimFlag flag) {
+        return flags.has(flag);
+    }
+
+    public void setFlag(ClaimFlag flag, boolean value) {
+        this.flags = flags.with(flag, value);
+        this.dirty = true;
+    }
+
+    public int getFlagMask() {
+        return flags.getMask();
+    }
+
+    public void setFlagMask(int mask) {
+        this.flags = ClaimFlagSet.of(mask);
+        this.dirty = true;
+    }
+
+    /**
+     * Check if this plot changed since it was last saved
+     *
+     * @return true if it needs saving
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void markDirty() {
+        this.dirty = true;
+    }
+
+    public void clearDirty() {
+        this.dirty = false;
+    }
+
+    /**
+     * Check if local block coordinates lie inside the plot
+     *
+     * @param localX Block X inside the chunk (0-15)
+     * @param localZ Block Z inside the chunk (0-15)
+     * @return true if inside
+     */
+    public boolean contains(int localX, int localZ) {
+        return localX >= minX && localX <= maxX && localZ >= minZ && localZ <= maxZ;
+    }
+
+    /**
+     * Check if this plot overlaps another
+     *
+     * @param other The other plot
+     * @return true if they share at least one block column
+     */
+    public boolean overlaps(Plot other) {
+        return minX <= other.maxX && other.minX <= maxX && minZ <= other.maxZ && other.minZ <= maxZ;
+    }
+
+    /**
+     * Get the number of block columns covered by the plot
+     *
+     * @return The area
+     */
+    public int getArea() {
+        return (maxX - minX + 1) * (maxZ - minZ + 1);
+    }
+}
@@ -18,6 +18,7 @@ public class Resident {
     private long lastOnline;
     private boolean townChat;
     private boolean nationChat;
+    private volatile boolean dirty = true; // New residents have never been saved
 
     public Resident(UUID uuid, String name) {
         this.uuid = uuid;
@@ -39,6 +40,7 @@ public class Resident {
 
     public void setName(String name) {
         this.name = name;
+        this.dirty = true;
     }
 
     public UUID getTownId() {
@@ -47,6 +49,7 @@ public class Resident {
 
     public void setTownId(UUID townId) {
         this.townId = townId;
+        this.dirty = true;
     }
 
     public TownRole getTownRole() {
@@ -55,6 +58,7 @@ public class Resident {
 
     public void setTownRole(TownRole townRole) {
         this.townRole = townRole;
+        this.dirty = true;
     }
 
     public UUID getNationId() {
@@ -63,6 +67,7 @@ public class Resident {
 
     public void setNationId(UUID nationId) {
         this.nationId = nationId;
+        this.dirty = true;
     }
 
     public NationRole getNationRole() {
@@ -71,6 +76,7 @@ public class Resident {
 
     public void setNationRole(NationRole nationRole) {
         this.nationRole = nationRole;
+        this.dirty = true;
     }
 
     public long getLastOnline() {
@@ -79,6 +85,7 @@ public class Resident {
 
     public void setLastOnline(long lastOnline) {
         this.lastOnline = lastOnline;
+        this.dirty = true;
     }
 
     public boolean isInTownChat() {
@@ -87,6 +94,7 @@ public class Resident {
 
     public void setTownChat(boolean townChat) {
         this.townChat = townChat;
+        this.dirty = true;
     }
 
     public boolean isInNationChat() {
@@ -95,6 +103,7 @@ public class Resident {
 
     public void setNationChat(boolean nationChat) {
         this.nationChat = nationChat;
+        this.dirty = true;
     }
 
     public boolean hasTown() {
@@ -122,12 +131,14 @@ public class Resident {
         this.townId = null;
         this.townRole = TownRole.MEMBER;
         this.townChat = false;
+        this.dirty = true;
     }
 
     public void leaveNation() {
         this.nationId = null;
         this.nationRole = NationRole.MEMBER;
         this.nationChat = false;
+        this.dirty = true;
     }
 
     public boolean hasTownPermission(TownRole requiredRole) {
@@ -137,4 +148,21 @@ public class Resident {
     public boolean hasNationPermission(NationRole requiredRole) {
         return hasNation() && nationRole.isAtLeast(requiredRole);
     }
-}
\ No newline at end of file
+
+    /**
+     * Check if this resident changed since it was last saved
+     *
+     * @return true if it needs saving
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void markDirty() {
+        this.dirty = true;
+    }
+
+    public void clearDirty() {
+        this.dirty = false;
+    }
+}
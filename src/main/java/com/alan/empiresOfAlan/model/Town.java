@@ -5,6 +5,7 @@ import org.bukkit.Chunk;
 import org.bukkit.Location;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Town {
     private final UUID id;
@@ -18,14 +19,16 @@ public class Town {
     private double taxRate;
     private long lastTaxCollection;
     private boolean isPublic;
+    private volatile boolean dirty = true; // New towns have never been saved
+    private volatile boolean residentsDirty = true;
 
     public Town(UUID id, String name, UUID ownerId) {
         this.id = id;
         this.name = name;
         this.ownerId = ownerId;
         this.bankAccount = new BankAccount(id);
-        this.residents = new HashSet<>();
-        this.claims = new HashSet<>();
+        this.residents = ConcurrentHashMap.newKeySet();
+        this.claims = ConcurrentHashMap.newKeySet();
         this.residents.add(ownerId); // Owner is a resident
         this.taxRate = 0.0;
         this.lastTaxCollection = System.currentTimeMillis();
@@ -42,6 +45,7 @@ public class Town {
 
     public void setName(String name) {
         this.name = name;
+        this.dirty = true;
     }
 
     public UUID getOwnerId() {
@@ -50,6 +54,7 @@ public class Town {
 
     public void setOwnerId(UUID ownerId) {
         this.ownerId = ownerId;
+        this.dirty = true;
     }
 
     public BankAccount getBankAccount() {
@@ -61,14 +66,22 @@ public class Town {
     }
 
     public boolean addResident(UUID residentId) {
-        return residents.add(residentId);
+        if (residents.add(residentId)) {
+            residentsDirty = true;
+            return true;
+        }
+        return false;
     }
 
     public boolean removeResident(UUID residentId) {
         if (residentId.equals(ownerId)) {
             return false; // Cannot remove the owner
         }
-        return residents.remove(residentId);
+        if (residents.remove(residentId)) {
+            residentsDirty = true;
+            return true;
+        }
+        return false;
     }
 
     public boolean isResident(UUID residentId) {
@@ -105,6 +118,7 @@ public class Town {
 
     public void setSpawn(Location spawn) {
         this.spawn = spawn;
+        this.dirty = true;
     }
 
     public boolean hasSpawn() {
@@ -117,6 +131,7 @@ public class Town {
 
     public void setNationId(UUID nationId) {
         this.nationId = nationId;
+        this.dirty = true;
     }
 
     public boolean hasNation() {
@@ -129,6 +144,7 @@ public class Town {
 
     public void setTaxRate(double taxRate) {
         this.taxRate = Math.max(0, Math.min(taxRate, 100)); // Cap between 0-100%
+        this.dirty = true;
     }
 
     public long getLastTaxCollection() {
@@ -137,6 +153,7 @@ public class Town {
 
     public void setLastTaxCollection(long lastTaxCollection) {
         this.lastTaxCollection = lastTaxCollection;
+        this.dirty = true;
     }
 
     public boolean isPublic() {
@@ -145,6 +162,7 @@ public class Town {
 
     public void setPublic(boolean isPublic) {
         this.isPublic = isPublic;
+        this.dirty = true;
     }
 
     /**
@@ -191,6 +209,36 @@ public class Town {
         }
 
         this.ownerId = newOwnerId;
+        this.dirty = true;
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Check if the town row or its bank balance changed since it was last saved
+     *
+     * @return true if the town needs saving
+     */
+    public boolean isDirty() {
+        return dirty || bankAccount.isDirty();
+    }
+
+    /**
+     * Check if the resident list changed since it was last saved
+     *
+     * @return true if the town's resident links need rewriting
+     */
+    public boolean isResidentsDirty() {
+        return residentsDirty;
+    }
+
+    public void markDirty() {
+        this.dirty = true;
+        this.residentsDirty = true;
+    }
+
+    public void clearDirty() {
+        this.dirty = false;
+        this.residentsDirty = false;
+        bankAccount.clearDirty();
+    }
+}
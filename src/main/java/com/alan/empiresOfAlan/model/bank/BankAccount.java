@@ -5,6 +5,7 @@ import java.util.UUID;
 public class BankAccount {
     private final UUID ownerId;
     private double balance;
+    private volatile boolean dirty;
 
     public BankAccount(UUID ownerId) {
         this.ownerId = ownerId;
@@ -35,6 +36,7 @@ public class BankAccount {
         }
 
         this.balance += amount;
+        this.dirty = true;
         return true;
     }
 
@@ -53,6 +55,7 @@ public class BankAccount {
         }
 
         this.balance -= amount;
+        this.dirty = true;
         return true;
     }
 
@@ -76,6 +79,7 @@ public class BankAccount {
      */
     public void setBalance(double balance) {
         this.balance = Math.max(0, balance);
+        this.dirty = true;
     }
 
     /**
@@ -86,4 +90,21 @@ public class BankAccount {
     public boolean hasFunds(double amount) {
         return balance >= amount;
     }
-}
\ No newline at end of file
+
+    /**
+     * Check if this account changed since it was last saved
+     *
+     * @return true if it needs saving
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void markDirty() {
+        this.dirty = true;
+    }
+
+    public void clearDirty() {
+        this.dirty = false;
+    }
+}
@@ -1,5 +1,9 @@
 package com.alan.empiresOfAlan.model.enums;
 
+/**
+ * Claim protection flags. Each flag is stored as one bit (by ordinal) in a claim's
+ * flag mask, so new flags must only ever be appended to keep persisted masks valid.
+ */
 public enum ClaimFlag {
     PVP("pvp", "Allow PvP combat in the claim", false),
     EXPLOSIONS("explosions", "Allow explosions in the claim", false),
@@ -9,14 +13,28 @@ public enum ClaimFlag {
     INTERACT("interact", "Allow interactions by non-town members", false),
     PUBLIC_SPAWN("public-spawn", "Allow anyone to teleport to this claim", false);
 
+    private static final int DEFAULT_MASK;
+
+    static {
+        int mask = 0;
+        for (ClaimFlag flag : values()) {
+            if (flag.defaultValue) {
+                mask |= flag.mask;
+            }
+        }
+        DEFAULT_MASK = mask;
+    }
+
     private final String id;
     private final String description;
     private final boolean defaultValue;
+    private final int mask;
 
     ClaimFlag(String id, String description, boolean defaultValue) {
         this.id = id;
         this.description = description;
         this.defaultValue = defaultValue;
+        this.mask = 1 << ordinal();
     }
 
     public String getId() {
@@ -31,6 +49,24 @@ public enum ClaimFlag {
         return defaultValue;
     }
 
+    /**
+     * Get the bit representing this flag in a flag mask
+     *
+     * @return The flag bit
+     */
+    public int getMask() {
+        return mask;
+    }
+
+    /**
+     * Get the flag mask with every flag at its default value
+     *
+     * @return The default flag mask
+     */
+    public static int getDefaultMask() {
+        return DEFAULT_MASK;
+    }
+
     public static ClaimFlag getById(String id) {
         for (ClaimFlag flag : values()) {
             if (flag.id.equals(id)) {
@@ -0,0 +1,38 @@
+package com.alan.empiresOfAlan.model.enums;
+
+/**
+ * How strictly a town's claims must stay connected (chunk-claim.contiguity)
+ */
+public enum ContiguityRule {
+    /**
+     * Claims may be placed anywhere
+     */
+    NONE("none"),
+    /**
+     * New claims must share an edge with the town's territory in that world
+     */
+    ADJACENT("adjacent"),
+    /**
+     * Like ADJACENT, and unclaims may not split the territory
+     */
+    CONNECTED("connected");
+
+    private final String id;
+
+    ContiguityRule(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public static ContiguityRule getById(String id) {
+        for (ContiguityRule rule : values()) {
+            if (rule.id.equalsIgnoreCase(id)) {
+                return rule;
+            }
+        }
+        return NONE;
+    }
+}
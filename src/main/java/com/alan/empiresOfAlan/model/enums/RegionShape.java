@@ -0,0 +1,40 @@
+package com.alan.empiresOfAlan.model.enums;
+
+public enum RegionShape {
+    RECTANGLE("rect"),
+    CIRCLE("circle");
+
+    private final String id;
+
+    RegionShape(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Check if a chunk offset from the region center lies inside the shape
+     *
+     * @param dx Chunk X offset from the center
+     * @param dz Chunk Z offset from the center
+     * @param radius Region radius in chunks
+     * @return true if inside
+     */
+    public boolean contains(int dx, int dz, int radius) {
+        if (this == CIRCLE) {
+            return dx * dx + dz * dz <= radius * radius;
+        }
+        return Math.abs(dx) <= radius && Math.abs(dz) <= radius;
+    }
+
+    public static RegionShape getById(String id) {
+        for (RegionShape shape : values()) {
+            if (shape.id.equalsIgnoreCase(id)) {
+                return shape;
+            }
+        }
+        return null;
+    }
+}
@@ -4,8 +4,9 @@ import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 /**
@@ -13,7 +14,7 @@ import java.util.function.Supplier;
  */
 public class AsyncExecutor {
     private final JavaPlugin plugin;
-    private final Executor executor;
+    private final ExecutorService executor;
 
     public AsyncExecutor(JavaPlugin plugin) {
         this.plugin = plugin;
@@ -80,11 +81,21 @@ public class AsyncExecutor {
     }
 
     /**
-     * Shutdown the executor
+     * Stop accepting tasks and wait for the queued ones to finish
+     *
+     * @param timeoutMillis Maximum time to wait
+     * @return true if every task finished in time
      */
-    public void shutdown() {
-        if (executor instanceof java.util.concurrent.ExecutorService) {
-            ((java.util.concurrent.ExecutorService) executor).shutdown();
+    public boolean shutdown(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        executor.shutdownNow();
+        return false;
     }
 }
\ No newline at end of file
@@ -0,0 +1,112 @@
+package com.alan.empiresOfAlan.database;
+
+import com.alan.empiresOfAlan.index.RegionTile;
+import com.alan.empiresOfAlan.model.Claim;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ClaimRegionCodecTest {
+    private static final String WORLD = "world";
+
+    private static Claim claim(int chunkX, int chunkZ, UUID townId, int flags) {
+        Claim claim = new Claim(UUID.randomUUID(), WORLD, chunkX, chunkZ, townId);
+        claim.setFlagMask(flags);
+        return claim;
+    }
+
+    /**
+     * Encode claims, decode them into their region and check that every field survived
+     */
+    private static void assertRoundTrip(List<Claim> claims, int regionX, int regionZ) {
+        List<Claim> decoded = ClaimRegionCodec.decode(WORLD, regionX, regionZ, ClaimRegionCodec.encode(claims));
+        assertEquals(claims.size(), decoded.size());
+
+        Map<UUID, Claim> byId = new HashMap<>();
+        for (Claim claim : decoded) {
+            byId.put(claim.getId(), claim);
+        }
+        for (Claim expected : claims) {
+            Claim actual = byId.get(expected.getId());
+            assertNotNull(actual);
+            assertEquals(WORLD, actual.getWorldName());
+            assertEquals(expected.getX(), actual.getX(), "chunk X of " + expected.getId());
+            assertEquals(expected.getZ(), actual.getZ(), "chunk Z of " + expected.getId());
+            assertEquals(expected.getTownId(), actual.getTownId());
+            assertEquals(expected.getFlagMask(), actual.getFlagMask());
+        }
+    }
+
+    @Test
+    void negativeCoordinatesStayInTheirRegion() {
+        UUID town = UUID.randomUUID();
+        List<Claim> claims = new ArrayList<>();
+        claims.add(claim(-1, -1, town, 1)); // Region -1, local 31/31
+        claims.add(claim(-32, -32, town, 2)); // Region -1, local 0/0
+        claims.add(claim(-1, -32, town, 3)); // Region -1, local 31/0
+        claims.add(claim(-17, -5, town, 4));
+
+        assertRoundTrip(claims, -1, -1);
+    }
+
+    @Test
+    void regionBeyondMinusOneUsesTheRightBase() {
+        UUID town = UUID.randomUUID();
+        List<Claim> claims = new ArrayList<>();
+        claims.add(claim(-33, 40, town, 0)); // Region -2/1, local 31/8
+        claims.add(claim(-64, 63, town, 5)); // Region -2/1, local 0/31
+
+        assertRoundTrip(claims, -2, 1);
+    }
+
+    @Test
+    void paletteKeepsEveryTown() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        List<Claim> claims = new ArrayList<>();
+        claims.add(claim(0, 0, first, 1));
+        claims.add(claim(1, 0, second, 2));
+        claims.add(claim(2, 0, third, 3));
+        claims.add(claim(3, 0, second, 4));
+        claims.add(claim(31, 31, first, 5));
+
+        assertRoundTrip(claims, 0, 0);
+    }
+
+    @Test
+    void fullRegionRoundTrips() {
+        UUID[] towns = {UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()};
+        List<Claim> claims = new ArrayList<>();
+        int baseX = 5 << RegionTile.SHIFT;
+        int baseZ = -3 << RegionTile.SHIFT;
+        for (int z = 0; z < RegionTile.SIZE; z++) {
+            for (int x = 0; x < RegionTile.SIZE; x++) {
+                claims.add(claim(baseX + x, baseZ + z, towns[(x + z) % towns.length], (x * 7 + z) & 0xFF));
+            }
+        }
+
+        assertEquals(RegionTile.SIZE * RegionTile.SIZE, claims.size());
+        assertRoundTrip(claims, 5, -3);
+    }
+
+    @Test
+    void emptyRegionRoundTrips() {
+        assertRoundTrip(new ArrayList<>(), 0, 0);
+    }
+
+    @Test
+    void unknownFormatIsRejected() {
+        byte[] data = ClaimRegionCodec.encode(List.of(claim(0, 0, UUID.randomUUID(), 0)));
+        data[0] = 99;
+        assertThrows(IllegalArgumentException.class, () -> ClaimRegionCodec.decode(WORLD, 0, 0, data));
+    }
+}
@@ -0,0 +1,70 @@
+package com.alan.empiresOfAlan.database;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UUIDCodecTest {
+    private static final UUID SAMPLE = UUID.fromString("0123e4a5-6789-4bcd-8ef0-fedcba987654");
+
+    @Test
+    void bytesFollowTheTextForm() {
+        byte[] expected = {
+                0x01, 0x23, (byte) 0xE4, (byte) 0xA5, 0x67, (byte) 0x89, 0x4B, (byte) 0xCD,
+                (byte) 0x8E, (byte) 0xF0, (byte) 0xFE, (byte) 0xDC, (byte) 0xBA, (byte) 0x98, 0x76, 0x54};
+        assertArrayEquals(expected, UUIDCodec.toBytes(SAMPLE));
+        assertEquals(SAMPLE, UUIDCodec.fromBytes(expected));
+    }
+
+    @Test
+    void roundTrips() {
+        for (int i = 0; i < 1000; i++) {
+            UUID uuid = UUID.randomUUID();
+            assertEquals(uuid, UUIDCodec.fromBytes(UUIDCodec.toBytes(uuid)));
+        }
+        UUID extremes = new UUID(-1L, Long.MIN_VALUE);
+        assertEquals(extremes, UUIDCodec.fromBytes(UUIDCodec.toBytes(extremes)));
+    }
+
+    @Test
+    void nullStaysNull() {
+        assertNull(UUIDCodec.toBytes(null));
+        assertNull(UUIDCodec.fromBytes(null));
+    }
+
+    @Test
+    void wrongLengthIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> UUIDCodec.fromBytes(new byte[15]));
+    }
+
+    /**
+     * BinaryIdsMigration converts the old text ids with unhex(); the codec has to read the same bytes back
+     */
+    @Test
+    void matchesSqliteUnhex() throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+             PreparedStatement stmt = conn.prepareStatement("SELECT unhex(replace(?, '-', ''))")) {
+            for (int i = 0; i < 100; i++) {
+                UUID uuid = i == 0 ? SAMPLE : UUID.randomUUID();
+                stmt.setString(1, uuid.toString());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    assertTrue(rs.next());
+                    byte[] converted = rs.getBytes(1);
+                    assertArrayEquals(UUIDCodec.toBytes(uuid), converted);
+                    assertEquals(uuid, UUIDCodec.fromBytes(converted));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.alan.empiresOfAlan.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongObjectMapTest {
+    private static final int TABLE_SIZE = 16; // Capacity of a new map, holds 9 entries before it grows
+    private static final int MASK = TABLE_SIZE - 1;
+
+    /**
+     * Find keys whose home slot in a new map is the given slot
+     */
+    private static List<Long> keysWithHome(int slot, int count) {
+        List<Long> keys = new ArrayList<>(count);
+        for (long key = 0; keys.size() < count; key++) {
+            if ((LongObjectMap.mix(key) & MASK) == slot) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    @Test
+    void putGetAndReplace() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        assertNull(map.put(1L, "a"));
+        assertNull(map.put(-1L, "b"));
+        assertEquals("a", map.put(1L, "c"));
+
+        assertEquals("c", map.get(1L));
+        assertEquals("b", map.get(-1L));
+        assertNull(map.get(2L));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void nullValuesAreRejected() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        assertThrows(IllegalArgumentException.class, () -> map.put(1L, null));
+    }
+
+    @Test
+    void collisionChainWrapsAroundTheEndOfTheTable() {
+        List<Long> keys = keysWithHome(MASK - 1, 4); // Home 14, so the chain fills 14, 15, 0 and 1
+        LongObjectMap<Long> map = new LongObjectMap<>();
+        for (Long key : keys) {
+            map.put(key, key);
+        }
+
+        for (Long key : keys) {
+            assertEquals(key, map.get(key));
+        }
+        assertEquals(4, map.size());
+    }
+
+    @Test
+    void removingFromAWrappedChainKeepsLaterKeysReachable() {
+        List<Long> keys = keysWithHome(MASK, 3); // Slots 15, 0 and 1
+        Long startsAtZero = keysWithHome(0, 1).get(0); // Pushed to slot 2 by the chain
+        LongObjectMap<Long> map = new LongObjectMap<>();
+        for (Long key : keys) {
+            map.put(key, key);
+        }
+        map.put(startsAtZero, startsAtZero);
+
+        // Removing the head shifts the wrapped entries back across the end of the table
+        assertEquals(keys.get(0), map.remove(keys.get(0)));
+        assertNull(map.get(keys.get(0)));
+        assertEquals(keys.get(1), map.get(keys.get(1)));
+        assertEquals(keys.get(2), map.get(keys.get(2)));
+        assertEquals(startsAtZero, map.get(startsAtZero));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    void removingInTheMiddleOfAChainKeepsLaterKeysReachable() {
+        List<Long> keys = keysWithHome(3, 5);
+        LongObjectMap<Long> map = new LongObjectMap<>();
+        for (Long key : keys) {
+            map.put(key, key);
+        }
+
+        assertEquals(keys.get(2), map.remove(keys.get(2)));
+        assertNull(map.get(keys.get(2)));
+        assertNull(map.remove(keys.get(2)));
+        for (int i = 0; i < keys.size(); i++) {
+            if (i != 2) {
+                assertEquals(keys.get(i), map.get(keys.get(i)), "key " + i);
+            }
+        }
+        assertEquals(4, map.size());
+    }
+
+    @Test
+    void entryInItsHomeSlotIsNotShiftedBack() {
+        List<Long> chain = keysWithHome(5, 2); // Slots 5 and 6
+        Long homeAtSeven = keysWithHome(7, 1).get(0);
+        LongObjectMap<Long> map = new LongObjectMap<>();
+        map.put(chain.get(0), chain.get(0));
+        map.put(chain.get(1), chain.get(1));
+        map.put(homeAtSeven, homeAtSeven);
+
+        map.remove(chain.get(0));
+        assertEquals(chain.get(1), map.get(chain.get(1)));
+        assertEquals(homeAtSeven, map.get(homeAtSeven));
+
+        // The shifted entry now sits in slot 5, so a key that starts at 6 must still find the free slot
+        Long homeAtSix = keysWithHome(6, 1).get(0);
+        map.put(homeAtSix, homeAtSix);
+        assertEquals(homeAtSix, map.get(homeAtSix));
+        assertEquals(homeAtSeven, map.get(homeAtSeven));
+    }
+
+    @Test
+    void resizeAfterRemovalsKeepsEveryKey() {
+        LongObjectMap<Long> map = new LongObjectMap<>();
+        List<Long> keys = keysWithHome(MASK, 6);
+        keys.addAll(keysWithHome(0, 3));
+        for (Long key : keys) {
+            map.put(key, key);
+        }
+        List<Long> removed = List.of(keys.get(1), keys.get(4), keys.get(7));
+        for (Long key : removed) {
+            map.remove(key);
+        }
+
+        // Grow past the resize threshold while the removals have left gaps in the old table
+        Map<Long, Long> expected = new HashMap<>();
+        for (Long key : keys) {
+            if (!removed.contains(key)) {
+                expected.put(key, key);
+            }
+        }
+        for (long i = 0; i < 100; i++) {
+            long key = (i + 100) * 1_000_003L; // Far from the small keys above
+            map.put(key, i);
+            expected.put(key, i);
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        for (Long key : removed) {
+            assertFalse(map.containsKey(key));
+        }
+    }
+
+    @Test
+    void randomOperationsMatchHashMap() {
+        Random random = new Random(42);
+        LongObjectMap<Long> map = new LongObjectMap<>(4);
+        Map<Long, Long> expected = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(512) - 256L; // Small key space so removals hit often
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                long value = random.nextLong();
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = -256; key < 256; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        int[] visited = new int[1];
+        map.forEach((key, value) -> {
+            assertEquals(expected.get(key), value);
+            visited[0]++;
+        });
+        assertEquals(expected.size(), visited[0]);
+    }
+
+    @Test
+    void clearEmptiesTheMap() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(1L, "a");
+        map.put(2L, "b");
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1L));
+        assertTrue(map.values().isEmpty());
+    }
+}
@@ -0,0 +1,111 @@
+package com.alan.empiresOfAlan.journal;
+
+import com.alan.empiresOfAlan.managers.ClaimManager;
+import com.alan.empiresOfAlan.managers.ResidentManager;
+import com.alan.empiresOfAlan.managers.TownManager;
+import com.alan.empiresOfAlan.model.Claim;
+import com.alan.empiresOfAlan.model.Resident;
+import com.alan.empiresOfAlan.model.Town;
+import com.alan.empiresOfAlan.model.enums.TownRole;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JournalReplayerTest {
+    private static final String WORLD = "journal-test";
+
+    @TempDir
+    File dataFolder;
+
+    private final TownManager townManager = TownManager.getInstance();
+    private final ClaimManager claimManager = ClaimManager.getInstance();
+    private final ResidentManager residentManager = ResidentManager.getInstance();
+    private Town town;
+    private Resident member;
+
+    @BeforeEach
+    void createTown() {
+        UUID ownerId = UUID.randomUUID();
+        town = new Town(UUID.randomUUID(), "JournalTown", ownerId);
+        townManager.getTowns().put(town.getId(), town);
+
+        member = new Resident(UUID.randomUUID(), "Member");
+        residentManager.getResidents().put(member.getUuid(), member);
+    }
+
+    @AfterEach
+    void removeTown() {
+        for (UUID claimId : new HashSet<>(town.getClaims())) {
+            claimManager.unclaimChunk(claimId);
+        }
+        townManager.getTowns().remove(town.getId());
+        residentManager.removeResident(member.getUuid());
+    }
+
+    /**
+     * Journal a claim, a second claim that is removed again, a flag change, a balance and a resident
+     */
+    private List<ByteBuffer> journalChanges(Claim kept, Claim removed) {
+        MutationJournal journal = new MutationJournal(new TestStorageHost(dataFolder));
+        journal.open();
+        journal.claim(kept);
+        journal.claim(removed);
+        journal.unclaim(removed.getId());
+        kept.setFlagMask(5);
+        journal.claim(kept);
+
+        town.getBankAccount().setBalance(250.0);
+        journal.balance(town.getBankAccount());
+        town.getBankAccount().setBalance(0.0);
+
+        Resident joined = new Resident(member.getUuid(), "Renamed");
+        joined.setTownId(town.getId());
+        joined.setTownRole(TownRole.KNIGHT);
+        journal.resident(joined);
+        journal.close(false);
+
+        return new MutationJournal(new TestStorageHost(dataFolder)).readAll();
+    }
+
+    private void assertReplayedState(Claim kept, Claim removed) {
+        Claim claim = claimManager.getClaim(kept.getId());
+        assertNotNull(claim);
+        assertEquals(5, claim.getFlagMask());
+        assertEquals(claim, claimManager.getClaimAtChunk(WORLD, kept.getX(), kept.getZ()));
+        assertNull(claimManager.getClaim(removed.getId()));
+        assertNull(claimManager.getClaimAtChunk(WORLD, removed.getX(), removed.getZ()));
+        assertEquals(1, town.getClaims().size());
+
+        assertEquals(250.0, town.getBankAccount().getBalance());
+        assertEquals(town.getId(), member.getTownId());
+        assertEquals(TownRole.KNIGHT, member.getTownRole());
+        assertEquals("Renamed", member.getName());
+    }
+
+    @Test
+    void replayingTheSameSegmentTwiceGivesTheSameState() {
+        Claim kept = new Claim(UUID.randomUUID(), WORLD, 10, 10, town.getId());
+        Claim removed = new Claim(UUID.randomUUID(), WORLD, 11, 10, town.getId());
+        List<ByteBuffer> records = journalChanges(kept, removed);
+        assertEquals(6, records.size());
+
+        JournalReplayer replayer = new JournalReplayer(new TestStorageHost(dataFolder));
+        assertEquals(6, replayer.replay(records));
+        assertReplayedState(kept, removed);
+
+        // A crash before the next save leaves the segment in place, so it is replayed again on the replayed state
+        assertEquals(6, replayer.replay(new MutationJournal(new TestStorageHost(dataFolder)).readAll()));
+        assertReplayedState(kept, removed);
+    }
+}
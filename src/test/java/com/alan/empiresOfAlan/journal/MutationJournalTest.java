@@ -0,0 +1,103 @@
+package com.alan.empiresOfAlan.journal;
+
+import com.alan.empiresOfAlan.model.Claim;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MutationJournalTest {
+    private static final int HEADER_BYTES = 8; // Payload length and CRC32
+
+    @TempDir
+    File dataFolder;
+
+    private static Claim claim(int x) {
+        Claim claim = new Claim(UUID.randomUUID(), "world", x, 0, UUID.randomUUID());
+        claim.setFlagMask(x);
+        return claim;
+    }
+
+    /**
+     * Write records through a journal and close it the way a clean shutdown would, keeping the segment
+     */
+    private File writeSegment(Claim... claims) {
+        MutationJournal journal = new MutationJournal(new TestStorageHost(dataFolder));
+        journal.open();
+        for (Claim claim : claims) {
+            journal.claim(claim);
+        }
+        journal.close(false);
+
+        File[] segments = new File(dataFolder, "journal").listFiles();
+        assertEquals(1, segments.length);
+        return segments[0];
+    }
+
+    private List<ByteBuffer> readAll() {
+        return new MutationJournal(new TestStorageHost(dataFolder)).readAll();
+    }
+
+    private static int recordLength(File segment, long offset) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segment, "r")) {
+            file.seek(offset);
+            return file.readInt();
+        }
+    }
+
+    @Test
+    void recordsAreReadBackInOrder() {
+        Claim first = claim(1);
+        Claim second = claim(2);
+        writeSegment(first, second);
+
+        List<ByteBuffer> records = readAll();
+        assertEquals(2, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            ByteBuffer record = records.get(i);
+            assertEquals(MutationJournal.CLAIM, record.get());
+            record.getLong(); // Written at
+            assertEquals(i == 0 ? first.getId() : second.getId(), MutationJournal.getUUID(record));
+        }
+    }
+
+    @Test
+    void tornLastRecordStopsReading() throws IOException {
+        File segment = writeSegment(claim(1), claim(2), claim(3));
+
+        // A crash in the middle of the last write leaves only part of it on disk
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 5);
+        }
+        assertEquals(2, readAll().size());
+
+        // Even the header of the last record may be cut short
+        long secondEnd = HEADER_BYTES + recordLength(segment, 0);
+        secondEnd += HEADER_BYTES + recordLength(segment, secondEnd);
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(secondEnd + 3);
+        }
+        assertEquals(2, readAll().size());
+    }
+
+    @Test
+    void checksumMismatchStopsReading() throws IOException {
+        File segment = writeSegment(claim(1), claim(2), claim(3));
+
+        // Corrupt the payload of the second record; the intact third record after it is not trusted either
+        long second = HEADER_BYTES + recordLength(segment, 0);
+        byte[] data = Files.readAllBytes(segment.toPath());
+        data[(int) second + HEADER_BYTES + 1] ^= 0x40;
+        Files.write(segment.toPath(), data);
+
+        assertEquals(1, readAll().size());
+    }
+}
@@ -0,0 +1,59 @@
+package com.alan.empiresOfAlan.journal;
+
+import com.alan.empiresOfAlan.database.DatabaseWriter;
+import com.alan.empiresOfAlan.database.SQLiteManager;
+import com.alan.empiresOfAlan.database.StorageHost;
+import com.alan.empiresOfAlan.util.AsyncExecutor;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.util.logging.Logger;
+
+/**
+ * A data folder and an empty configuration, enough for the journal outside a server
+ */
+class TestStorageHost implements StorageHost {
+    private final Logger logger = Logger.getLogger("JournalTest");
+    private final File dataFolder;
+    private final FileConfiguration config = new YamlConfiguration();
+
+    TestStorageHost(File dataFolder) {
+        this.dataFolder = dataFolder;
+    }
+
+    @Override
+    public Logger getLogger() {
+        return logger;
+    }
+
+    @Override
+    public File getDataFolder() {
+        return dataFolder;
+    }
+
+    @Override
+    public FileConfiguration getStorageConfig() {
+        return config;
+    }
+
+    @Override
+    public AsyncExecutor getAsyncExecutor() {
+        return null;
+    }
+
+    @Override
+    public SQLiteManager getSQLiteManager() {
+        return null;
+    }
+
+    @Override
+    public DatabaseWriter getDatabaseWriter() {
+        return null;
+    }
+
+    @Override
+    public boolean isLoadFinished() {
+        return true;
+    }
+}